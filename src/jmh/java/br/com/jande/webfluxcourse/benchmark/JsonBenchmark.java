@@ -0,0 +1,52 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uses the same ObjectMapper defaults the WebFlux Jackson codecs start from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private final byte[] requestJson = """
+            {"name":"Jande","email":"jande.max@teste.com.br","password":"123456"}"""
+            .getBytes(StandardCharsets.UTF_8);
+    private final UserResponse response = new UserResponse("63b8d2f4e4b0a1a2b3c4d5e6", "Jande",
+            "jande.max@teste.com.br", Instant.parse("2023-01-07T02:30:12Z"));
+
+    private ObjectReader requestReader;
+    private ObjectWriter responseWriter;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestReader = objectMapper.readerFor(UserRequest.class);
+        responseWriter = objectMapper.writerFor(UserResponse.class);
+    }
+
+    @Benchmark
+    public UserRequest deserializeRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.WebfluxCourseApplication;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /users/{id} through the whole WebFlux pipeline (filters, dispatcher,
+ * exception handler, Jackson) for an id that exists and one that does not,
+ * without a socket in between. A miss should cost about what a hit does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// the whole Spring stack takes a while to get compiled, short warm-ups measure the JIT
+@Warmup(iterations = 8, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private HttpHandler handler;
+    private String foundPath;
+    private String missingPath;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WebfluxCourseApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("in-memory")
+                .properties("server.port=0", "users.admission.enabled=false", "logging.level.root=warn")
+                .run();
+        handler = WebHttpHandlerBuilder.applicationContext(context).build();
+
+        User user = context.getBean(UserRepository.class).save(User.builder()
+                .name("Jande")
+                .email("jande.max@teste.com.br")
+                .password("123456")
+                .build()).block();
+        foundPath = "/users/" + user.getId();
+        missingPath = "/users/" + ObjectId.get().toHexString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public HttpStatusCode found() {
+        return get(foundPath);
+    }
+
+    @Benchmark
+    public HttpStatusCode notFound() {
+        return get(missingPath);
+    }
+
+    private HttpStatusCode get(final String path){
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        handler.handle(MockServerHttpRequest.get(path).build(), response).block();
+        response.getBodyAsString().block();
+        return response.getStatusCode();
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.config.PasswordHashingProperties;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long a trivial task waits for the event loop while passwords are being
+ * hashed in the background. With {@code offloaded=false} BCrypt runs on the
+ * loop itself, the way a plain {@code map(encoder::encode)} in a handler would,
+ * and every other request queues behind it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final int STRENGTH = 10;
+    private static final int HASHES_IN_FLIGHT = 2;
+
+    @Param({"true", "false"})
+    private boolean offloaded;
+
+    private Scheduler eventLoop;
+    private PasswordHasher passwordHasher;
+    private Disposable load;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventLoop = Schedulers.newSingle("event-loop");
+        PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(STRENGTH);
+        passwordHasher = new PasswordHasher(properties);
+        BCryptPasswordEncoder inlineEncoder = new BCryptPasswordEncoder(STRENGTH);
+
+        load = Flux.range(0, Integer.MAX_VALUE)
+                .flatMap(i -> offloaded
+                        ? passwordHasher.hash("123456").publishOn(eventLoop)
+                        : Mono.fromCallable(() -> inlineEncoder.encode("123456")).subscribeOn(eventLoop),
+                        HASHES_IN_FLIGHT)
+                .subscribe();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        load.dispose();
+        passwordHasher.destroy();
+        eventLoop.dispose();
+    }
+
+    @Benchmark
+    public Integer eventLoopRoundTrip() {
+        return Mono.fromCallable(() -> 1).subscribeOn(eventLoop).block();
+    }
+}
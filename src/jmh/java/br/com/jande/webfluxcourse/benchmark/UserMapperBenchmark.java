@@ -0,0 +1,44 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.mapper.UserMapperImpl;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private final UserMapper mapper = new UserMapperImpl();
+    private final UserRequest request = new UserRequest("Jande", "jande.max@teste.com.br", "123456");
+    private final UserRequest partialRequest = new UserRequest("Jandera", null, null);
+    private final User user = User.builder()
+            .id("63b8d2f4e4b0a1a2b3c4d5e6")
+            .name("Jande")
+            .email("jande.max@teste.com.br")
+            .password("123456")
+            .build();
+
+    @Benchmark
+    public User toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public User toEntityPartialUpdate() {
+        return mapper.toEntity(partialRequest, user);
+    }
+
+    @Benchmark
+    public UserResponse toResponse() {
+        return mapper.toResponse(user);
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.codec.UserResponseEncoder;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * A stream of users encoded into pooled Netty buffers, as the server writes
+ * it, by Jackson and by {@link UserResponseEncoder}. Run with {@code -prof gc}
+ * to see the allocation per element.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserResponseEncoderBenchmark {
+
+    private static final ResolvableType USER = ResolvableType.forClass(UserResponse.class);
+
+    @Param({"jackson", "user"})
+    private String encoderName;
+
+    @Param({"application/json", "application/x-ndjson"})
+    private String mediaType;
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private Encoder<Object> encoder;
+    private MediaType mimeType;
+    private List<UserResponse> users;
+
+    @Setup
+    public void setUp() {
+        encoder = "user".equals(encoderName)
+                ? new UserResponseEncoder(64)
+                : new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json()
+                        .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                        .build());
+        mimeType = MediaType.parseMediaType(mediaType);
+        users = IntStream.range(0, 1000)
+                .mapToObj(i -> new UserResponse(String.format("63b8d2f4e4b0a1a2b3c4%04x", i), "Jande " + i,
+                        "jande" + i + "@teste.com.br", Instant.parse("2023-01-07T02:30:12.345Z").plusSeconds(i)))
+                .toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public long encode() {
+        return encoder.encode(Flux.fromIterable(users), bufferFactory, USER, mimeType, null)
+                .map(buffer -> {
+                    final int written = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return written;
+                })
+                .reduce(0L, Long::sum)
+                .block();
+    }
+}
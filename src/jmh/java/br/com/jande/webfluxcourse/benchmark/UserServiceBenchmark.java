@@ -0,0 +1,107 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.config.EmailFilterProperties;
+import br.com.jande.webfluxcourse.config.PasswordHashingProperties;
+import br.com.jande.webfluxcourse.config.UserCacheProperties;
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.config.UserPaginationProperties;
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapperImpl;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.repository.impl.InMemoryUserRepository;
+import br.com.jande.webfluxcourse.service.UserService;
+import br.com.jande.webfluxcourse.service.cache.UserCache;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.pagination.KeysetPage;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import br.com.jande.webfluxcourse.service.writebehind.UserWriteBehind;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService flows against the in-memory repository, so the numbers show the
+ * service, mapper and cache overhead without any Mongo round trip. BCrypt runs
+ * at its minimum cost so {@code save} is not just a hashing benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    private final InMemoryUserRepository repository = new InMemoryUserRepository();
+    private final String[] ids = new String[USERS];
+    private final UserRequest updateRequest = new UserRequest("Jandera", null, null);
+
+    private PasswordHasher passwordHasher;
+    private UserService service;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserCacheProperties cacheProperties = new UserCacheProperties();
+        cacheProperties.setEnabled(cacheEnabled);
+        PasswordHashingProperties hashingProperties = new PasswordHashingProperties();
+        hashingProperties.setStrength(4);
+        passwordHasher = new PasswordHasher(hashingProperties);
+        UserWriteBehind writeBehind = new UserWriteBehind(repository, new UserWriteBehindProperties());
+        EmailFilterProperties emailFilterProperties = new EmailFilterProperties();
+        emailFilterProperties.setFollowChanges(false);
+        EmailRegistry emails = new EmailRegistry(repository, new UserChangeFeed(repository, new UserChangesProperties()),
+                writeBehind, emailFilterProperties);
+        service = new UserService(repository, new UserMapperImpl(), new UserPaginationProperties(),
+                new UserSearchProperties(), new UserCache(cacheProperties), passwordHasher, writeBehind, emails);
+
+        for (int i = 0; i < USERS; i++) {
+            ids[i] = repository.save(User.builder()
+                    .name("User " + i)
+                    .email("user" + i + "@teste.com.br")
+                    .password("123456")
+                    .build()).block().getId();
+        }
+        emails.afterPropertiesSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordHasher.destroy();
+    }
+
+    @Benchmark
+    public User save() {
+        long next = sequence++;
+        return service.save(new UserRequest("Jande", "jande" + next + "@teste.com.br", "123456")).block();
+    }
+
+    @Benchmark
+    public User findById() {
+        return service.findById(randomId()).block();
+    }
+
+    @Benchmark
+    public KeysetPage<UserSummary> findPage() {
+        return service.findPage(null, 20).block();
+    }
+
+    @Benchmark
+    public User update() {
+        return service.update(randomId(), updateRequest).block();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(USERS)];
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.validator.RequestValidator;
+import br.com.jande.webfluxcourse.validator.TrimStringValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request validation as WebFlux runs it, into a binding result, through
+ * Spring's Bean Validation adapter and through {@link RequestValidator}'s
+ * precompiled constraints; plus the raw Bean Validation call and the trim
+ * check on their own. Run with {@code -prof gc} to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private final TrimStringValidator trimStringValidator = new TrimStringValidator();
+    private final UserRequest validRequest = new UserRequest("Jande", "jande.max@teste.com.br", "123456");
+    private final UserRequest invalidRequest = new UserRequest(" Jande", "jande.max", "1");
+
+    private ValidatorFactory factory;
+    private Validator validator;
+    private SpringValidatorAdapter beanValidation;
+    private RequestValidator precompiled;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        beanValidation = new SpringValidatorAdapter(validator);
+        precompiled = new RequestValidator(validator, new UserWebProperties());
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public boolean trimStringValid() {
+        return trimStringValidator.isValid(validRequest.name(), null);
+    }
+
+    @Benchmark
+    public boolean trimStringInvalid() {
+        return trimStringValidator.isValid(invalidRequest.name(), null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> validateValidRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserRequest>> validateInvalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+
+    /** The binding result alone, which every path below allocates. */
+    @Benchmark
+    public BindingResult bindingResult() {
+        return new BeanPropertyBindingResult(validRequest, "userRequest");
+    }
+
+    @Benchmark
+    public BindingResult beanValidationValidRequest() {
+        return bind(beanValidation, validRequest);
+    }
+
+    @Benchmark
+    public BindingResult beanValidationInvalidRequest() {
+        return bind(beanValidation, invalidRequest);
+    }
+
+    @Benchmark
+    public BindingResult precompiledValidRequest() {
+        return bind(precompiled, validRequest);
+    }
+
+    @Benchmark
+    public BindingResult precompiledInvalidRequest() {
+        return bind(precompiled, invalidRequest);
+    }
+
+    private static BindingResult bind(final org.springframework.validation.Validator validator, final UserRequest request) {
+        final BindingResult result = new BeanPropertyBindingResult(request, "userRequest");
+        validator.validate(request, result);
+        return result;
+    }
+}
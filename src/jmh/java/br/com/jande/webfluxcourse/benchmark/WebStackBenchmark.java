@@ -0,0 +1,98 @@
+package br.com.jande.webfluxcourse.benchmark;
+
+import br.com.jande.webfluxcourse.WebfluxCourseApplication;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.server.adapter.WebHttpHandlerBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The same requests against the annotated controller and the functional
+ * routes, through the whole WebFlux pipeline without a socket in between.
+ * The difference is the cost of dispatch, argument resolution and return
+ * value handling; the service layer underneath is shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+// the whole Spring stack takes a while to get compiled, short warm-ups measure the JIT
+@Warmup(iterations = 8, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class WebStackBenchmark {
+
+    private static final String INVALID_USER = "{\"name\":\" Jande\",\"email\":\"jande.max@teste.com.br\",\"password\":\"123456\"}";
+
+    @Param({"annotated", "functional"})
+    private String stack;
+
+    private ConfigurableApplicationContext context;
+    private HttpHandler handler;
+    private String userPath;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(WebfluxCourseApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .profiles("in-memory")
+                .properties("server.port=0", "users.web.stack=" + stack, "users.admission.enabled=false",
+                        "users.cache.enabled=false", "logging.level.root=warn")
+                .run();
+        handler = WebHttpHandlerBuilder.applicationContext(context).build();
+
+        UserRepository repository = context.getBean(UserRepository.class);
+        userPath = "/users/" + IntStream.range(0, 50)
+                .mapToObj(i -> repository.save(User.builder()
+                        .name("Jande " + i)
+                        .email("jande" + i + "@teste.com.br")
+                        .password("123456")
+                        .build()).block())
+                .toList().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public HttpStatusCode findById() {
+        return exchange(MockServerHttpRequest.get(userPath).build());
+    }
+
+    @Benchmark
+    public HttpStatusCode findPage() {
+        return exchange(MockServerHttpRequest.get("/users?name=Jande&limit=20").build());
+    }
+
+    @Benchmark
+    public HttpStatusCode stream() {
+        return exchange(MockServerHttpRequest.get("/users").accept(MediaType.APPLICATION_NDJSON).build());
+    }
+
+    /** Binding and validation of a body, rejected before it reaches the service. */
+    @Benchmark
+    public HttpStatusCode invalidSave() {
+        return exchange(MockServerHttpRequest.post("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(INVALID_USER));
+    }
+
+    private HttpStatusCode exchange(final MockServerHttpRequest request){
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        handler.handle(request, response).block();
+        response.getBodyAsString().block();
+        return response.getStatusCode();
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.jande.webfluxcourse.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the load generator, given as {@code name=value}
+ * (a leading {@code --} is accepted too).
+ *
+ * <pre>
+ * target=http://host:8080   hit a running instance instead of booting one in-process
+ * rate=2000                 arrivals per second (open model, independent of response times)
+ * arrival=poisson|uniform   inter-arrival distribution
+ * duration=60s warmup=10s   measurement window and discarded warm-up
+ * mix=get:70,list:10,create:10,update:10
+ * payload-size=32           characters of name/password (clamped to the 3..50 validation range)
+ * seed-users=1000           users created before the run, targets of get/update
+ * max-in-flight=20000       outstanding requests before arrivals are dropped and counted
+ * connections=512 client-threads=2
+ * </pre>
+ */
+public record LoadTestOptions(
+        String target,
+        double rate,
+        boolean poisson,
+        Duration duration,
+        Duration warmup,
+        Map<Operation, Integer> mix,
+        int payloadSize,
+        int seedUsers,
+        int maxInFlight,
+        int connections,
+        int clientThreads
+) {
+
+    public static LoadTestOptions parse(final String[] args){
+        final Map<String, String> values = new HashMap<>();
+        for(String arg : args){
+            final String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            final int separator = option.indexOf('=');
+            if(separator < 1)
+                throw new IllegalArgumentException("Expected name=value but got: " + arg);
+            values.put(option.substring(0, separator), option.substring(separator + 1));
+        }
+
+        return new LoadTestOptions(
+                values.get("target"),
+                Double.parseDouble(values.getOrDefault("rate", "1000")),
+                !"uniform".equals(values.getOrDefault("arrival", "poisson")),
+                duration(values.getOrDefault("duration", "60s")),
+                duration(values.getOrDefault("warmup", "10s")),
+                mix(values.getOrDefault("mix", "get:70,list:10,create:10,update:10")),
+                Math.max(3, Math.min(50, Integer.parseInt(values.getOrDefault("payload-size", "32")))),
+                Integer.parseInt(values.getOrDefault("seed-users", "1000")),
+                Integer.parseInt(values.getOrDefault("max-in-flight", "20000")),
+                Integer.parseInt(values.getOrDefault("connections", "512")),
+                Integer.parseInt(values.getOrDefault("client-threads", "2"))
+        );
+    }
+
+    private static Duration duration(final String value){
+        return Duration.parse("PT" + value.toUpperCase());
+    }
+
+    private static Map<Operation, Integer> mix(final String value){
+        final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for(String entry : value.split(",")){
+            final String[] parts = entry.split(":");
+            mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+}
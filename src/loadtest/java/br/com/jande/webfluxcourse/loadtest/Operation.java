@@ -0,0 +1,19 @@
+package br.com.jande.webfluxcourse.loadtest;
+
+public enum Operation {
+
+    GET("GET /users/{id}"),
+    LIST("GET /users"),
+    CREATE("POST /users"),
+    UPDATE("PATCH /users/{id}");
+
+    private final String endpoint;
+
+    Operation(final String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+}
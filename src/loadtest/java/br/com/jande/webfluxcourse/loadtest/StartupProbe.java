@@ -0,0 +1,195 @@
+package br.com.jande.webfluxcourse.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold start of the packaged application: the time from launching the process
+ * to the first answered request, the latency of the first create and the
+ * first read after that, and the resident memory once they are done. Each
+ * mode is started {@code runs} times and summarized as min / median / max.
+ *
+ * <pre>
+ * modes=jvm,aot,native      jvm: java -jar, aot: the same jar with -Dspring.aot.enabled=true,
+ *                           native: the GraalVM executable (both need a -Pnative build)
+ * jar=target/webflux-course-0.0.1-SNAPSHOT.jar native=target/webflux-course
+ * runs=5 port=18080 timeout=60s
+ * profiles=in-memory        must match -Dnative.profiles of the build for aot and native
+ * app-args=--users.password.strength=4,...   extra application arguments, comma separated
+ * </pre>
+ *
+ * Missing artifacts are reported and skipped, so the default modes work after
+ * a plain {@code package} too.
+ */
+public final class StartupProbe {
+
+    private static final Pattern RESIDENT = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+
+    private final Map<String, String> options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+
+    private StartupProbe(final Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = new HashMap<>();
+        for(String arg : args){
+            final String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            final int separator = option.indexOf('=');
+            if(separator < 1)
+                throw new IllegalArgumentException("Expected name=value but got: " + arg);
+            options.put(option.substring(0, separator), option.substring(separator + 1));
+        }
+        new StartupProbe(options).run();
+    }
+
+    private void run() throws Exception {
+        final int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        final Map<String, List<Sample>> results = new LinkedHashMap<>();
+        for(String mode : options.getOrDefault("modes", "jvm,aot,native").split(",")){
+            final List<String> command = command(mode.trim());
+            if(command.isEmpty())
+                continue;
+            final List<Sample> samples = new ArrayList<>(runs);
+            for(int run = 0; run < runs; run++)
+                samples.add(sample(command));
+            results.put(mode.trim(), samples);
+        }
+
+        System.out.printf("%n%-8s %-26s %-26s %-26s %-24s%n", "mode", "ready ms", "first create ms",
+                "first get ms", "rss MB");
+        results.forEach((mode, samples) -> System.out.printf("%-8s %-26s %-26s %-26s %-24s%n", mode,
+                summary(samples, Sample::readyMillis), summary(samples, Sample::createMillis),
+                summary(samples, Sample::getMillis), summary(samples, Sample::residentMegabytes)));
+    }
+
+    private List<String> command(final String mode){
+        final String jar = options.getOrDefault("jar", "target/webflux-course-0.0.1-SNAPSHOT.jar");
+        final String executable = options.getOrDefault("native", "target/webflux-course");
+        final List<String> command = new ArrayList<>();
+        switch (mode) {
+            case "jvm" -> command.addAll(List.of(javaExecutable(), "-jar", jar));
+            case "aot" -> command.addAll(List.of(javaExecutable(), "-Dspring.aot.enabled=true", "-jar", jar));
+            case "native" -> command.add(executable);
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        final String artifact = "native".equals(mode) ? executable : jar;
+        if(!Files.exists(Path.of(artifact))){
+            System.out.printf("Skipping %s, %s does not exist%n", mode, artifact);
+            return List.of();
+        }
+
+        command.add("--server.port=" + port());
+        command.add("--spring.profiles.active=" + options.getOrDefault("profiles", "in-memory"));
+        final String appArgs = options.getOrDefault("app-args", "");
+        if(!appArgs.isBlank())
+            command.addAll(Arrays.asList(appArgs.split(",")));
+        return command;
+    }
+
+    private Sample sample(final List<String> command) throws Exception {
+        final long timeout = Duration.parse("PT" + options.getOrDefault("timeout", "60s").toUpperCase()).toNanos();
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (!answers()) {
+                if(!process.isAlive())
+                    throw new IllegalStateException("Application exited with " + process.exitValue() + ": " + command);
+                if(System.nanoTime() - start > timeout)
+                    throw new IllegalStateException("Application did not answer in time: " + command);
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            final long ready = System.nanoTime();
+
+            final HttpResponse<String> created = client.send(HttpRequest.newBuilder(uri("/users"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"name\":\"Startup probe\",\"email\":\"probe" + start + "@teste.com.br\",\"password\":\"123456\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            final long createdAt = System.nanoTime();
+            final String location = created.headers().firstValue("Location")
+                    .orElseThrow(() -> new IllegalStateException("Create answered " + created.statusCode() + ": " + created.body()));
+
+            final HttpResponse<String> found = client.send(HttpRequest.newBuilder(uri(location)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            final long foundAt = System.nanoTime();
+            if(found.statusCode() != 200)
+                throw new IllegalStateException("Get answered " + found.statusCode() + ": " + found.body());
+
+            return new Sample(millis(ready - start), millis(createdAt - ready), millis(foundAt - createdAt),
+                    residentMegabytes(process));
+        } finally {
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            if(!process.waitFor(10, TimeUnit.SECONDS))
+                process.destroyForcibly().waitFor();
+        }
+    }
+
+    /** Any answer counts: the server is listening and dispatching requests. */
+    private boolean answers() throws InterruptedException {
+        try {
+            client.send(HttpRequest.newBuilder(uri("/users?limit=1")).GET().build(), HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (IOException ex){
+            return false;
+        }
+    }
+
+    private URI uri(final String path){
+        return URI.create("http://localhost:" + port() + path);
+    }
+
+    private int port(){
+        return Integer.parseInt(options.getOrDefault("port", "18080"));
+    }
+
+    private static String javaExecutable(){
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    /** Linux only, {@code NaN} elsewhere. */
+    private static double residentMegabytes(final Process process){
+        try {
+            final Matcher resident = RESIDENT.matcher(Files.readString(Path.of("/proc", Long.toString(process.pid()), "status")));
+            return resident.find() ? Long.parseLong(resident.group(1)) / 1024.0 : Double.NaN;
+        } catch (IOException ex){
+            return Double.NaN;
+        }
+    }
+
+    private static double millis(final long nanos){
+        return nanos / 1_000_000.0;
+    }
+
+    private static String summary(final List<Sample> samples, final ToDoubleFunction<Sample> metric){
+        final double[] values = samples.stream().mapToDouble(metric).sorted().toArray();
+        return String.format("%.1f / %.1f / %.1f", values[0], values[values.length / 2], values[values.length - 1]);
+    }
+
+    private record Sample(double readyMillis, double createMillis, double getMillis, double residentMegabytes) {
+    }
+}
@@ -0,0 +1,249 @@
+package br.com.jande.webfluxcourse.loadtest;
+
+import br.com.jande.webfluxcourse.WebfluxCourseApplication;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the /users API.
+ *
+ * <p>Arrivals are scheduled at a fixed rate regardless of how fast the server
+ * answers, and latency is measured from the intended start time, so a stalled
+ * server shows up in the percentiles instead of silently lowering the offered
+ * load (coordinated omission).</p>
+ *
+ * <p>Without {@code target} it boots {@link WebfluxCourseApplication} in this
+ * JVM with the {@code in-memory} profile. The client runs on its own event loop
+ * group so it never competes with the server's Netty workers.</p>
+ */
+public final class UserLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final LoadTestOptions options;
+    private final WebClient client;
+    private final LoopResources loops;
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Operation[] wheel;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong emailSequence = new AtomicLong();
+    private final String padding;
+    private List<String> ids = List.of();
+
+    private UserLoadTest(final LoadTestOptions options, final String baseUrl) {
+        this.options = options;
+        this.loops = LoopResources.create("load-test-client", options.clientThreads(), true);
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.builder("load-test")
+                                .maxConnections(options.connections())
+                                .pendingAcquireMaxCount(-1)
+                                .build())
+                        .runOn(loops)))
+                .build();
+        this.wheel = buildWheel(options.mix());
+        this.padding = "x".repeat(options.payloadSize());
+        for(Operation operation : Operation.values()){
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(final String[] args) {
+        final LoadTestOptions options = LoadTestOptions.parse(args);
+
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.target();
+        if(Objects.isNull(baseUrl)){
+            context = new SpringApplicationBuilder(WebfluxCourseApplication.class)
+                    .profiles("in-memory")
+                    // every request comes from one address, the per-client budgets would only measure themselves
+                    .properties("server.port=0", "users.admission.reads.burst=1000000",
+                            "users.admission.reads.per-second=1000000", "users.admission.writes.burst=1000000",
+                            "users.admission.writes.per-second=1000000")
+                    .run();
+            baseUrl = "http://localhost:" + ((ReactiveWebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        final UserLoadTest loadTest = new UserLoadTest(options, baseUrl);
+        try {
+            loadTest.seed();
+            loadTest.run();
+        } finally {
+            loadTest.loops.dispose();
+            if(Objects.nonNull(context))
+                context.close();
+        }
+    }
+
+    private void seed(){
+        Flux.range(0, options.seedUsers())
+                .flatMap(i -> create(), 64)
+                .blockLast();
+
+        final List<String> seeded = new ArrayList<>(options.seedUsers());
+        String after = null;
+        do {
+            final UserPageResponse page = page(after).block();
+            page.content().stream().map(UserResponse::id).forEach(seeded::add);
+            after = page.next();
+        } while (Objects.nonNull(after));
+        this.ids = List.copyOf(seeded);
+        System.out.printf("Seeded %d users%n", ids.size());
+    }
+
+    private void run(){
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        final long start = System.nanoTime();
+        final long measureFrom = start + options.warmup().toNanos();
+        final long end = measureFrom + options.duration().toNanos();
+
+        long intended = start;
+        long issued = 0;
+        while (intended < end) {
+            intended += options.poisson()
+                    ? (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * intervalNanos)
+                    : intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < intended)
+                LockSupport.parkNanos(intended - now);
+
+            final boolean measured = intended >= measureFrom;
+            if(inFlight.get() >= options.maxInFlight()){
+                if(measured)
+                    dropped.increment();
+                continue;
+            }
+            if(measured)
+                issued++;
+            fire(wheel[ThreadLocalRandom.current().nextInt(wheel.length)], intended, measured);
+        }
+
+        // throughput is over the arrival window; the tail drained afterwards only adds latency samples
+        final long arrivalsDone = System.nanoTime();
+        while (inFlight.get() > 0)
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+
+        report(issued, arrivalsDone - measureFrom);
+    }
+
+    private void fire(final Operation operation, final long scheduledAt, final boolean measured){
+        inFlight.incrementAndGet();
+        execute(operation).subscribe(
+                ignored -> { },
+                error -> complete(operation, scheduledAt, measured, false),
+                () -> complete(operation, scheduledAt, measured, true));
+    }
+
+    private void complete(final Operation operation, final long scheduledAt, final boolean measured,
+                          final boolean success){
+        inFlight.decrementAndGet();
+        if(!measured)
+            return;
+        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledAt);
+        recorders.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        if(!success)
+            errors.get(operation).increment();
+    }
+
+    private Mono<?> execute(final Operation operation){
+        return switch (operation) {
+            case GET -> client.get().uri("/users/{id}", randomId())
+                    .retrieve().toBodilessEntity();
+            case LIST -> page(null);
+            case CREATE -> create();
+            case UPDATE -> client.patch().uri("/users/{id}", randomId())
+                    .bodyValue(new UserRequest(padding, null, null))
+                    .retrieve().toBodilessEntity();
+        };
+    }
+
+    private Mono<?> create(){
+        return client.post().uri("/users")
+                .bodyValue(new UserRequest(padding, "load" + emailSequence.incrementAndGet() + "@teste.com.br", padding))
+                .retrieve().toBodilessEntity();
+    }
+
+    private Mono<UserPageResponse> page(final String after){
+        return client.get()
+                .uri(builder -> builder.path("/users")
+                        .queryParam("limit", 100)
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .build())
+                .retrieve()
+                .bodyToMono(UserPageResponse.class);
+    }
+
+    private String randomId(){
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private void report(final long issued, final long elapsedNanos){
+        final double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nOffered %.0f req/s (%s arrivals), issued %d, dropped %d, measured %.1fs%n",
+                options.rate(), options.poisson() ? "poisson" : "uniform", issued, dropped.sum(), seconds);
+        System.out.printf("%-20s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for(Operation operation : Operation.values()){
+            final Histogram histogram = recorders.get(operation).getIntervalHistogram();
+            if(histogram.getTotalCount() == 0)
+                continue;
+            total.add(histogram);
+            print(operation.endpoint(), histogram, errors.get(operation).sum(), seconds);
+        }
+        print("total", total, errors.values().stream().mapToLong(LongAdder::sum).sum(), seconds);
+    }
+
+    private static void print(final String name, final Histogram histogram, final long errors, final double seconds){
+        System.out.printf("%-20s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static Operation[] buildWheel(final Map<Operation, Integer> mix){
+        final List<Operation> wheel = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for(int i = 0; i < weight; i++)
+                wheel.add(operation);
+        });
+        if(wheel.isEmpty())
+            throw new IllegalArgumentException("The mix must give at least one operation a positive weight");
+        return wheel.toArray(Operation[]::new);
+    }
+}
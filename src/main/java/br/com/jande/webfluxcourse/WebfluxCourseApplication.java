@@ -1,13 +1,26 @@
 package br.com.jande.webfluxcourse;
 
+import br.com.jande.webfluxcourse.config.UserRuntimeHints;
+import br.com.jande.webfluxcourse.service.dump.UserDumpCommand;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@ImportRuntimeHints(UserRuntimeHints.class)
 public class WebfluxCourseApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(WebfluxCourseApplication.class, args);
+		final SpringApplication application = new SpringApplication(WebfluxCourseApplication.class);
+		if(UserDumpCommand.isDump(args)){
+			// a dump runs without a server and exits once it is done
+			application.setWebApplicationType(WebApplicationType.NONE);
+			System.exit(SpringApplication.exit(application.run(args)));
+		}
+		application.run(args);
 	}
 
 }
@@ -0,0 +1,108 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-flight cap that finds its own value with a latency gradient: while the
+ * latency of a window stays close to the long-term average the limit grows by
+ * about sqrt(limit), and once requests start queueing (latency climbs past
+ * {@code tolerance} times the average) it shrinks in proportion.
+ * <p>
+ * The request path only touches an {@link AtomicInteger} and striped adders;
+ * the limit itself is recomputed once per window by whichever release closes it.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    /** Windows the long-term latency average spans. */
+    private static final int LONG_WINDOWS = 60;
+
+    private final AdmissionProperties.Concurrency properties;
+    private final LongSupplier nanoClock;
+    private final long windowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator peakInFlight = new LongAccumulator(Math::max, 0);
+    private final LongAdder latencySum = new LongAdder();
+    private final LongAdder latencyCount = new LongAdder();
+    private final AtomicLong windowStart;
+
+    private volatile int limit;
+    /** Only written by the thread that closed the window, under {@code this}. */
+    private double estimatedLimit;
+    private double longLatency;
+
+    AdaptiveConcurrencyLimiter(final AdmissionProperties.Concurrency properties, final LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+        this.estimatedLimit = properties.getInitialLimit();
+        this.limit = properties.getInitialLimit();
+    }
+
+    boolean tryAcquire(){
+        int current;
+        do {
+            current = inFlight.get();
+            if(current >= limit)
+                return false;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        peakInFlight.accumulate(current + 1);
+        return true;
+    }
+
+    /** Releases a permit; {@code sample} is false for failed or cancelled requests, whose latency says nothing. */
+    void release(final long latencyNanos, final boolean sample){
+        inFlight.decrementAndGet();
+        if(sample){
+            latencySum.add(latencyNanos);
+            latencyCount.increment();
+        }
+
+        final long now = nanoClock.getAsLong();
+        final long start = windowStart.get();
+        if(now - start >= windowNanos && windowStart.compareAndSet(start, now))
+            closeWindow();
+    }
+
+    int limit(){
+        return limit;
+    }
+
+    int inFlight(){
+        return inFlight.get();
+    }
+
+    private synchronized void closeWindow(){
+        final long count = latencyCount.sumThenReset();
+        final long sum = latencySum.sumThenReset();
+        final long peak = peakInFlight.getThenReset();
+        if(count == 0)
+            return;
+
+        final double shortLatency = (double) sum / count;
+        if(longLatency == 0)
+            longLatency = shortLatency;
+        else
+            longLatency += (shortLatency - longLatency) / LONG_WINDOWS;
+        // after a spike the average would lag for a long time, let it catch up with a recovered latency
+        if(longLatency / shortLatency > 2)
+            longLatency *= 0.95;
+
+        // an instance that never came close to its limit tells nothing about how far it can go
+        if(peak < estimatedLimit / 2)
+            return;
+
+        final double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * longLatency / shortLatency));
+        final double proposed = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        final double smoothed = estimatedLimit * (1 - properties.getSmoothing()) + proposed * properties.getSmoothing();
+        estimatedLimit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), smoothed));
+        limit = (int) estimatedLimit;
+    }
+}
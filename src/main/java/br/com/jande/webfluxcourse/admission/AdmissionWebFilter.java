@@ -0,0 +1,176 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+import br.com.jande.webfluxcourse.controller.exceptions.StandardError;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static br.com.jande.webfluxcourse.admission.ClientRateLimiter.Kind.READ;
+import static br.com.jande.webfluxcourse.admission.ClientRateLimiter.Kind.WRITE;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+/**
+ * Admission control in front of every handler. A request first spends a token
+ * from its client's read or write budget (429 when it is empty), then takes a
+ * slot under the adaptive in-flight limit (503 when it is full). Both answers
+ * carry {@code Retry-After}, and are produced before any handler, codec or
+ * Mongo connection is involved.
+ */
+@Component
+public class AdmissionWebFilter implements WebFilter, Ordered {
+
+    /** Right after the observation filter, so rejections still show up in http.server.requests. */
+    private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 10;
+    private static final Set<HttpMethod> READ_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+    private static final long CONCURRENCY_RETRY_AFTER_SECONDS = 1;
+
+    private final AdmissionProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ClientRateLimiter rateLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final List<PathPattern> excludedPaths;
+    private final List<PathPattern> longLivedPaths;
+    private final Counter readRateRejections;
+    private final Counter writeRateRejections;
+    private final Counter concurrencyRejections;
+
+    @Autowired
+    public AdmissionWebFilter(final AdmissionProperties properties, final ObjectMapper objectMapper,
+                              final MeterRegistry registry) {
+        this(properties, objectMapper, registry, new ClientRateLimiter(properties, System::nanoTime),
+                new AdaptiveConcurrencyLimiter(properties.getConcurrency(), System::nanoTime));
+    }
+
+    AdmissionWebFilter(final AdmissionProperties properties, final ObjectMapper objectMapper, final MeterRegistry registry,
+                       final ClientRateLimiter rateLimiter, final AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.excludedPaths = patterns(properties.getExcludedPaths());
+        this.longLivedPaths = patterns(properties.getLongLivedPaths());
+        this.readRateRejections = rejections(registry, "rate-read");
+        this.writeRateRejections = rejections(registry, "rate-write");
+        this.concurrencyRejections = rejections(registry, "concurrency");
+        Gauge.builder("users.admission.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::limit)
+                .description("Current adaptive in-flight request limit")
+                .register(registry);
+        Gauge.builder("users.admission.in-flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::inFlight)
+                .description("Requests holding an in-flight slot")
+                .register(registry);
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        final ServerHttpRequest request = exchange.getRequest();
+        final PathContainer path = request.getPath().pathWithinApplication();
+        if(!properties.isEnabled() || matches(excludedPaths, path))
+            return chain.filter(exchange);
+
+        final boolean read = READ_METHODS.contains(request.getMethod());
+        final long wait = rateLimiter.tryAcquire(clientKey(request), read ? READ : WRITE);
+        if(wait > 0){
+            (read ? readRateRejections : writeRateRejections).increment();
+            return reject(exchange, TOO_MANY_REQUESTS, seconds(wait), "Rate limit exceeded, slow down");
+        }
+
+        if(matches(longLivedPaths, path))
+            return chain.filter(exchange);
+        if(!concurrencyLimiter.tryAcquire()){
+            concurrencyRejections.increment();
+            return reject(exchange, SERVICE_UNAVAILABLE, CONCURRENCY_RETRY_AFTER_SECONDS,
+                    "Too many requests in flight, try again later");
+        }
+
+        final long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> concurrencyLimiter.release(System.nanoTime() - start, signal == SignalType.ON_COMPLETE));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private String clientKey(final ServerHttpRequest request){
+        final String apiKey = request.getHeaders().getFirst(properties.getApiKeyHeader());
+        if(Objects.nonNull(apiKey) && properties.getApiKeys().contains(apiKey))
+            return "key:" + apiKey;
+        final InetSocketAddress remote = request.getRemoteAddress();
+        if(Objects.isNull(remote))
+            return "ip:unknown";
+        return "ip:" + (Objects.isNull(remote.getAddress()) ? remote.getHostString() : remote.getAddress().getHostAddress());
+    }
+
+    private Mono<Void> reject(final ServerWebExchange exchange, final HttpStatus status, final long retryAfterSeconds,
+                              final String message){
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        final StandardError error = StandardError.builder()
+                .timestamp(LocalDateTime.now())
+                .path(exchange.getRequest().getPath().toString())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .build();
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(error))));
+        } catch (JsonProcessingException ex){
+            return response.setComplete();
+        }
+    }
+
+    private static long seconds(final long nanos){
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static boolean matches(final List<PathPattern> patterns, final PathContainer path){
+        for(PathPattern pattern : patterns)
+            if(pattern.matches(path))
+                return true;
+        return false;
+    }
+
+    private static List<PathPattern> patterns(final List<String> paths){
+        return paths.stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+    }
+
+    private static Counter rejections(final MeterRegistry registry, final String reason){
+        return Counter.builder("users.admission.rejected")
+                .description("Requests turned away before reaching a handler")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.function.LongSupplier;
+
+/**
+ * One read and one write {@link TokenBucket} per client, kept in bounded
+ * Caffeine maps so lookups are lock-free and forgotten clients free their
+ * memory.
+ */
+class ClientRateLimiter {
+
+    enum Kind { READ, WRITE }
+
+    private final AdmissionProperties properties;
+    private final LongSupplier nanoClock;
+    private final Cache<String, TokenBucket> reads;
+    private final Cache<String, TokenBucket> writes;
+
+    ClientRateLimiter(final AdmissionProperties properties, final LongSupplier nanoClock) {
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        this.reads = buckets(properties);
+        this.writes = buckets(properties);
+    }
+
+    /** 0 when the request is admitted, otherwise the nanos the client should wait. */
+    long tryAcquire(final String client, final Kind kind){
+        final AdmissionProperties.Budget budget = kind == Kind.READ ? properties.getReads() : properties.getWrites();
+        final Cache<String, TokenBucket> buckets = kind == Kind.READ ? reads : writes;
+        return buckets.get(client, key -> new TokenBucket(budget)).tryAcquire(nanoClock.getAsLong());
+    }
+
+    private static Cache<String, TokenBucket> buckets(final AdmissionProperties properties){
+        return Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getClientIdleTimeout())
+                .build();
+    }
+}
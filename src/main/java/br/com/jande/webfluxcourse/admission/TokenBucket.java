@@ -0,0 +1,36 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket in its generic cell rate algorithm form: the whole state is the
+ * time at which the bucket would be full again, moved forward with a CAS. No
+ * lock and no refill task, so thousands of buckets cost one long each.
+ */
+final class TokenBucket {
+
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(final AdmissionProperties.Budget budget) {
+        this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / budget.getPerSecond());
+        this.burstTolerance = emissionInterval * budget.getBurst();
+    }
+
+    /** Takes a token at {@code now}; returns 0 when one was taken, otherwise the nanos until the next one. */
+    long tryAcquire(final long now){
+        while (true) {
+            final long current = theoreticalArrival.get();
+            final long next = Math.max(current, now) + emissionInterval;
+            final long wait = next - now - burstTolerance;
+            if(wait > 0)
+                return wait;
+            if(theoreticalArrival.compareAndSet(current, next))
+                return 0;
+        }
+    }
+}
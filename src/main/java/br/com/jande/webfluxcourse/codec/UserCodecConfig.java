@@ -0,0 +1,22 @@
+package br.com.jande.webfluxcourse.codec;
+
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers {@link UserResponseEncoder} ahead of the Jackson encoder, which
+ * still writes every other type.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "users.web.user-encoder", havingValue = "true", matchIfMissing = true)
+public class UserCodecConfig {
+
+    @Bean
+    CodecCustomizer userResponseCodecCustomizer(final UserWebProperties properties) {
+        return configurer -> configurer.customCodecs()
+                .register(new UserResponseEncoder(properties.getEncoderBatchSize()));
+    }
+}
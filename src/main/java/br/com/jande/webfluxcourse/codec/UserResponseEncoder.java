@@ -0,0 +1,292 @@
+package br.com.jande.webfluxcourse.codec;
+
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Writes {@link UserResponse} and {@link UserPageResponse} as JSON straight
+ * into the response's (pooled) data buffers, producing the same bytes as the
+ * default Jackson codec: a single value, a JSON array for a {@code Flux}, or
+ * one value per line for NDJSON. Stream elements are written
+ * {@code batchSize} to a buffer, so a long stream is flushed in few large
+ * writes and encoding an element allocates nothing on the heap.
+ */
+public class UserResponseEncoder implements HttpMessageEncoder<Object> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON);
+
+    /** Generous for the usual user, buffers grow when a name or e-mail is longer. */
+    private static final int ESTIMATED_ELEMENT_SIZE = 128;
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] EMAIL = ascii(",\"email\":");
+    private static final byte[] CREATED_AT = ascii(",\"createdAt\":");
+    private static final byte[] CONTENT = ascii("{\"content\":");
+    private static final byte[] NEXT = ascii(",\"next\":");
+
+    private final int batchSize;
+
+    public UserResponseEncoder(final int batchSize) {
+        if(batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public boolean canEncode(final ResolvableType elementType, final MimeType mimeType) {
+        final Class<?> type = elementType.toClass();
+        return (type == UserResponse.class || type == UserPageResponse.class)
+                && (Objects.isNull(mimeType) || MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType))
+                    && (Objects.isNull(mimeType.getCharset()) || StandardCharsets.UTF_8.equals(mimeType.getCharset())));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return STREAMING_MEDIA_TYPES;
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(final Publisher<?> inputStream, final DataBufferFactory bufferFactory,
+                                   final ResolvableType elementType, final MimeType mimeType, final Map<String, Object> hints) {
+        if(inputStream instanceof Mono<?> mono)
+            return mono.map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints)).flux();
+
+        final boolean streaming = Objects.nonNull(mimeType) && MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType);
+        final Flux<DataBuffer> elements = Flux.from(inputStream)
+                .buffer(batchSize)
+                .index()
+                .map(batch -> write(bufferFactory, batch.getT2().size() * ESTIMATED_ELEMENT_SIZE, buffer -> {
+                    final List<?> values = batch.getT2();
+                    for(int i = 0; i < values.size(); i++){
+                        if(!streaming)
+                            buffer.write(batch.getT1() == 0 && i == 0 ? (byte) '[' : (byte) ',');
+                        writeValue(buffer, values.get(i));
+                        if(streaming)
+                            buffer.write((byte) '\n');
+                    }
+                }));
+        if(streaming)
+            return elements;
+        return elements
+                .switchIfEmpty(Mono.fromCallable(() -> bufferFactory.allocateBuffer(1).write((byte) '[')))
+                .concatWith(Mono.fromCallable(() -> bufferFactory.allocateBuffer(1).write((byte) ']')));
+    }
+
+    @Override
+    public DataBuffer encodeValue(final Object value, final DataBufferFactory bufferFactory, final ResolvableType valueType,
+                                  final MimeType mimeType, final Map<String, Object> hints) {
+        final int estimatedSize = value instanceof UserPageResponse page && Objects.nonNull(page.content())
+                ? (page.content().size() + 1) * ESTIMATED_ELEMENT_SIZE
+                : ESTIMATED_ELEMENT_SIZE;
+        return write(bufferFactory, estimatedSize, buffer -> writeValue(buffer, value));
+    }
+
+    private static DataBuffer write(final DataBufferFactory bufferFactory, final int estimatedSize,
+                                    final Consumer<DataBuffer> writer){
+        final DataBuffer buffer = bufferFactory.allocateBuffer(estimatedSize);
+        try {
+            writer.accept(buffer);
+            return buffer;
+        } catch (RuntimeException ex){
+            DataBufferUtils.release(buffer);
+            throw new EncodingException("Could not write JSON: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static void writeValue(final DataBuffer buffer, final Object value){
+        if(value instanceof UserResponse user)
+            writeUser(buffer, user);
+        else if(value instanceof UserPageResponse page)
+            writePage(buffer, page);
+        else
+            throw new IllegalArgumentException("Unsupported value: " + value.getClass().getName());
+    }
+
+    private static void writePage(final DataBuffer buffer, final UserPageResponse page){
+        buffer.write(CONTENT);
+        final List<UserResponse> content = page.content();
+        if(Objects.isNull(content)){
+            buffer.write(NULL);
+        } else {
+            buffer.write((byte) '[');
+            for(int i = 0; i < content.size(); i++){
+                if(i > 0)
+                    buffer.write((byte) ',');
+                writeUser(buffer, content.get(i));
+            }
+            buffer.write((byte) ']');
+        }
+        buffer.write(NEXT);
+        writeString(buffer, page.next());
+        buffer.write((byte) '}');
+    }
+
+    private static void writeUser(final DataBuffer buffer, final UserResponse user){
+        if(Objects.isNull(user)){
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write(ID);
+        writeString(buffer, user.id());
+        buffer.write(NAME);
+        writeString(buffer, user.name());
+        buffer.write(EMAIL);
+        writeString(buffer, user.email());
+        buffer.write(CREATED_AT);
+        writeInstant(buffer, user.createdAt());
+        buffer.write((byte) '}');
+    }
+
+    private static byte[] ascii(final String value){
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** A quoted string escaped the way Jackson does by default, encoded as UTF-8. */
+    private static void writeString(final DataBuffer buffer, final String value){
+        if(Objects.isNull(value)){
+            buffer.write(NULL);
+            return;
+        }
+        buffer.write((byte) '"');
+        for(int i = 0; i < value.length(); i++){
+            final char c = value.charAt(i);
+            if(c == '"' || c == '\\'){
+                buffer.write((byte) '\\');
+                buffer.write((byte) c);
+            } else if(c < 0x20){
+                writeControl(buffer, c);
+            } else if(c < 0x80){
+                buffer.write((byte) c);
+            } else if(c < 0x800){
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if(Character.isSurrogate(c)){
+                // Jackson escapes both halves of a pair instead of writing a 4-byte sequence
+                writeEscaped(buffer, c);
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.write((byte) '"');
+    }
+
+    private static void writeControl(final DataBuffer buffer, final char c){
+        buffer.write((byte) '\\');
+        switch (c) {
+            case '\b' -> buffer.write((byte) 'b');
+            case '\t' -> buffer.write((byte) 't');
+            case '\n' -> buffer.write((byte) 'n');
+            case '\f' -> buffer.write((byte) 'f');
+            case '\r' -> buffer.write((byte) 'r');
+            default -> {
+                buffer.write((byte) 'u');
+                writeHex(buffer, c);
+            }
+        }
+    }
+
+    private static void writeEscaped(final DataBuffer buffer, final char c){
+        buffer.write((byte) '\\');
+        buffer.write((byte) 'u');
+        writeHex(buffer, c);
+    }
+
+    private static void writeHex(final DataBuffer buffer, final char c){
+        buffer.write(HEX[c >> 12]);
+        buffer.write(HEX[(c >> 8) & 0xF]);
+        buffer.write(HEX[(c >> 4) & 0xF]);
+        buffer.write(HEX[c & 0xF]);
+    }
+
+    /**
+     * ISO-8601 in UTC as {@code Instant.toString()} (and Jackson's
+     * {@code InstantSerializer}) prints it, without going through a String.
+     */
+    private static void writeInstant(final DataBuffer buffer, final Instant instant){
+        if(Objects.isNull(instant)){
+            buffer.write(NULL);
+            return;
+        }
+        final long epochSecond = instant.getEpochSecond();
+        final long epochDay = Math.floorDiv(epochSecond, 86_400);
+        final int secondOfDay = (int) Math.floorMod(epochSecond, 86_400);
+
+        // days to civil date, H. Hinnant's algorithm
+        final long z = epochDay + 719_468;
+        final long era = Math.floorDiv(z, 146_097);
+        final int dayOfEra = (int) (z - era * 146_097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int mp = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if(year < 0 || year > 9999){
+            // signed and five-digit years are rare enough to take the slow path
+            buffer.write(ascii('"' + instant.toString() + '"'));
+            return;
+        }
+
+        buffer.write((byte) '"');
+        writeDigits(buffer, (int) year, 4);
+        buffer.write((byte) '-');
+        writeDigits(buffer, month, 2);
+        buffer.write((byte) '-');
+        writeDigits(buffer, day, 2);
+        buffer.write((byte) 'T');
+        writeDigits(buffer, secondOfDay / 3600, 2);
+        buffer.write((byte) ':');
+        writeDigits(buffer, secondOfDay / 60 % 60, 2);
+        buffer.write((byte) ':');
+        writeDigits(buffer, secondOfDay % 60, 2);
+        final int nano = instant.getNano();
+        if(nano > 0){
+            buffer.write((byte) '.');
+            if(nano % 1_000_000 == 0)
+                writeDigits(buffer, nano / 1_000_000, 3);
+            else if(nano % 1000 == 0)
+                writeDigits(buffer, nano / 1000, 6);
+            else
+                writeDigits(buffer, nano, 9);
+        }
+        buffer.write((byte) 'Z');
+        buffer.write((byte) '"');
+    }
+
+    private static void writeDigits(final DataBuffer buffer, final int value, final int width){
+        int divisor = 1;
+        for(int i = 1; i < width; i++)
+            divisor *= 10;
+        for(; divisor > 0; divisor /= 10)
+            buffer.write((byte) ('0' + value / divisor % 10));
+    }
+}
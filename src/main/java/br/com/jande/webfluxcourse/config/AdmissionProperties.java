@@ -0,0 +1,78 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "users.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Clients sending one of {@link #apiKeys} in this header are limited by
+     * it, everyone else by remote address.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * Keys that get a budget of their own. Any other value of the header is
+     * ignored, so minting new keys cannot buy a fresh budget.
+     */
+    private Set<String> apiKeys = Set.of();
+
+    /** Never limited at all. */
+    private List<String> excludedPaths = List.of("/actuator/**");
+
+    /** Requests that stay open for minutes; rate limited, but kept out of the in-flight count and its latency samples. */
+    private List<String> longLivedPaths = List.of("/users/changes", "/admin/users/_export", "/admin/users/_import");
+
+    /** Budget per client for safe methods (GET, HEAD, OPTIONS). */
+    private Budget reads = new Budget(200, 100);
+
+    /** Budget per client for everything else. */
+    private Budget writes = new Budget(50, 20);
+
+    /** Clients tracked at once; the least recently seen are forgotten first. */
+    private long maxClients = 100_000;
+
+    /** A client idle this long starts over with a full budget. */
+    private Duration clientIdleTimeout = Duration.ofMinutes(10);
+
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+
+        /** Requests a client may send back to back. */
+        private int burst;
+
+        /** Sustained requests per second once the burst is spent. */
+        private double perSecond;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        private int initialLimit = 64;
+        private int minLimit = 8;
+        private int maxLimit = 1_024;
+
+        /** How much slower than the long-term latency a window may get before the limit shrinks. */
+        private double tolerance = 1.5;
+
+        /** Weight of each new estimate; lower is steadier, higher reacts faster. */
+        private double smoothing = 0.2;
+
+        /** Latency samples are averaged over windows of this length before the limit moves. */
+        private Duration window = Duration.ofMillis(100);
+    }
+}
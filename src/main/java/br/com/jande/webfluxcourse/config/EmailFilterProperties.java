@@ -0,0 +1,27 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "users.email-filter")
+public class EmailFilterProperties {
+
+    /** Answer e-mail checks from an in-memory Bloom filter before asking the database. */
+    private boolean enabled = true;
+
+    /** E-mails the filter is sized for; memory grows linearly with it. Rebuilds size for twice the e-mails seen. */
+    private long expectedEmails = 1_000_000;
+
+    /** Share of checks for unregistered e-mails that still need an index lookup, at the expected size. */
+    private double falsePositiveRate = 0.01;
+
+    /** Deleted or replaced e-mails, as a share of the e-mails in the filter, that trigger a rebuild. */
+    private double rebuildStaleRatio = 0.1;
+
+    /** Cursor batch size of the scan that builds the filter. */
+    private int scanBatchSize = 10_000;
+
+    /** Add e-mails written by other instances, seen through the change feed. */
+    private boolean followChanges = true;
+}
@@ -0,0 +1,126 @@
+package br.com.jande.webfluxcourse.config;
+
+import br.com.jande.webfluxcourse.metrics.MongoPoolMetrics;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Pool, timeouts and compression of the reactive Mongo client, from
+ * {@link MongoDriverProperties}. Settings that cannot work together fail the
+ * startup instead of showing up as pool starvation under load.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MongoClientConfig {
+
+    /** Below this the driver rejects a max staleness. */
+    private static final Duration MIN_MAX_STALENESS = Duration.ofSeconds(90);
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer mongoDriverCustomizer(final MongoDriverProperties properties,
+                                                               final MeterRegistry registry) {
+        validate(properties);
+        final MongoDriverProperties.Pool pool = properties.getPool();
+        return settings -> settings
+                .applyToConnectionPoolSettings(builder -> builder
+                        .minSize(pool.getMinSize())
+                        .maxSize(pool.getMaxSize())
+                        .maxWaitTime(pool.getMaxWaitTime().toMillis(), MILLISECONDS)
+                        .maxConnectionIdleTime(pool.getMaxConnectionIdleTime().toMillis(), MILLISECONDS)
+                        .maxConnectionLifeTime(pool.getMaxConnectionLifeTime().toMillis(), MILLISECONDS)
+                        .maxConnecting(pool.getMaxConnecting())
+                        .addConnectionPoolListener(new MongoPoolMetrics(registry)))
+                .applyToSocketSettings(builder -> builder
+                        .connectTimeout((int) properties.getConnectTimeout().toMillis(), MILLISECONDS)
+                        .readTimeout((int) properties.getSocketTimeout().toMillis(), MILLISECONDS))
+                .applyToClusterSettings(builder -> builder
+                        .serverSelectionTimeout(properties.getServerSelectionTimeout().toMillis(), MILLISECONDS))
+                .compressorList(properties.getCompressors().stream().map(MongoClientConfig::compressor).toList());
+    }
+
+    /** What listings, e-mail scans and dumps read from; lookups by id always read the primary. */
+    public static ReadPreference listingReadPreference(final MongoDriverProperties properties){
+        final Duration maxStaleness = properties.getListingMaxStaleness();
+        return Objects.isNull(maxStaleness)
+                ? ReadPreference.valueOf(properties.getListingReadPreference())
+                : ReadPreference.valueOf(properties.getListingReadPreference(), List.of(),
+                        maxStaleness.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    static void validate(final MongoDriverProperties properties){
+        final List<String> problems = new ArrayList<>();
+        final MongoDriverProperties.Pool pool = properties.getPool();
+        if(pool.getMaxSize() < 1)
+            problems.add("pool.max-size must be at least 1");
+        if(pool.getMinSize() < 0 || pool.getMinSize() > pool.getMaxSize())
+            problems.add("pool.min-size must be between 0 and pool.max-size");
+        if(pool.getMaxConnecting() < 1)
+            problems.add("pool.max-connecting must be at least 1");
+        if(!isPositive(pool.getMaxWaitTime()))
+            problems.add("pool.max-wait-time must be positive, or requests queue for connections forever");
+        if(isNegative(pool.getMaxConnectionIdleTime()) || isNegative(pool.getMaxConnectionLifeTime()))
+            problems.add("pool.max-connection-idle-time and pool.max-connection-life-time cannot be negative");
+        if(!isPositive(properties.getConnectTimeout()) || properties.getConnectTimeout().toMillis() > Integer.MAX_VALUE)
+            problems.add("connect-timeout must be positive");
+        if(isNegative(properties.getSocketTimeout()) || properties.getSocketTimeout().toMillis() > Integer.MAX_VALUE)
+            problems.add("socket-timeout cannot be negative");
+        if(!isPositive(properties.getServerSelectionTimeout()))
+            problems.add("server-selection-timeout must be positive");
+        else if(isPositive(pool.getMaxWaitTime()) && pool.getMaxWaitTime().compareTo(properties.getServerSelectionTimeout()) > 0)
+            problems.add("pool.max-wait-time cannot exceed server-selection-timeout");
+        for(String name : properties.getCompressors()){
+            final String problem = compressorProblem(name);
+            if(Objects.nonNull(problem))
+                problems.add(problem);
+        }
+        final Duration maxStaleness = properties.getListingMaxStaleness();
+        if(Objects.nonNull(maxStaleness) && maxStaleness.compareTo(MIN_MAX_STALENESS) < 0)
+            problems.add("listing-max-staleness must be at least " + MIN_MAX_STALENESS.toSeconds() + "s");
+        try {
+            listingReadPreference(properties);
+        } catch (IllegalArgumentException ex){
+            problems.add("listing-read-preference: " + ex.getMessage());
+        }
+        if(!problems.isEmpty())
+            throw new IllegalStateException("Invalid users.mongo settings: " + String.join("; ", problems));
+    }
+
+    private static String compressorProblem(final String name){
+        return switch (name) {
+            case "zlib" -> null;
+            case "zstd" -> ClassUtils.isPresent("com.github.luben.zstd.Zstd", null)
+                    ? null : "compressor zstd needs com.github.luben:zstd-jni on the classpath";
+            case "snappy" -> ClassUtils.isPresent("org.xerial.snappy.Snappy", null)
+                    ? null : "compressor snappy needs org.xerial.snappy:snappy-java on the classpath";
+            default -> "unknown compressor " + name + ", expected zstd, snappy or zlib";
+        };
+    }
+
+    private static MongoCompressor compressor(final String name){
+        return switch (name) {
+            case "zstd" -> MongoCompressor.createZstdCompressor();
+            case "snappy" -> MongoCompressor.createSnappyCompressor();
+            default -> MongoCompressor.createZlibCompressor();
+        };
+    }
+
+    private static boolean isPositive(final Duration duration){
+        return Objects.nonNull(duration) && !duration.isNegative() && !duration.isZero();
+    }
+
+    private static boolean isNegative(final Duration duration){
+        return Objects.isNull(duration) || duration.isNegative();
+    }
+}
@@ -0,0 +1,59 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reactive driver settings, applied on top of whatever the connection URI
+ * says. Checked when the application starts, see {@link MongoClientConfig}.
+ */
+@Data
+@ConfigurationProperties(prefix = "users.mongo")
+public class MongoDriverProperties {
+
+    private Pool pool = new Pool();
+
+    /** Time allowed to open a connection. */
+    private Duration connectTimeout = Duration.ofSeconds(5);
+
+    /** A read on an open connection that takes longer fails the operation; zero waits forever. */
+    private Duration socketTimeout = Duration.ofSeconds(10);
+
+    /** How long an operation waits for a suitable server before failing. */
+    private Duration serverSelectionTimeout = Duration.ofSeconds(5);
+
+    /** Wire compressors offered to the server, most preferred first: zstd, snappy or zlib. */
+    private List<String> compressors = List.of("zstd", "zlib");
+
+    /**
+     * Read preference of listings, the e-mail scan and dumps. Lookups by id,
+     * credentials, writes and their results always use the primary, so a
+     * client reads its own writes.
+     */
+    private String listingReadPreference = "secondaryPreferred";
+
+    /** Secondaries lagging further behind are not read from; at least 90s, unset means no limit. */
+    private Duration listingMaxStaleness;
+
+    @Data
+    public static class Pool {
+
+        /** Connections kept open per server even when idle. */
+        private int minSize = 10;
+
+        private int maxSize = 100;
+
+        /** A request waiting longer than this for a connection fails instead of piling up. */
+        private Duration maxWaitTime = Duration.ofSeconds(1);
+
+        private Duration maxConnectionIdleTime = Duration.ofMinutes(1);
+
+        private Duration maxConnectionLifeTime = Duration.ofMinutes(30);
+
+        /** Connections opened at once per server, so a reconnect storm does not overwhelm it. */
+        private int maxConnecting = 2;
+    }
+}
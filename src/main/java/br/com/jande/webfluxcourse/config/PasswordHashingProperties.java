@@ -0,0 +1,18 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "users.password")
+public class PasswordHashingProperties {
+
+    /** BCrypt log2 cost; each step doubles the time per hash. */
+    private int strength = 10;
+
+    /** Dedicated hashing threads, never the Netty event loop. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Hashes allowed to wait for a thread before new ones are rejected with 503. */
+    private int queueCapacity = 1_000;
+}
@@ -0,0 +1,20 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "users.batch-loader")
+public class UserBatchLoaderProperties {
+
+    /** Collect concurrent lookups by id into one {@code $in} query; off sends one query per lookup. */
+    private boolean enabled = true;
+
+    /** How long the first id of a batch waits for others; the most a lookup is delayed by batching. */
+    private Duration window = Duration.ofMillis(1);
+
+    /** Distinct ids per query; a full batch is sent without waiting for the window. */
+    private int maxBatchSize = 100;
+}
@@ -0,0 +1,15 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "users.bulk")
+public class UserBulkProperties {
+
+    /** Valid items written per unordered insertMany. */
+    private int batchSize = 500;
+
+    /** Batches allowed in flight at the same time. */
+    private int concurrency = 2;
+}
@@ -0,0 +1,19 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "users.cache")
+public class UserCacheProperties {
+
+    private boolean enabled = true;
+
+    /** Upper bound on cached users; least valuable entries are evicted first. */
+    private long maximumSize = 10_000;
+
+    /** Entries are dropped this long after they were loaded or written. */
+    private Duration expireAfterWrite = Duration.ofMinutes(5);
+}
@@ -0,0 +1,30 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "users.changes")
+public class UserChangesProperties {
+
+    /** Recent changes kept in memory, so reconnecting subscribers resume without a cursor of their own. */
+    private int historySize = 10_000;
+
+    /** Changes buffered per subscriber before the overflow policy applies. */
+    private int bufferSize = 256;
+
+    /** What happens to a subscriber whose buffer is full. */
+    private Overflow overflow = Overflow.DISCONNECT;
+
+    /** Interval of the SSE comment that keeps idle connections open through proxies. */
+    private Duration heartbeat = Duration.ofSeconds(15);
+
+    public enum Overflow {
+        /** Drop the oldest buffered changes and keep going; the subscriber sees a gap. */
+        DROP,
+        /** End the stream; the subscriber reconnects with its last token and misses nothing. */
+        DISCONNECT
+    }
+}
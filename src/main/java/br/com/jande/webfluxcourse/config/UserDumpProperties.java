@@ -0,0 +1,32 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "users.dump")
+public class UserDumpProperties {
+
+    /** Where dumps are written and read; dump names never leave it. */
+    private Path directory = Path.of("data/dumps");
+
+    /** Serve the export and import endpoints under /admin/users; dumps carry password hashes. */
+    private boolean endpointsEnabled = false;
+
+    /** Cursor batch size of an export and users per insert of an import. */
+    private int batchSize = 1_000;
+
+    /** Insert batches of an import in flight at once. */
+    private int importConcurrency = 4;
+
+    /** Users between checkpoints, the most a resumed dump repeats. */
+    private long checkpointInterval = 100_000;
+
+    /** Bytes buffered in front of the compressor and the file channel. */
+    private int bufferSize = 64 * 1024;
+
+    /** 1 to 19, higher is smaller and slower. */
+    private int zstdLevel = 3;
+}
@@ -0,0 +1,18 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "users.pagination")
+public class UserPaginationProperties {
+
+    /** Page size used when the client does not send a limit. */
+    private int defaultLimit = 20;
+
+    /** Hard server-side cap; larger limits are clamped to this value. */
+    private int maxLimit = 100;
+
+    /** Documents fetched per cursor round trip when streaming as NDJSON. */
+    private int streamBatchSize = 256;
+}
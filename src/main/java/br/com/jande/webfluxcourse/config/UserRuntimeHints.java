@@ -0,0 +1,78 @@
+package br.com.jande.webfluxcourse.config;
+
+import br.com.jande.webfluxcourse.controller.exceptions.StandardError;
+import br.com.jande.webfluxcourse.controller.exceptions.ValidationError;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
+import br.com.jande.webfluxcourse.model.request.UserDumpRequest;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.BulkItemResponse;
+import br.com.jande.webfluxcourse.model.response.EmailAvailabilityResponse;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
+import br.com.jande.webfluxcourse.model.response.UserDumpResponse;
+import br.com.jande.webfluxcourse.model.response.UserLookupResponse;
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.validator.TrimString;
+import br.com.jande.webfluxcourse.validator.TrimStringValidator;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reflection the application needs in a native image that Spring's AOT
+ * processing cannot infer from the bean definitions alone.
+ *
+ * <ul>
+ *     <li>{@link User}, its Lombok builder and the {@link UserSummary} projection
+ *     are read and written by the Mongo mapping through their fields and
+ *     constructors; the template is used directly, so no repository interface
+ *     points Spring Data at them.</li>
+ *     <li>Hibernate Validator creates {@link TrimStringValidator} reflectively,
+ *     and it and {@code RequestValidator} read the constraints off the request
+ *     records.</li>
+ *     <li>Jackson binds the request and response records; the functional routes
+ *     have no handler signatures for AOT to find them on.</li>
+ *     <li>MapStruct's {@code UserMapperImpl} is an ordinary bean, kept
+ *     instantiable for code that looks it up through {@code Mappers}.</li>
+ * </ul>
+ */
+public class UserRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> BOUND_TYPES = List.of(
+            UserRequest.class, UserSearchRequest.class, UserBatchGetRequest.class, UserCredentialsRequest.class,
+            UserResponse.class, UserPageResponse.class, UserLookupResponse.class, UserChangeResponse.class,
+            BulkItemResponse.class, EmailAvailabilityResponse.class, UserDumpRequest.class, UserDumpResponse.class,
+            StandardError.class, ValidationError.class);
+
+    @Override
+    public void registerHints(final RuntimeHints hints, final ClassLoader classLoader) {
+        hints.reflection()
+                .registerType(User.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(User.UserBuilder.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(UserSummary.class, MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(StandardError.StandardErrorBuilder.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(TrimStringValidator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(TrimString.class, MemberCategory.INVOKE_PUBLIC_METHODS)
+                .registerType(TypeReference.of(UserMapper.class.getName() + "Impl"),
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+        for(Class<?> type : BOUND_TYPES){
+            bindingHints.registerReflectionHints(hints.reflection(), type);
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "users.search")
+public class UserSearchProperties {
+
+    /** Shorter name prefixes match too much of the index and are rejected. */
+    private int minPrefixLength = 2;
+
+    /** Server-side time budget for one filtered page before Mongo aborts it. */
+    private Duration maxTime = Duration.ofSeconds(2);
+
+    /** Server-side time budget for a whole NDJSON stream, summed over its cursor batches. */
+    private Duration streamMaxTime = Duration.ofMinutes(5);
+
+    /** Fill in the search key and creation time of users stored without them, in the background once started. */
+    private boolean backfillOnStartup = true;
+}
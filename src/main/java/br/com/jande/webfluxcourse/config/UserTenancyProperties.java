@@ -0,0 +1,30 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "users.tenancy")
+public class UserTenancyProperties {
+
+    /** Keep each tenant's users in a collection of its own, chosen by a request header. */
+    private boolean enabled = false;
+
+    /** Names the tenant of a request: lower-case letters, digits, '-' and '_', at most 48 characters. */
+    private String header = "X-Tenant-Id";
+
+    /**
+     * Tenants served; a request naming any other is rejected with 403. Their
+     * collections and indexes are created at startup, never by a request.
+     */
+    private Set<String> tenants = Set.of();
+
+    /** Tenant of requests without the header, one of the tenants; when unset they are rejected with 400. */
+    private String defaultTenant;
+
+    /** Served without a tenant. */
+    private List<String> excludedPaths = List.of("/actuator/**");
+}
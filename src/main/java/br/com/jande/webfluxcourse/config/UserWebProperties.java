@@ -0,0 +1,30 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "users.web")
+public class UserWebProperties {
+
+    public static final String STACK = "users.web.stack";
+
+    /** Which implementation serves the /users API; both share the service layer and error mapping. */
+    private Stack stack = Stack.ANNOTATED;
+
+    /** Writes user responses with the hand-written encoder instead of Jackson. */
+    private boolean userEncoder = true;
+
+    /** Stream elements written to one buffer; NDJSON is flushed a batch at a time. */
+    private int encoderBatchSize = 64;
+
+    /** Checks request records with constraints compiled per type instead of reflective Bean Validation. */
+    private boolean precompiledValidation = true;
+
+    public enum Stack {
+        /** {@code @RestController} methods, resolved per request by the annotated handler mapping. */
+        ANNOTATED,
+        /** {@code RouterFunction} routes calling handler functions directly. */
+        FUNCTIONAL
+    }
+}
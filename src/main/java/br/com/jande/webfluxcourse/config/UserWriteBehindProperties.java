@@ -0,0 +1,36 @@
+package br.com.jande.webfluxcourse.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "users.write-behind")
+public class UserWriteBehindProperties {
+
+    /** Acknowledge creations once journaled and write them to Mongo in the background. */
+    private boolean enabled = false;
+
+    /** Directory holding the journal segments; must survive restarts. */
+    private Path journalDirectory = Path.of("data", "journal");
+
+    /** Bytes per memory-mapped journal segment. */
+    private int segmentSize = 16 * 1024 * 1024;
+
+    /** Segments allowed before new creations are rejected with 503. */
+    private int maxSegments = 8;
+
+    /** Force every journal record to disk before acknowledging it; off trades OS-crash safety for latency. */
+    private boolean forceOnAppend = true;
+
+    /** Users written per unordered insertMany. */
+    private int batchSize = 500;
+
+    /** Pause between flushes while the journal is drained. */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /** How long shutdown waits for the last flush. */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+}
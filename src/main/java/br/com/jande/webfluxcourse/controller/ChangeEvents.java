@@ -0,0 +1,37 @@
+package br.com.jande.webfluxcourse.controller;
+
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+/**
+ * Server-sent event framing of the change feed, shared by both web stacks.
+ */
+public final class ChangeEvents {
+
+    private static final String HEARTBEAT = "heartbeat";
+
+    private ChangeEvents() {
+    }
+
+    /**
+     * One event per change, with the resume token as its id and the operation
+     * as its name, plus a comment every {@code heartbeat} to keep idle
+     * connections open.
+     */
+    public static Flux<ServerSentEvent<UserChangeResponse>> of(final Flux<UserChangeResponse> changes,
+                                                               final Duration heartbeat){
+        final Flux<ServerSentEvent<UserChangeResponse>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<UserChangeResponse>builder().comment(HEARTBEAT).build());
+
+        return changes
+                .map(change -> ServerSentEvent.builder(change)
+                        .id(change.token())
+                        .event(change.operation())
+                        .build())
+                // heartbeats stop with the feed, so a disconnected subscriber's stream really ends
+                .publish(events -> Flux.merge(events, heartbeats.takeUntilOther(events.then())));
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.jande.webfluxcourse.controller;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Strong entity tags derived from the document version, so they can be
+ * computed without mapping or serializing the response.
+ */
+public final class ETags {
+
+    private static final String WILDCARD = "*";
+
+    private ETags() {
+    }
+
+    public static String of(final User user){
+        return Objects.isNull(user.getVersion()) ? null : "\"" + user.getVersion() + "\"";
+    }
+
+    /**
+     * True when an {@code If-None-Match} / {@code If-Match} header value lists
+     * the given tag (or is the {@code *} wildcard). Weak validators are compared
+     * by their opaque part, as If-None-Match requires.
+     */
+    public static boolean matches(final String header, final String etag){
+        if(Objects.isNull(header) || Objects.isNull(etag))
+            return false;
+        for(String candidate : header.split(",")){
+            String value = candidate.trim();
+            if(value.equals(WILDCARD))
+                return true;
+            if(value.startsWith("W/"))
+                value = value.substring(2);
+            if(value.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Versions listed by an {@code If-Match} header, or null when the header is
+     * absent or the wildcard, i.e. when any current version is acceptable.
+     * If-Match compares strongly, so weak tags and values that cannot be ours
+     * are left out; a header listing none of ours yields an empty list, which
+     * no version matches.
+     */
+    public static List<Long> expectedVersions(final String ifMatch){
+        if(Objects.isNull(ifMatch) || ifMatch.isBlank())
+            return null;
+        final List<Long> versions = new ArrayList<>();
+        for(String candidate : ifMatch.split(",")){
+            final String value = candidate.trim();
+            if(value.equals(WILDCARD))
+                return null;
+            if(value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"')
+                continue;
+            try {
+                versions.add(Long.parseLong(value.substring(1, value.length() - 1)));
+            } catch (NumberFormatException ignored){
+                // not one of our tags
+            }
+        }
+        return versions;
+    }
+}
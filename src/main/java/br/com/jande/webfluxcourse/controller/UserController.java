@@ -1,26 +1,85 @@
 package br.com.jande.webfluxcourse.controller;
 
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.BulkItemResponse;
+import br.com.jande.webfluxcourse.model.response.EmailAvailabilityResponse;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
+import br.com.jande.webfluxcourse.model.response.UserLookupResponse;
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
 import br.com.jande.webfluxcourse.model.response.UserResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
 public interface UserController {
 
+    String LAST_EVENT_ID = "Last-Event-ID";
+
+    /** 201 once the user is stored, or 202 when write-behind only journaled it; the Location holds the new id either way. */
     @PostMapping
-    ResponseEntity<Mono<Void>> save(@Valid @RequestBody UserRequest request);
+    Mono<ResponseEntity<Void>> save(@Valid @RequestBody UserRequest request);
+
+    @PostMapping(value = "/_bulk",
+            consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE},
+            produces = {APPLICATION_NDJSON_VALUE, APPLICATION_JSON_VALUE})
+    ResponseEntity<Flux<BulkItemResponse>> saveAll(@RequestBody Flux<UserRequest> requests);
+
+    @PostMapping(value = "/_batch-get", produces = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    ResponseEntity<Flux<UserLookupResponse>> findAllById(@Valid @RequestBody UserBatchGetRequest request);
+
+    @PostMapping(value = "/_verify")
+    ResponseEntity<Mono<UserResponse>> verify(@Valid @RequestBody UserCredentialsRequest request);
+
+    @GetMapping(value = "/changes", produces = TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<Flux<ServerSentEvent<UserChangeResponse>>> changes(
+            @RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId,
+            @RequestParam(required = false) String after
+    );
+
+    @GetMapping(value = "/changes", produces = APPLICATION_NDJSON_VALUE)
+    ResponseEntity<Flux<UserChangeResponse>> changesAsNdjson(@RequestParam(required = false) String after);
+
+    /** For signup forms; a taken e-mail still fails the save, this only answers ahead of it. */
+    @GetMapping(value = "/email-available")
+    ResponseEntity<Mono<EmailAvailabilityResponse>> isEmailAvailable(@RequestParam String email);
 
     @GetMapping(value="/{id}")
-    ResponseEntity<Mono<UserResponse>> findById(@PathVariable String id);
+    Mono<ResponseEntity<UserResponse>> findById(
+            @PathVariable String id,
+            @RequestHeader(value = IF_NONE_MATCH, required = false) String ifNoneMatch
+    );
+
+    @GetMapping(produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<Mono<UserPageResponse>> findAll(
+            @Valid UserSearchRequest search,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit
+    );
 
-    @GetMapping
-    ResponseEntity<Flux<UserResponse>> findAll();
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    ResponseEntity<Flux<UserResponse>> stream(
+            @Valid UserSearchRequest search,
+            @RequestParam(required = false) String after
+    );
 
     @PatchMapping(value="/{id}")
-    ResponseEntity<Mono<UserResponse>> update(@PathVariable String id, @RequestBody UserRequest request);
+    Mono<ResponseEntity<UserResponse>> update(
+            @PathVariable String id,
+            @RequestBody UserRequest request,
+            @RequestHeader(value = IF_MATCH, required = false) String ifMatch
+    );
 
     @DeleteMapping(value="/{id}")
     ResponseEntity<Mono<Void>> delete(@PathVariable String id);
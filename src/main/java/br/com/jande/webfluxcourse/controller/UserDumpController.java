@@ -0,0 +1,23 @@
+package br.com.jande.webfluxcourse.controller;
+
+import br.com.jande.webfluxcourse.model.request.UserDumpRequest;
+import br.com.jande.webfluxcourse.model.response.UserDumpResponse;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import reactor.core.publisher.Mono;
+
+/**
+ * Dumps of the user collection, for migrations and backfills. The dump is a
+ * file in the server's dump directory; the response comes once it is fully
+ * written or imported.
+ */
+public interface UserDumpController {
+
+    @PostMapping(value = "/_export")
+    ResponseEntity<Mono<UserDumpResponse>> exportTo(@Valid @RequestBody UserDumpRequest request);
+
+    @PostMapping(value = "/_import")
+    ResponseEntity<Mono<UserDumpResponse>> importFrom(@Valid @RequestBody UserDumpRequest request);
+}
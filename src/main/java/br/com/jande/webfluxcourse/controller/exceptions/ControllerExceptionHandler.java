@@ -1,35 +1,91 @@
 package br.com.jande.webfluxcourse.controller.exceptions;
 
+import br.com.jande.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCredentialsException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCursorException;
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import br.com.jande.webfluxcourse.service.exception.InvalidFilterException;
 import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import br.com.jande.webfluxcourse.service.exception.ResumeTokenExpiredException;
+import br.com.jande.webfluxcourse.service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.TypeMismatchException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.support.WebExchangeBindException;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.GONE;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
 
 @ControllerAdvice
 public class ControllerExceptionHandler {
 
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final Counter duplicatedKeyErrors;
+    private final Counter validationErrors;
+    private final Counter notFoundErrors;
+    private final Counter invalidCursorErrors;
+    private final Counter invalidFilterErrors;
+    private final Counter typeMismatchErrors;
+    private final Counter versionConflictErrors;
+    private final Counter overloadedErrors;
+    private final Counter invalidCredentialsErrors;
+    private final Counter expiredResumeTokenErrors;
+    private final Counter invalidDumpErrors;
+
+    public ControllerExceptionHandler(final MeterRegistry registry) {
+        this.duplicatedKeyErrors = errorCounter(registry, DuplicateKeyException.class);
+        this.validationErrors = errorCounter(registry, WebExchangeBindException.class);
+        this.notFoundErrors = errorCounter(registry, ObjectNotFoundException.class);
+        this.invalidCursorErrors = errorCounter(registry, InvalidCursorException.class);
+        this.invalidFilterErrors = errorCounter(registry, InvalidFilterException.class);
+        this.typeMismatchErrors = errorCounter(registry, TypeMismatchException.class);
+        this.versionConflictErrors = errorCounter(registry, OptimisticLockingFailureException.class);
+        this.overloadedErrors = errorCounter(registry, ServiceOverloadedException.class);
+        this.invalidCredentialsErrors = errorCounter(registry, InvalidCredentialsException.class);
+        this.expiredResumeTokenErrors = errorCounter(registry, ResumeTokenExpiredException.class);
+        this.invalidDumpErrors = errorCounter(registry, InvalidDumpException.class);
+    }
+
     @ExceptionHandler(DuplicateKeyException.class)
     ResponseEntity<Mono<StandardError>> duplicatedKeyException(
             DuplicateKeyException ex, ServerHttpRequest request
     ){
+        duplicatedKeyErrors.increment();
         return ResponseEntity.badRequest()
                 .body(Mono.just(StandardError.builder()
                                 .timestamp(LocalDateTime.now())
                                 .path(request.getPath().toString())
                                 .status(BAD_REQUEST.value())
                                 .error(BAD_REQUEST.getReasonPhrase())
-                                .message(verifyMessageException(ex.getMessage()))
+                                .message(ex instanceof EmailAlreadyRegisteredException
+                                        ? ex.getMessage()
+                                        : verifyMessageException(ex.getMessage()))
                                 .build()));
     }
 
@@ -37,6 +93,46 @@ public class ControllerExceptionHandler {
     public ResponseEntity<Mono<ValidationError>> validationError(
             WebExchangeBindException ex, ServerHttpRequest request
     ){
+        return validationError(ex.getBindingResult(), request);
+    }
+
+    /**
+     * The same mapping for the functional endpoints, which {@code @ControllerAdvice}
+     * does not reach. Empty for exceptions this class does not handle, so they
+     * fall through to the default error handling like they do for controllers.
+     */
+    public Optional<ResponseEntity<?>> resolve(final Throwable ex, final ServerHttpRequest request){
+        if(ex instanceof BindException bind)
+            return Optional.of(validationError(bind.getBindingResult(), request));
+        if(ex instanceof WebExchangeBindException bind)
+            return Optional.of(validationError(bind, request));
+        if(ex instanceof DuplicateKeyException duplicateKey)
+            return Optional.of(duplicatedKeyException(duplicateKey, request));
+        if(ex instanceof ObjectNotFoundException notFound)
+            return Optional.of(objectNotFoundException(notFound, request));
+        if(ex instanceof InvalidCursorException invalidCursor)
+            return Optional.of(invalidCursorException(invalidCursor, request));
+        if(ex instanceof InvalidFilterException invalidFilter)
+            return Optional.of(invalidFilterException(invalidFilter, request));
+        if(ex instanceof TypeMismatchException typeMismatch)
+            return Optional.of(typeMismatchException(typeMismatch, request));
+        if(ex instanceof OptimisticLockingFailureException versionConflict)
+            return Optional.of(optimisticLockingFailureException(versionConflict, request));
+        if(ex instanceof ServiceOverloadedException overloaded)
+            return Optional.of(serviceOverloadedException(overloaded, request));
+        if(ex instanceof InvalidCredentialsException invalidCredentials)
+            return Optional.of(invalidCredentialsException(invalidCredentials, request));
+        if(ex instanceof ResumeTokenExpiredException expiredResumeToken)
+            return Optional.of(resumeTokenExpiredException(expiredResumeToken, request));
+        if(ex instanceof InvalidDumpException invalidDump)
+            return Optional.of(invalidDumpException(invalidDump, request));
+        return Optional.empty();
+    }
+
+    private ResponseEntity<Mono<ValidationError>> validationError(
+            BindingResult result, ServerHttpRequest request
+    ){
+        validationErrors.increment();
         ValidationError error = new ValidationError(
                 LocalDateTime.now(),
                 request.getPath().toString(),
@@ -45,7 +141,7 @@ public class ControllerExceptionHandler {
                "Error validation attributes"
         );
 
-        for(FieldError x: ex.getBindingResult().getFieldErrors()){
+        for(FieldError x: result.getFieldErrors()){
             error.addError(x.getField(), x.getDefaultMessage());
         }
 
@@ -53,20 +149,165 @@ public class ControllerExceptionHandler {
                 .body(Mono.just(error));
     }
 
+    /**
+     * RFC 7807 problem, built straight from the exception: no timestamp, no
+     * wrapping publisher, nothing that scales with how many misses we serve.
+     */
     @ExceptionHandler({ObjectNotFoundException.class})
-    ResponseEntity<Mono<StandardError>> objectNotFoundException(
+    ResponseEntity<ProblemDetail> objectNotFoundException(
             ObjectNotFoundException ex, ServerHttpRequest request
     ){
+        notFoundErrors.increment();
+        final ProblemDetail problem = ProblemDetail.forStatusAndDetail(NOT_FOUND, ex.getMessage());
+        problem.setInstance(URI.create(request.getPath().value()));
         return ResponseEntity.status(NOT_FOUND)
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(problem);
+    }
+
+    @ExceptionHandler({InvalidCursorException.class})
+    ResponseEntity<Mono<StandardError>> invalidCursorException(
+            InvalidCursorException ex, ServerHttpRequest request
+    ){
+        invalidCursorErrors.increment();
+        return ResponseEntity.badRequest()
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(BAD_REQUEST.value())
+                        .error(BAD_REQUEST.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    @ExceptionHandler({InvalidFilterException.class})
+    ResponseEntity<Mono<StandardError>> invalidFilterException(
+            InvalidFilterException ex, ServerHttpRequest request
+    ){
+        invalidFilterErrors.increment();
+        return ResponseEntity.badRequest()
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(BAD_REQUEST.value())
+                        .error(BAD_REQUEST.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    /** A query parameter bound to a record, such as a malformed {@code createdFrom}, that cannot be converted. */
+    @ExceptionHandler({TypeMismatchException.class})
+    ResponseEntity<Mono<StandardError>> typeMismatchException(
+            TypeMismatchException ex, ServerHttpRequest request
+    ){
+        typeMismatchErrors.increment();
+        return ResponseEntity.badRequest()
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(BAD_REQUEST.value())
+                        .error(BAD_REQUEST.getReasonPhrase())
+                        .message("Invalid value for %s: %s".formatted(parameterOf(ex, request), ex.getValue()))
+                        .build()));
+    }
+
+    /**
+     * Binding a record through its constructor does not name the component
+     * that failed, so it is looked up among the query parameters by value.
+     */
+    private static String parameterOf(final TypeMismatchException ex, final ServerHttpRequest request){
+        if(Objects.nonNull(ex.getPropertyName()))
+            return ex.getPropertyName();
+        final String value = String.valueOf(ex.getValue());
+        for(Map.Entry<String, List<String>> parameter : request.getQueryParams().entrySet())
+            if(parameter.getValue().contains(value))
+                return parameter.getKey();
+        return "parameter";
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class})
+    ResponseEntity<Mono<StandardError>> optimisticLockingFailureException(
+            OptimisticLockingFailureException ex, ServerHttpRequest request
+    ){
+        versionConflictErrors.increment();
+        return ResponseEntity.status(PRECONDITION_FAILED)
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(PRECONDITION_FAILED.value())
+                        .error(PRECONDITION_FAILED.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    @ExceptionHandler({ServiceOverloadedException.class})
+    ResponseEntity<Mono<StandardError>> serviceOverloadedException(
+            ServiceOverloadedException ex, ServerHttpRequest request
+    ){
+        overloadedErrors.increment();
+        return ResponseEntity.status(SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(SERVICE_UNAVAILABLE.value())
+                        .error(SERVICE_UNAVAILABLE.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    @ExceptionHandler({InvalidCredentialsException.class})
+    ResponseEntity<Mono<StandardError>> invalidCredentialsException(
+            InvalidCredentialsException ex, ServerHttpRequest request
+    ){
+        invalidCredentialsErrors.increment();
+        return ResponseEntity.status(UNAUTHORIZED)
                 .body(Mono.just(StandardError.builder()
                         .timestamp(LocalDateTime.now())
                         .path(request.getPath().toString())
-                        .status(NOT_FOUND.value())
-                        .error(NOT_FOUND.getReasonPhrase())
+                        .status(UNAUTHORIZED.value())
+                        .error(UNAUTHORIZED.getReasonPhrase())
                         .message(ex.getMessage())
                         .build()));
     }
 
+    @ExceptionHandler({ResumeTokenExpiredException.class})
+    ResponseEntity<Mono<StandardError>> resumeTokenExpiredException(
+            ResumeTokenExpiredException ex, ServerHttpRequest request
+    ){
+        expiredResumeTokenErrors.increment();
+        return ResponseEntity.status(GONE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(GONE.value())
+                        .error(GONE.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    @ExceptionHandler({InvalidDumpException.class})
+    ResponseEntity<Mono<StandardError>> invalidDumpException(
+            InvalidDumpException ex, ServerHttpRequest request
+    ){
+        invalidDumpErrors.increment();
+        return ResponseEntity.badRequest()
+                .body(Mono.just(StandardError.builder()
+                        .timestamp(LocalDateTime.now())
+                        .path(request.getPath().toString())
+                        .status(BAD_REQUEST.value())
+                        .error(BAD_REQUEST.getReasonPhrase())
+                        .message(ex.getMessage())
+                        .build()));
+    }
+
+    private static Counter errorCounter(final MeterRegistry registry, final Class<? extends Exception> exception){
+        return Counter.builder("users.errors")
+                .description("Exceptions turned into error responses")
+                .tag("exception", exception.getSimpleName())
+                .register(registry);
+    }
 
     private String verifyMessageException(final String message){
         if(message.contains("email dup key"))
@@ -0,0 +1,252 @@
+package br.com.jande.webfluxcourse.controller.functional;
+
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import br.com.jande.webfluxcourse.controller.ChangeEvents;
+import br.com.jande.webfluxcourse.controller.ETags;
+import br.com.jande.webfluxcourse.controller.UserController;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.BulkItemResponse;
+import br.com.jande.webfluxcourse.model.response.EmailAvailabilityResponse;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
+import br.com.jande.webfluxcourse.model.response.UserLookupResponse;
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.service.UserBulkService;
+import br.com.jande.webfluxcourse.service.UserService;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Conventions;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Validator;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Objects;
+
+import static br.com.jande.webfluxcourse.service.bulk.BulkItemResult.Status.CREATED;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+
+/**
+ * Handler functions behind {@link UserRouter}: the same API as
+ * {@link UserController}, with binding, validation and response building done
+ * by hand instead of resolved per request from annotations. Validation goes
+ * through the WebFlux validator and errors are left to the shared exception
+ * mapping, so both stacks answer alike.
+ */
+@Component
+@ConditionalOnProperty(name = UserWebProperties.STACK, havingValue = "functional")
+public class UserHandler {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<UserChangeResponse>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+
+    private final UserService service;
+    private final UserBulkService bulkService;
+    private final UserChangeFeed changeFeed;
+    private final UserChangesProperties changesProperties;
+    private final UserMapper mapper;
+    private final Validator validator;
+
+    public UserHandler(final UserService service, final UserBulkService bulkService, final UserChangeFeed changeFeed,
+                       final UserChangesProperties changesProperties, final UserMapper mapper,
+                       @Qualifier("webFluxValidator") final Validator validator) {
+        this.service = service;
+        this.bulkService = bulkService;
+        this.changeFeed = changeFeed;
+        this.changesProperties = changesProperties;
+        this.mapper = mapper;
+        this.validator = validator;
+    }
+
+    public Mono<ServerResponse> save(final ServerRequest request){
+        return body(request, UserRequest.class)
+                .flatMap(service::save)
+                .flatMap(user -> ServerResponse.status(service.isPending(user.getId()) ? HttpStatus.ACCEPTED : HttpStatus.CREATED)
+                        .location(URI.create("/users/" + user.getId()))
+                        .build());
+    }
+
+    public Mono<ServerResponse> saveAll(final ServerRequest request){
+        return ServerResponse.ok()
+                .contentType(prefers(request, MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON))
+                .body(bulkService.saveAll(request.bodyToFlux(UserRequest.class))
+                        .map(result -> new BulkItemResponse(
+                                result.index(),
+                                result.status() == CREATED ? result.user().getId() : null,
+                                result.status().name(),
+                                result.message())), BulkItemResponse.class);
+    }
+
+    public Mono<ServerResponse> findAllById(final ServerRequest request){
+        return body(request, UserBatchGetRequest.class)
+                .flatMap(batch -> ServerResponse.ok()
+                        .contentType(prefers(request, MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON))
+                        .body(service.findAllById(batch.ids())
+                                .map(lookup -> new UserLookupResponse(
+                                        lookup.id(),
+                                        lookup.found(),
+                                        lookup.found() ? mapper.toResponse(lookup.user()) : null)), UserLookupResponse.class));
+    }
+
+    public Mono<ServerResponse> verify(final ServerRequest request){
+        return body(request, UserCredentialsRequest.class)
+                .flatMap(service::verify)
+                .flatMap(user -> ServerResponse.ok().bodyValue(mapper.toResponse(user)));
+    }
+
+    public Mono<ServerResponse> changes(final ServerRequest request){
+        final String lastEventId = request.headers().firstHeader(UserController.LAST_EVENT_ID);
+        final String resumeAfter = Objects.isNull(lastEventId) ? request.queryParam("after").orElse(null) : lastEventId;
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(ChangeEvents.of(changeFeed.changes(resumeAfter)
+                        .map(mapper::toResponse), changesProperties.getHeartbeat()), SSE_TYPE);
+    }
+
+    public Mono<ServerResponse> changesAsNdjson(final ServerRequest request){
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(changeFeed.changes(request.queryParam("after").orElse(null)).map(mapper::toResponse),
+                        UserChangeResponse.class);
+    }
+
+    public Mono<ServerResponse> isEmailAvailable(final ServerRequest request){
+        final String email = request.queryParam("email")
+                .orElseThrow(() -> new ServerWebInputException("Required query parameter 'email' is not present."));
+        return service.isEmailAvailable(email)
+                .flatMap(available -> ServerResponse.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .bodyValue(new EmailAvailabilityResponse(email, available)));
+    }
+
+    public Mono<ServerResponse> findById(final ServerRequest request){
+        final String id = request.pathVariable("id");
+        final String ifNoneMatch = request.headers().firstHeader(IF_NONE_MATCH);
+        return service.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ObjectNotFoundException(User.class, id)))
+                .flatMap(user -> {
+                    final String etag = ETags.of(user);
+                    if(ETags.matches(ifNoneMatch, etag))
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    return withETag(ServerResponse.ok(), etag).bodyValue(mapper.toResponse(user));
+                });
+    }
+
+    public Mono<ServerResponse> findAll(final ServerRequest request){
+        final String after = request.queryParam("after").orElse(null);
+        final Integer limit = request.queryParam("limit").map(UserHandler::parseLimit).orElse(null);
+        return search(request)
+                .flatMap(search -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(service.findPage(mapper.toFilter(search), after, limit)
+                                .map(page -> page.map(mapper::toResponse))
+                                .map(page -> new UserPageResponse(page.content(), page.next())), UserPageResponse.class));
+    }
+
+    public Mono<ServerResponse> stream(final ServerRequest request){
+        final String after = request.queryParam("after").orElse(null);
+        return search(request)
+                .flatMap(search -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .body(service.stream(mapper.toFilter(search), after).map(mapper::toResponse), UserResponse.class));
+    }
+
+    public Mono<ServerResponse> update(final ServerRequest request){
+        final String id = request.pathVariable("id");
+        final List<Long> expectedVersions = ETags.expectedVersions(String.join(",", request.headers().header(IF_MATCH)));
+        return request.bodyToMono(UserRequest.class)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")))
+                .flatMap(body -> service.update(id, body, expectedVersions))
+                .flatMap(user -> withETag(ServerResponse.ok(), ETags.of(user)).bodyValue(mapper.toResponse(user)));
+    }
+
+    public Mono<ServerResponse> delete(final ServerRequest request){
+        return service.delete(request.pathVariable("id"))
+                .then(ServerResponse.ok().build());
+    }
+
+    /** Required, validated request body, failing the way {@code @Valid @RequestBody} does. */
+    private <T> Mono<T> body(final ServerRequest request, final Class<T> type){
+        return request.bodyToMono(type)
+                .switchIfEmpty(Mono.error(() -> new ServerWebInputException("No request body")))
+                .flatMap(this::validated);
+    }
+
+    /** Query-string filters, bound and validated like the {@code @Valid UserSearchRequest} argument. */
+    private Mono<UserSearchRequest> search(final ServerRequest request){
+        return Mono.fromSupplier(() -> new UserSearchRequest(
+                        request.queryParam("email").orElse(null),
+                        request.queryParam("name").orElse(null),
+                        request.queryParam("createdFrom").map(value -> parseInstant("createdFrom", value)).orElse(null),
+                        request.queryParam("createdTo").map(value -> parseInstant("createdTo", value)).orElse(null)))
+                .flatMap(this::validated);
+    }
+
+    private <T> Mono<T> validated(final T target){
+        final BindingResult result = new BeanPropertyBindingResult(target, Conventions.getVariableName(target));
+        validator.validate(target, result);
+        return result.hasErrors() ? Mono.error(new BindException(result)) : Mono.just(target);
+    }
+
+    private static ServerResponse.BodyBuilder withETag(final ServerResponse.BodyBuilder builder, final String etag){
+        return Objects.isNull(etag) ? builder : builder.eTag(etag);
+    }
+
+    /** {@code preferred} unless the client only accepts {@code alternative}, mirroring the order of {@code produces}. */
+    private static MediaType prefers(final ServerRequest request, final MediaType preferred, final MediaType alternative){
+        final List<MediaType> accepted = request.headers().accept();
+        if(accepted.isEmpty())
+            return preferred;
+        for(MediaType mediaType : accepted){
+            if(mediaType.isCompatibleWith(preferred))
+                return preferred;
+            if(mediaType.isCompatibleWith(alternative))
+                return alternative;
+        }
+        return preferred;
+    }
+
+    /** Fails the way binding the annotated controller's search record does, so both stacks answer the same 400. */
+    private static Instant parseInstant(final String name, final String value){
+        try {
+            return DateTimeFormatter.ISO_DATE_TIME.parse(value, Instant::from);
+        } catch (DateTimeParseException ex){
+            final TypeMismatchException mismatch = new TypeMismatchException(value, Instant.class, ex);
+            mismatch.initPropertyName(name);
+            throw mismatch;
+        }
+    }
+
+    private static Integer parseLimit(final String value){
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException ex){
+            throw new ServerWebInputException("Invalid limit: " + value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package br.com.jande.webfluxcourse.controller.functional;
+
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import br.com.jande.webfluxcourse.controller.exceptions.ControllerExceptionHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * The /users API as router functions, active with {@code users.web.stack=functional}
+ * in place of the annotated controller. Errors are mapped by the same
+ * {@link ControllerExceptionHandler} the controller uses.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = UserWebProperties.STACK, havingValue = "functional")
+public class UserRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(final UserHandler handler, final ControllerExceptionHandler errors){
+        return route()
+                .path("/users", users -> users
+                        .POST("/_bulk", contentType(APPLICATION_JSON, APPLICATION_NDJSON), handler::saveAll)
+                        .POST("/_batch-get", handler::findAllById)
+                        .POST("/_verify", handler::verify)
+                        .GET("/changes", explicitlyAccepts(APPLICATION_NDJSON), handler::changesAsNdjson)
+                        .GET("/changes", handler::changes)
+                        .GET("/email-available", handler::isEmailAvailable)
+                        .GET("/{id}", handler::findById)
+                        .PATCH("/{id}", handler::update)
+                        .DELETE("/{id}", handler::delete)
+                        .GET("", explicitlyAccepts(APPLICATION_NDJSON), handler::stream)
+                        .GET("", handler::findAll)
+                        .POST("", handler::save))
+                // defer, so exceptions thrown while a handler assembles its response are mapped too
+                .filter((request, next) -> Mono.defer(() -> next.handle(request))
+                        .onErrorResume(ex -> errors.resolve(ex, request.exchange().getRequest())
+                                .map(UserRouter::toServerResponse)
+                                .orElseGet(() -> Mono.error(ex))))
+                .build();
+    }
+
+    /**
+     * Unlike {@code accept(...)}, does not match a missing or wildcard Accept header,
+     * which the annotated mappings resolve to their first declared media type.
+     */
+    private static RequestPredicate explicitlyAccepts(final MediaType mediaType){
+        return request -> request.headers().accept().stream()
+                .anyMatch(accepted -> !accepted.isWildcardType() && accepted.isCompatibleWith(mediaType));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Mono<ServerResponse> toServerResponse(final ResponseEntity<?> entity){
+        final ServerResponse.BodyBuilder builder = ServerResponse.status(entity.getStatusCode())
+                .headers(headers -> headers.addAll(entity.getHeaders()));
+        final Object body = entity.getBody();
+        if(body instanceof Mono<?> mono)
+            return builder.body(BodyInserters.fromPublisher((Mono<Object>) mono, Object.class));
+        return Objects.isNull(body) ? builder.build() : builder.bodyValue(body);
+    }
+}
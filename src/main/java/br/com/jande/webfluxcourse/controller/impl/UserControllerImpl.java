@@ -1,60 +1,143 @@
 package br.com.jande.webfluxcourse.controller.impl;
 
+import br.com.jande.webfluxcourse.controller.ChangeEvents;
+import br.com.jande.webfluxcourse.controller.ETags;
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.config.UserWebProperties;
 import br.com.jande.webfluxcourse.controller.UserController;
 import br.com.jande.webfluxcourse.entity.User;
 import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.BulkItemResponse;
+import br.com.jande.webfluxcourse.model.response.EmailAvailabilityResponse;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
+import br.com.jande.webfluxcourse.model.response.UserLookupResponse;
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
 import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.service.UserBulkService;
 import br.com.jande.webfluxcourse.service.UserService;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
 import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import static java.lang.String.format;
+import java.net.URI;
+import java.util.Objects;
+
+import static br.com.jande.webfluxcourse.service.bulk.BulkItemResult.Status.CREATED;
 
 @RestController
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = UserWebProperties.STACK, havingValue = "annotated", matchIfMissing = true)
 @RequestMapping(value="/users")
 public class UserControllerImpl implements UserController {
 
     private final UserService service;
+    private final UserBulkService bulkService;
+    private final UserChangeFeed changeFeed;
+    private final UserChangesProperties changesProperties;
     private final UserMapper mapper;
     @Override
-    public ResponseEntity<Mono<Void>> save(UserRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED)
-                        .body(service.save(request).then());
+    public Mono<ResponseEntity<Void>> save(UserRequest request) {
+        return service.save(request)
+                .map(user -> ResponseEntity.status(service.isPending(user.getId()) ? HttpStatus.ACCEPTED : HttpStatus.CREATED)
+                        .location(URI.create("/users/" + user.getId()))
+                        .build());
+    }
+
+    @Override
+    public ResponseEntity<Flux<BulkItemResponse>> saveAll(Flux<UserRequest> requests) {
+        return ResponseEntity.ok()
+                .body(bulkService.saveAll(requests)
+                        .map(result -> new BulkItemResponse(
+                                result.index(),
+                                result.status() == CREATED ? result.user().getId() : null,
+                                result.status().name(),
+                                result.message())));
+    }
+
+    @Override
+    public ResponseEntity<Flux<UserLookupResponse>> findAllById(UserBatchGetRequest request) {
+        return ResponseEntity.ok()
+                .body(service.findAllById(request.ids())
+                        .map(lookup -> new UserLookupResponse(
+                                lookup.id(),
+                                lookup.found(),
+                                lookup.found() ? mapper.toResponse(lookup.user()) : null)));
+    }
+
+    @Override
+    public ResponseEntity<Mono<UserResponse>> verify(UserCredentialsRequest request) {
+        return ResponseEntity.ok()
+                .body(service.verify(request).map(mapper::toResponse));
+    }
+
+    @Override
+    public ResponseEntity<Flux<ServerSentEvent<UserChangeResponse>>> changes(String lastEventId, String after) {
+        return ResponseEntity.ok()
+                .body(ChangeEvents.of(changeFeed.changes(Objects.isNull(lastEventId) ? after : lastEventId)
+                        .map(mapper::toResponse), changesProperties.getHeartbeat()));
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> findById(String id) {
+    public ResponseEntity<Flux<UserChangeResponse>> changesAsNdjson(String after) {
+        return ResponseEntity.ok()
+                .body(changeFeed.changes(after).map(mapper::toResponse));
+    }
 
+    @Override
+    public ResponseEntity<Mono<EmailAvailabilityResponse>> isEmailAvailable(String email) {
         return ResponseEntity.ok()
-                        .body(service.findById(id)
-                                .switchIfEmpty(Mono.error(
-                                        new ObjectNotFoundException(
-                                                format("Object not found, Id: %s, Type: %s", id, User.class.getSimpleName())
-                                        )
-                                ))
-                                .map(mapper::toResponse));
+                .cacheControl(CacheControl.noStore())
+                .body(service.isEmailAvailable(email).map(available -> new EmailAvailabilityResponse(email, available)));
+    }
+
+    @Override
+    public Mono<ResponseEntity<UserResponse>> findById(String id, String ifNoneMatch) {
+
+        return service.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ObjectNotFoundException(User.class, id)))
+                .map(user -> {
+                    final String etag = ETags.of(user);
+                    if(ETags.matches(ifNoneMatch, etag))
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    return ResponseEntity.ok().eTag(etag).body(mapper.toResponse(user));
+                });
     }
 
     @Override
-    public ResponseEntity<Flux<UserResponse>> findAll() {
+    public ResponseEntity<Mono<UserPageResponse>> findAll(UserSearchRequest search, String after, Integer limit) {
 
         return ResponseEntity.ok()
-                .body(service.findAll().map(mapper::toResponse));
+                .body(service.findPage(mapper.toFilter(search), after, limit)
+                        .map(page -> page.map(mapper::toResponse))
+                        .map(page -> new UserPageResponse(page.content(), page.next())));
     }
 
     @Override
-    public ResponseEntity<Mono<UserResponse>> update(String id, UserRequest request) {
+    public ResponseEntity<Flux<UserResponse>> stream(UserSearchRequest search, String after) {
+
         return ResponseEntity.ok()
-                .body(service.update(id, request)
-                        .map(mapper::toResponse));
+                .body(service.stream(mapper.toFilter(search), after).map(mapper::toResponse));
+    }
+
+    @Override
+    public Mono<ResponseEntity<UserResponse>> update(String id, UserRequest request, String ifMatch) {
+        return service.update(id, request, ETags.expectedVersions(ifMatch))
+                .map(user -> ResponseEntity.ok()
+                        .eTag(ETags.of(user))
+                        .body(mapper.toResponse(user)));
     }
 
     @Override
@@ -0,0 +1,38 @@
+package br.com.jande.webfluxcourse.controller.impl;
+
+import br.com.jande.webfluxcourse.controller.UserDumpController;
+import br.com.jande.webfluxcourse.model.request.UserDumpRequest;
+import br.com.jande.webfluxcourse.model.response.UserDumpResponse;
+import br.com.jande.webfluxcourse.service.dump.DumpResult;
+import br.com.jande.webfluxcourse.service.dump.UserDump;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/** Served on either web stack, only with {@code users.dump.endpoints-enabled}: dumps carry password hashes. */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "users.dump.endpoints-enabled", havingValue = "true")
+@RequestMapping(value = "/admin/users")
+public class UserDumpControllerImpl implements UserDumpController {
+
+    private final UserDump dump;
+
+    @Override
+    public ResponseEntity<Mono<UserDumpResponse>> exportTo(final UserDumpRequest request) {
+        return ResponseEntity.ok().body(dump.exportTo(request.file(), request.resume(), request.overwrite()).map(UserDumpControllerImpl::toResponse));
+    }
+
+    @Override
+    public ResponseEntity<Mono<UserDumpResponse>> importFrom(final UserDumpRequest request) {
+        return ResponseEntity.ok().body(dump.importFrom(request.file(), request.resume()).map(UserDumpControllerImpl::toResponse));
+    }
+
+    private static UserDumpResponse toResponse(final DumpResult result){
+        return new UserDumpResponse(result.file(), result.documents(), result.duplicates(), result.failed(),
+                result.resumedAfter(), result.bytes());
+    }
+}
@@ -3,19 +3,47 @@ package br.com.jande.webfluxcourse.entity;
 import lombok.Builder;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Objects;
+
 @Data
-@Builder
+@Builder(toBuilder = true)
 @Document
+@CompoundIndexes({
+        @CompoundIndex(name = User.SEARCH_NAME_INDEX, def = "{'searchName': 1, '_id': 1}"),
+        @CompoundIndex(name = User.CREATED_AT_INDEX, def = "{'createdAt': 1, '_id': 1}")
+})
 public class User {
 
+    public static final String EMAIL_INDEX = "email";
+    public static final String SEARCH_NAME_INDEX = "searchName_id";
+    public static final String CREATED_AT_INDEX = "createdAt_id";
+
     @Id
     private String id;
     private String name;
 
-    @Indexed(unique = true)
+    /** Lower-cased, trimmed copy of {@code name}, so prefix searches can use an index. */
+    private String searchName;
+
+    @Indexed(name = EMAIL_INDEX, unique = true)
     private String email;
     private String password;
+    private Instant createdAt;
+
+    @Version
+    private Long version;
+
+    public static String searchNameOf(final String name){
+        if(Objects.isNull(name) || name.isBlank())
+            return null;
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
 }
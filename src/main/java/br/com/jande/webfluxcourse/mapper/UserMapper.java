@@ -2,10 +2,16 @@ package br.com.jande.webfluxcourse.mapper;
 
 import br.com.jande.webfluxcourse.entity.User;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
 import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.repository.UserSummary;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
+import org.mapstruct.Named;
 
 import static org.mapstruct.NullValueCheckStrategy.ALWAYS;
 import static org.mapstruct.NullValuePropertyMappingStrategy.IGNORE;
@@ -19,11 +25,29 @@ import static org.mapstruct.NullValuePropertyMappingStrategy.IGNORE;
 public interface UserMapper {
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "searchName", source = "name", qualifiedByName = "searchName")
     User toEntity(final UserRequest request);
 
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "searchName", source = "name", qualifiedByName = "searchName")
     User toEntity(final UserRequest request, @MappingTarget final User entity);
 
     UserResponse toResponse(final User user);
 
+    UserResponse toResponse(final UserSummary summary);
+
+    UserChangeResponse toResponse(final UserChange change);
+
+    @Mapping(target = "namePrefix", source = "name")
+    UserFilter toFilter(final UserSearchRequest request);
+
+    @Named("searchName")
+    default String searchName(final String name){
+        return User.searchNameOf(name);
+    }
+
 }
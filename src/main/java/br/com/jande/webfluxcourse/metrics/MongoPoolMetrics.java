@@ -0,0 +1,115 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-server connection checkout latency and the number of operations waiting
+ * for a connection, the two numbers that show pool starvation. The driver
+ * does not tie a checkout's start to its end, so waits are paired first in,
+ * first out, which is also the order the pool serves them in: the total and
+ * the mean are exact, single samples may be swapped between waiters.
+ */
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    private final MeterRegistry registry;
+    private final Map<ServerId, ServerPool> pools = new ConcurrentHashMap<>();
+
+    public MongoPoolMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void connectionPoolCreated(final ConnectionPoolCreatedEvent event) {
+        pool(event.getServerId());
+    }
+
+    @Override
+    public void connectionPoolClosed(final ConnectionPoolClosedEvent event) {
+        final ServerPool pool = pools.remove(event.getServerId());
+        if(Objects.nonNull(pool))
+            pool.meters.forEach(registry::remove);
+    }
+
+    @Override
+    public void connectionCheckOutStarted(final ConnectionCheckOutStartedEvent event) {
+        final ServerPool pool = pool(event.getServerId());
+        pool.started.add(System.nanoTime());
+        pool.waiting.incrementAndGet();
+    }
+
+    @Override
+    public void connectionCheckedOut(final ConnectionCheckedOutEvent event) {
+        final ServerPool pool = pool(event.getConnectionId().getServerId());
+        final Long started = finish(pool);
+        if(Objects.nonNull(started))
+            pool.checkout.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(final ConnectionCheckOutFailedEvent event) {
+        final ServerPool pool = pool(event.getServerId());
+        finish(pool);
+        Counter.builder("users.mongo.pool.checkout.failures")
+                .description("Connection checkouts that failed, by reason")
+                .tags(pool.tags.and("reason", event.getReason().name().toLowerCase(Locale.ROOT)))
+                .register(registry)
+                .increment();
+    }
+
+    private Long finish(final ServerPool pool){
+        final Long started = pool.started.poll();
+        if(Objects.nonNull(started))
+            pool.waiting.decrementAndGet();
+        return started;
+    }
+
+    private ServerPool pool(final ServerId serverId){
+        return pools.computeIfAbsent(serverId, id -> new ServerPool(registry,
+                Tags.of("server", id.getAddress().toString())));
+    }
+
+    private static final class ServerPool {
+
+        private final Tags tags;
+        private final Queue<Long> started = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Timer checkout;
+        private final List<Meter> meters;
+
+        private ServerPool(final MeterRegistry registry, final Tags tags) {
+            this.tags = tags;
+            this.checkout = Timer.builder("users.mongo.pool.checkout")
+                    .description("Time from asking the pool for a connection to getting one")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            final Gauge waitQueue = Gauge.builder("users.mongo.pool.wait-queue", waiting, AtomicInteger::get)
+                    .description("Operations waiting for a connection")
+                    .tags(tags)
+                    .register(registry);
+            this.meters = List.of(checkout, waitQueue);
+        }
+    }
+}
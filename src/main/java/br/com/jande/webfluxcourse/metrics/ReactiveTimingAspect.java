@@ -0,0 +1,102 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every reactive method of the services and of the user repository,
+ * from subscription until the publisher terminates. Timers are registered
+ * once per method, so a call costs a map lookup plus the histogram update.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ReactiveTimingAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+    @Pointcut("execution(public (reactor.core.publisher.Mono || reactor.core.publisher.Flux) "
+            + "br.com.jande.webfluxcourse.service.*Service.*(..))")
+    void serviceMethod() {
+    }
+
+    @Pointcut("execution(public (reactor.core.publisher.Mono || reactor.core.publisher.Flux) "
+            + "br.com.jande.webfluxcourse.repository.UserRepository+.*(..))")
+    void repositoryMethod() {
+    }
+
+    @Around("serviceMethod()")
+    public Object timeService(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("users.service", joinPoint);
+    }
+
+    @Around("repositoryMethod()")
+    public Object timeRepository(final ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("users.repository", joinPoint);
+    }
+
+    private Object time(final String name, final ProceedingJoinPoint joinPoint) throws Throwable {
+        final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        final MethodTimers methodTimers = timers.computeIfAbsent(method, key -> new MethodTimers(name, key));
+        final Object result = joinPoint.proceed();
+
+        if(result instanceof Mono<?> mono)
+            return Mono.defer(() -> {
+                final long start = System.nanoTime();
+                return mono.doFinally(signal -> methodTimers.record(signal, start));
+            });
+        if(result instanceof Flux<?> flux)
+            return Flux.defer(() -> {
+                final long start = System.nanoTime();
+                return flux.doFinally(signal -> methodTimers.record(signal, start));
+            });
+        return result;
+    }
+
+    private final class MethodTimers {
+
+        private final Timer success;
+        private final Timer error;
+        private final Timer cancelled;
+
+        private MethodTimers(final String name, final Method method) {
+            final String methodName = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            this.success = timer(name, methodName, "success");
+            this.error = timer(name, methodName, "error");
+            this.cancelled = timer(name, methodName, "cancelled");
+        }
+
+        private void record(final SignalType signal, final long start){
+            final Timer timer = switch (signal) {
+                case ON_COMPLETE -> success;
+                case ON_ERROR -> error;
+                default -> cancelled;
+            };
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(final String name, final String method, final String outcome){
+            return Timer.builder(name)
+                    .tag("method", method)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
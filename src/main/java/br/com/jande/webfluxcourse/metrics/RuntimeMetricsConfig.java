@@ -0,0 +1,56 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Set;
+
+/**
+ * Runtime gauges that Spring Boot does not publish on its own: Reactor
+ * scheduler executors and the Reactor Netty event loops. Mongo connection
+ * pool gauges come from the actuator Mongo auto-configuration.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RuntimeMetricsConfig implements DisposableBean {
+
+    private static final String SCHEDULER_DECORATOR = "users-scheduler-metrics";
+
+    /** The routes of the API, as they appear in the uri tag. */
+    private static final Set<String> ROUTES = Set.of("/users", "/users/_bulk", "/users/_batch-get", "/users/_verify",
+            "/users/changes", "/users/email-available", "/admin/users/_export", "/admin/users/_import");
+
+    public RuntimeMetricsConfig(final MeterRegistry registry) {
+        Schedulers.addExecutorServiceDecorator(SCHEDULER_DECORATOR, new SchedulerExecutorMetrics(registry));
+    }
+
+    /**
+     * Turns on Reactor Netty's own server meters, which include the event loop
+     * pending-task gauges. The uri tag only takes the route templates, so
+     * clients cannot grow its cardinality.
+     */
+    @Bean
+    NettyServerCustomizer nettyMetricsCustomizer() {
+        return server -> server.metrics(true, RuntimeMetricsConfig::uriTemplate);
+    }
+
+    @Override
+    public void destroy() {
+        Schedulers.removeExecutorServiceDecorator(SCHEDULER_DECORATOR);
+    }
+
+    static String uriTemplate(final String uri){
+        final int query = uri.indexOf('?');
+        final String path = query < 0 ? uri : uri.substring(0, query);
+        if(ROUTES.contains(path))
+            return path;
+        if(path.startsWith("/users/") && path.length() > 7 && path.charAt(7) != '_' && path.indexOf('/', 7) < 0)
+            return "/users/{id}";
+        if(path.startsWith("/actuator/"))
+            return "/actuator/**";
+        return "other";
+    }
+}
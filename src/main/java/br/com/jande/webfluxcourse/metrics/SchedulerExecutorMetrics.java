@@ -0,0 +1,175 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.core.instrument.search.Search;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * Reactor executor decorator publishing {@link ExecutorServiceMetrics} for
+ * each scheduler executor. Executors are tagged with the scheduler name and a
+ * slot, the lowest one free in that scheduler, and their meters are removed
+ * when the executor shuts down. {@code boundedElastic} creates and retires
+ * executors all the time; slots are reused, so the number of meters stays
+ * bounded by the executors alive at once.
+ */
+class SchedulerExecutorMetrics implements BiFunction<Scheduler, ScheduledExecutorService, ScheduledExecutorService> {
+
+    static final String PREFIX = "reactor";
+
+    private final MeterRegistry registry;
+    private final Map<String, BitSet> slots = new HashMap<>();
+
+    SchedulerExecutorMetrics(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ScheduledExecutorService apply(final Scheduler scheduler, final ScheduledExecutorService executor) {
+        final String name = Scannable.from(scheduler).scanOrDefault(Scannable.Attr.NAME, scheduler.getClass().getSimpleName());
+        final int slot = claim(name);
+        final Tags tags = Tags.of("scheduler", name, "executor", Integer.toString(slot));
+        return new MeteredExecutor(ExecutorServiceMetrics.monitor(registry, executor, name, PREFIX, tags), () -> {
+            final Collection<Meter> meters = Search.in(registry).tags(tags).meters();
+            meters.forEach(registry::remove);
+            release(name, slot);
+        });
+    }
+
+    private synchronized int claim(final String name){
+        final BitSet used = slots.computeIfAbsent(name, key -> new BitSet());
+        final int slot = used.nextClearBit(0);
+        used.set(slot);
+        return slot;
+    }
+
+    private synchronized void release(final String name, final int slot){
+        slots.get(name).clear(slot);
+    }
+
+    /** The monitored executor, running the release once on the first shutdown. */
+    private static final class MeteredExecutor implements ScheduledExecutorService {
+
+        private final ScheduledExecutorService delegate;
+        private final Runnable release;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private MeteredExecutor(final ScheduledExecutorService delegate, final Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        private void release(){
+            if(released.compareAndSet(false, true))
+                release.run();
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+            release();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            final List<Runnable> pending = delegate.shutdownNow();
+            release();
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit) {
+            return delegate.schedule(command, delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit) {
+            return delegate.schedule(callable, delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period, final TimeUnit unit) {
+            return delegate.scheduleAtFixedRate(command, initialDelay, period, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit) {
+            return delegate.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+
+        @Override
+        public <T> Future<T> submit(final Callable<T> task) {
+            return delegate.submit(task);
+        }
+
+        @Override
+        public <T> Future<T> submit(final Runnable task, final T result) {
+            return delegate.submit(task, result);
+        }
+
+        @Override
+        public Future<?> submit(final Runnable task) {
+            return delegate.submit(task);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(tasks);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(tasks, timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(final Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(tasks);
+        }
+
+        @Override
+        public <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(tasks, timeout, unit);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            delegate.execute(command);
+        }
+    }
+}
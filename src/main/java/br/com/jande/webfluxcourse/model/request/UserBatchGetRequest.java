@@ -0,0 +1,16 @@
+package br.com.jande.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record UserBatchGetRequest(
+        @NotEmpty(message = "must not be null or empty")
+        @Size(max = UserBatchGetRequest.MAX_IDS, message = "must have at most " + UserBatchGetRequest.MAX_IDS + " ids")
+        List<@NotBlank(message = "must not be null or empty") String> ids
+) {
+
+    public static final int MAX_IDS = 100;
+}
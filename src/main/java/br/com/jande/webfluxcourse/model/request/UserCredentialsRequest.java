@@ -0,0 +1,13 @@
+package br.com.jande.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+
+public record UserCredentialsRequest(
+        @NotBlank(message = "must not be null or empty")
+        @Email(message = "invalid email")
+        String email,
+        @NotBlank(message = "must not be null or empty")
+        String password
+) {
+}
@@ -0,0 +1,11 @@
+package br.com.jande.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record UserDumpRequest(
+        @NotBlank(message = "must not be null or empty")
+        String file,
+        boolean resume,
+        boolean overwrite
+) {
+}
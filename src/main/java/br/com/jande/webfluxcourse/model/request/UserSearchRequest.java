@@ -0,0 +1,20 @@
+package br.com.jande.webfluxcourse.model.request;
+
+import jakarta.validation.constraints.Email;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Instant;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+
+/** Query-string filters of {@code GET /users}; every one of them is optional. */
+public record UserSearchRequest(
+        @Email(message = "invalid email")
+        String email,
+        String name,
+        @DateTimeFormat(iso = DATE_TIME)
+        Instant createdFrom,
+        @DateTimeFormat(iso = DATE_TIME)
+        Instant createdTo
+) {
+}
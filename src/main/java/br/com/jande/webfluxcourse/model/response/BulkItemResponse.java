@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.model.response;
+
+public record BulkItemResponse(
+        long index,
+        String id,
+        String status,
+        String message
+) {
+}
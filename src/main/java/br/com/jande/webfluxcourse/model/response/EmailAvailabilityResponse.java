@@ -0,0 +1,7 @@
+package br.com.jande.webfluxcourse.model.response;
+
+public record EmailAvailabilityResponse(
+        String email,
+        boolean available
+) {
+}
@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.model.response;
+
+public record UserChangeResponse(
+        String token,
+        String operation,
+        String id,
+        UserResponse user
+) {
+}
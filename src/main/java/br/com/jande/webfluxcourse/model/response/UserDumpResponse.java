@@ -0,0 +1,11 @@
+package br.com.jande.webfluxcourse.model.response;
+
+public record UserDumpResponse(
+        String file,
+        long documents,
+        long duplicates,
+        long failed,
+        long resumedAfter,
+        long bytes
+) {
+}
@@ -0,0 +1,8 @@
+package br.com.jande.webfluxcourse.model.response;
+
+public record UserLookupResponse(
+        String id,
+        boolean found,
+        UserResponse user
+) {
+}
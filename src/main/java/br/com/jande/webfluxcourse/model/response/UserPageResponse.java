@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.model.response;
+
+import java.util.List;
+
+public record UserPageResponse(
+        List<UserResponse> content,
+        String next
+) {
+}
@@ -1,9 +1,11 @@
 package br.com.jande.webfluxcourse.model.response;
 
+import java.time.Instant;
+
 public record UserResponse(
         String id,
         String name,
         String email,
-        String password
+        Instant createdAt
 ) {
 }
@@ -0,0 +1,27 @@
+package br.com.jande.webfluxcourse.repository;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+import java.util.Objects;
+
+/**
+ * Result of inserting one document as part of an unordered bulk insert.
+ */
+public record InsertOutcome(
+        User user,
+        boolean duplicateKey,
+        String error
+) {
+
+    public static InsertOutcome inserted(final User user){
+        return new InsertOutcome(user, false, null);
+    }
+
+    public static InsertOutcome failed(final User user, final boolean duplicateKey, final String error){
+        return new InsertOutcome(user, duplicateKey, error);
+    }
+
+    public boolean succeeded(){
+        return Objects.isNull(error);
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.jande.webfluxcourse.repository;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Where a keyset listing resumes: the id of the last user returned and, when
+ * the filter orders by another field first (see {@link UserFilter#sortField()}),
+ * that user's value of it, a {@code String} search name or an {@code Instant}.
+ */
+public record PageKey(String id, Object value) {
+
+    public static PageKey after(final UserFilter filter, final UserSummary last){
+        final String field = filter.sortField();
+        if(Objects.isNull(field))
+            return new PageKey(last.id(), null);
+        return new PageKey(last.id(), UserFilter.SEARCH_NAME.equals(field) ? last.searchName() : last.createdAt());
+    }
+
+    /** True when the key was taken from a listing ordered the way {@code filter} orders. */
+    public boolean fits(final UserFilter filter){
+        final String field = filter.sortField();
+        if(Objects.isNull(field))
+            return Objects.isNull(value);
+        return UserFilter.SEARCH_NAME.equals(field) ? value instanceof String : value instanceof Instant;
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.jande.webfluxcourse.repository;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+/**
+ * Result of an atomic update: the detail view of the user as it was right
+ * before the write, and as the write left it.
+ */
+public record UpdateOutcome(
+        User previous,
+        User user
+) {
+}
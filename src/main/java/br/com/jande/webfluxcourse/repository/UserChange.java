@@ -0,0 +1,21 @@
+package br.com.jande.webfluxcourse.repository;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+/**
+ * One mutation of the user collection. {@code token} is opaque and can be
+ * handed back to {@link UserChangeSource#changes(String)} to resume right after
+ * this change; {@code user} is the document after the change and is null for
+ * deletes. {@code tenant} is the tenant whose collection changed, null while
+ * tenancy is off.
+ */
+public record UserChange(String token, Operation operation, String id, User user, String tenant) {
+
+    public UserChange(final String token, final Operation operation, final String id, final User user) {
+        this(token, operation, id, user, null);
+    }
+
+    public enum Operation {
+        INSERT, UPDATE, REPLACE, DELETE
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.jande.webfluxcourse.repository;
+
+import reactor.core.publisher.Flux;
+
+public interface UserChangeSource {
+
+    /**
+     * Endless feed of user mutations, starting right after {@code resumeAfter}
+     * or, when it is null, with the next change. Fails with a
+     * {@code DataRetrievalFailureException} when the token is no longer in the
+     * source's history.
+     */
+    Flux<UserChange> changes(final String resumeAfter);
+}
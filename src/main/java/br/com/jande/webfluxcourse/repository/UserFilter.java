@@ -0,0 +1,57 @@
+package br.com.jande.webfluxcourse.repository;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Optional criteria for listing users; null fields do not filter. The name
+ * prefix is normalized the same way as {@link User#getSearchName()}, and the
+ * creation range is half-open: {@code [createdFrom, createdTo)}.
+ */
+public record UserFilter(String email, String namePrefix, Instant createdFrom, Instant createdTo) {
+
+    public static final UserFilter NONE = new UserFilter(null, null, null, null);
+    public static final String SEARCH_NAME = "searchName";
+    public static final String CREATED_AT = "createdAt";
+
+    public UserFilter {
+        email = Objects.isNull(email) || email.isBlank() ? null : email.strip();
+        namePrefix = User.searchNameOf(namePrefix);
+    }
+
+    public boolean hasCreatedRange(){
+        return Objects.nonNull(createdFrom) || Objects.nonNull(createdTo);
+    }
+
+    /**
+     * The field listings are ordered by ahead of the id, the one the index
+     * behind the most selective filter leads with; null when ordered by id
+     * alone. An e-mail matches one user at most, so it needs no order.
+     */
+    public String sortField(){
+        if(Objects.nonNull(email))
+            return null;
+        if(Objects.nonNull(namePrefix))
+            return SEARCH_NAME;
+        return hasCreatedRange() ? CREATED_AT : null;
+    }
+
+    public boolean isEmpty(){
+        return Objects.isNull(email) && Objects.isNull(namePrefix) && !hasCreatedRange();
+    }
+
+    public boolean matches(final User user){
+        return (Objects.isNull(email) || email.equals(user.getEmail()))
+                && (Objects.isNull(namePrefix)
+                        || (Objects.nonNull(user.getSearchName()) && user.getSearchName().startsWith(namePrefix)))
+                && (!hasCreatedRange() || inCreatedRange(user.getCreatedAt()));
+    }
+
+    private boolean inCreatedRange(final Instant createdAt){
+        return Objects.nonNull(createdAt)
+                && (Objects.isNull(createdFrom) || !createdAt.isBefore(createdFrom))
+                && (Objects.isNull(createdTo) || createdAt.isBefore(createdTo));
+    }
+}
@@ -1,35 +1,69 @@
 package br.com.jande.webfluxcourse.repository;
 
 import br.com.jande.webfluxcourse.entity.User;
-import br.com.jande.webfluxcourse.model.request.UserRequest;
-import lombok.RequiredArgsConstructor;
-import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-@Repository
-@RequiredArgsConstructor
-public class UserRepository {
+import java.util.Collection;
+import java.util.List;
 
-    private final ReactiveMongoTemplate mongoTemplate;
-    public Mono<User> save(final User user){
-      return mongoTemplate.save(user);
-    }
+public interface UserRepository {
 
-    public Mono<User> findById(String id) {
-        return mongoTemplate.findById(id, User.class);
-    }
+    Mono<User> save(final User user);
 
-    public Flux<User> findAll() {
-        return mongoTemplate.findAll(User.class);
-    }
+    /**
+     * The detail view: id, name, e-mail, creation time and version, never the
+     * password. Same for every read below that returns a {@code User}, except
+     * {@link #findByEmail(String)}, which is for checking credentials.
+     * Concurrent calls may be answered by a single query for all their ids.
+     */
+    Mono<User> findById(final String id);
 
-    public Mono<User> findAndRemove(String id) {
-        Query query = new Query();
-        Criteria where = Criteria.where("id").is(id);
-        return mongoTemplate.findAndRemove(query.addCriteria(where), User.class);
-    }
+    Mono<User> findByEmail(final String email);
+
+    /** Answered from the unique e-mail index alone. */
+    Mono<Boolean> existsByEmail(final String email);
+
+    /** Every registered e-mail, in no particular order, for building in-memory indexes. */
+    Flux<String> emails(final int batchSize);
+
+    /**
+     * Every field of every user after {@code afterId}, password included, in
+     * id order and fetched {@code batchSize} at a time. For dumps only.
+     */
+    Flux<User> dump(final String afterId, final int batchSize);
+
+    /** All existing users among {@code ids}, in no particular order. */
+    Flux<User> findAllById(final Collection<String> ids);
+
+    /**
+     * Keyset page of the users matching {@code filter}, ordered by
+     * {@link UserFilter#sortField()} then id and starting right after
+     * {@code after} (or at the beginning when it is null). Never runs as a
+     * collection scan; a page that takes too long fails with a
+     * {@code QueryTimeoutException}. Only the summary fields are fetched.
+     */
+    Flux<UserSummary> findPage(final UserFilter filter, final PageKey after, final int limit);
+
+    /** Like {@link #findPage}, without a limit and with its own time budget. */
+    Flux<UserSummary> stream(final UserFilter filter, final PageKey after, final int batchSize);
+
+    /** Emits the removed user with only its id set. */
+    Mono<User> findAndRemove(final String id);
+
+    /**
+     * Sets every non-null field of {@code changes} and bumps the version in a
+     * single atomic write, returning the document before and after it. When
+     * {@code expectedVersions} is given the write only applies to one of those
+     * versions and fails with an {@code OptimisticLockingFailureException}
+     * otherwise. Emits nothing when the user does not exist.
+     */
+    Mono<UpdateOutcome> update(final String id, final User changes, final List<Long> expectedVersions);
+
+    /**
+     * Inserts all users in one unordered write, so a bad document (e.g. a
+     * duplicated e-mail) does not stop the rest of the batch. Emits one
+     * outcome per user, in input order.
+     */
+    Flux<InsertOutcome> insertAll(final List<User> users);
 }
@@ -0,0 +1,11 @@
+package br.com.jande.webfluxcourse.repository;
+
+import java.time.Instant;
+
+/**
+ * The list view of a user: only the fields a listing shows, read straight
+ * from the projected document without materializing a {@code User}, plus
+ * the search key, read only so that name-ordered pages can resume from it.
+ */
+public record UserSummary(String id, String name, String email, Instant createdAt, String searchName) {
+}
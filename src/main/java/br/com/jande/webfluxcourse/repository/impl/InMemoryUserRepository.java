@@ -0,0 +1,309 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UpdateOutcome;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserChangeSource;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.DELETE;
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.INSERT;
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.UPDATE;
+import static reactor.core.publisher.Sinks.EmitFailureHandler.FAIL_FAST;
+
+/**
+ * Concurrent, process-local stand-in for the Mongo repository. Keeps the same
+ * id ordering and unique e-mail semantics, and hands out copies so callers can
+ * never mutate stored state. Reads return the same views as the Mongo
+ * projections, so a password never leaves it except through
+ * {@link #findByEmail(String)} and {@link #dump(String, int)}. Also publishes every mutation as a change feed,
+ * standing in for a change stream without a replica set. Active under the
+ * {@code in-memory} profile, which is meant for benchmarks and load tests, not
+ * for production data.
+ */
+@Repository
+@Profile("in-memory")
+public class InMemoryUserRepository implements UserRepository, UserChangeSource {
+
+    /** Changes kept for resuming, the in-memory counterpart of the oplog window. */
+    private static final int CHANGE_HISTORY = 1_024;
+
+    private final ConcurrentSkipListMap<String, User> users = new ConcurrentSkipListMap<>();
+    private final Map<String, String> emails = new ConcurrentHashMap<>();
+    private final Sinks.Many<SequencedChange> changes = Sinks.many().replay().limit(CHANGE_HISTORY);
+    /** Guarded by {@code changes}, so tokens are handed out in emission order. */
+    private long changeSequence;
+
+    @Override
+    public Mono<User> save(final User user) {
+        return Mono.fromCallable(() -> store(user));
+    }
+
+    @Override
+    public Mono<User> findById(final String id) {
+        return Mono.fromCallable(() -> detail(users.get(id)));
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email) {
+        return Mono.fromCallable(() -> {
+            final String id = emails.get(email);
+            return Objects.isNull(id) ? null : copy(users.get(id));
+        });
+    }
+
+    @Override
+    public Mono<Boolean> existsByEmail(final String email) {
+        return Mono.fromCallable(() -> emails.containsKey(email));
+    }
+
+    @Override
+    public Flux<String> emails(final int batchSize) {
+        return Flux.defer(() -> Flux.fromIterable(emails.keySet()));
+    }
+
+    @Override
+    public Flux<User> dump(final String afterId, final int batchSize) {
+        return Flux.defer(() -> Flux.fromIterable(tail(afterId).values()))
+                .map(this::copy);
+    }
+
+    @Override
+    public Flux<User> findAllById(final Collection<String> ids) {
+        return Flux.fromIterable(ids)
+                .mapNotNull(users::get)
+                .map(this::detail);
+    }
+
+    @Override
+    public Flux<UserSummary> findPage(final UserFilter filter, final PageKey after, final int limit) {
+        return stream(filter, after, limit).take(limit, true);
+    }
+
+    /** Without secondary indexes, listings ordered by another field sort the matching users first. */
+    @Override
+    public Flux<UserSummary> stream(final UserFilter filter, final PageKey after, final int batchSize) {
+        if(Objects.isNull(filter.sortField()))
+            return Flux.defer(() -> Flux.fromIterable(tail(Objects.isNull(after) ? null : after.id()).values()))
+                    .filter(filter::matches)
+                    .map(this::summary);
+        return Flux.defer(() -> Flux.fromStream(users.values().stream()
+                .filter(filter::matches)
+                .map(this::summary)
+                .filter(summary -> Objects.isNull(after) || compare(PageKey.after(filter, summary), after) > 0)
+                .sorted((left, right) -> compare(PageKey.after(filter, left), PageKey.after(filter, right)))));
+    }
+
+    @Override
+    public Mono<User> findAndRemove(final String id) {
+        return Mono.fromCallable(() -> {
+            final User removed = users.remove(id);
+            if(Objects.nonNull(removed) && Objects.nonNull(removed.getEmail()))
+                emails.remove(removed.getEmail(), id);
+            if(Objects.isNull(removed))
+                return null;
+            publish(DELETE, id, null);
+            return User.builder().id(id).build();
+        });
+    }
+
+    @Override
+    public Mono<UpdateOutcome> update(final String id, final User changes, final List<Long> expectedVersions) {
+        return Mono.fromCallable(() -> {
+            while (true) {
+                final User current = users.get(id);
+                if(Objects.isNull(current))
+                    return null;
+                if(Objects.nonNull(expectedVersions) && !expectedVersions.contains(current.getVersion()))
+                    throw new OptimisticLockingFailureException("Version mismatch, Id: %s, Type: %s"
+                            .formatted(id, User.class.getSimpleName()));
+                try {
+                    // same compare-and-set as a versioned save, so concurrent patches cannot both win
+                    return new UpdateOutcome(detail(current), detail(store(merge(current, changes))));
+                } catch (OptimisticLockingFailureException ex){
+                    if(Objects.nonNull(expectedVersions))
+                        throw ex;
+                }
+            }
+        });
+    }
+
+    @Override
+    public Flux<InsertOutcome> insertAll(final List<User> users) {
+        return Flux.fromIterable(users)
+                .map(user -> {
+                    try {
+                        return InsertOutcome.inserted(store(user, true));
+                    } catch (DuplicateKeyException ex){
+                        return InsertOutcome.failed(user, true, ex.getMessage());
+                    }
+                });
+    }
+
+    /** Tokens are change sequence numbers; only the last {@value #CHANGE_HISTORY} changes can be resumed after. */
+    @Override
+    public Flux<UserChange> changes(final String resumeAfter) {
+        return Flux.defer(() -> {
+            final long after = resumePoint(resumeAfter);
+            return changes.asFlux()
+                    .filter(change -> change.sequence() > after)
+                    .map(SequencedChange::change);
+        });
+    }
+
+    public int size(){
+        return users.size();
+    }
+
+    public void clear(){
+        users.clear();
+        emails.clear();
+    }
+
+    private UserSummary summary(final User user){
+        return new UserSummary(user.getId(), user.getName(), user.getEmail(), user.getCreatedAt(), user.getSearchName());
+    }
+
+    /** The order of the {@code (field, _id)} indexes. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(final PageKey left, final PageKey right){
+        final int byValue = ((Comparable) left.value()).compareTo(right.value());
+        return byValue != 0 ? byValue : left.id().compareTo(right.id());
+    }
+
+    private NavigableMap<String, User> tail(final String afterId){
+        return Objects.isNull(afterId) ? users : users.tailMap(afterId, false);
+    }
+
+    private User store(final User user){
+        return store(user, false);
+    }
+
+    /** An {@code insert} keeps the version it is given, like an insertMany, and fails for any stored id. */
+    private User store(final User user, final boolean insert){
+        final String id = Objects.isNull(user.getId()) ? ObjectId.get().toHexString() : user.getId();
+        final User stored = user.toBuilder()
+                .id(id)
+                .version(Objects.isNull(user.getVersion()) ? 0L : insert ? user.getVersion() : user.getVersion() + 1)
+                .createdAt(Objects.isNull(user.getCreatedAt()) ? Instant.now() : user.getCreatedAt())
+                .build();
+
+        final String owner = Objects.isNull(stored.getEmail()) ? null : emails.putIfAbsent(stored.getEmail(), id);
+        if(Objects.nonNull(owner) && !owner.equals(id))
+            throw new DuplicateKeyException("E11000 duplicate key error collection: user index: email dup key: " + stored.getEmail());
+
+        final User[] previous = new User[1];
+        try {
+            users.compute(id, (key, current) -> {
+                if(insert && Objects.nonNull(current))
+                    throw new DuplicateKeyException("E11000 duplicate key error collection: user index: _id_ dup key: " + id);
+                if(!insert)
+                    checkVersion(user, current);
+                previous[0] = current;
+                return stored;
+            });
+        } catch (RuntimeException ex){
+            if(Objects.isNull(owner) && Objects.nonNull(stored.getEmail()))
+                emails.remove(stored.getEmail(), id);
+            throw ex;
+        }
+
+        if(Objects.nonNull(previous[0]) && Objects.nonNull(previous[0].getEmail())
+                && !Objects.equals(previous[0].getEmail(), stored.getEmail()))
+            emails.remove(previous[0].getEmail(), id);
+
+        user.setId(id);
+        user.setVersion(stored.getVersion());
+        user.setCreatedAt(stored.getCreatedAt());
+        publish(Objects.isNull(previous[0]) ? INSERT : UPDATE, id, stored);
+        return copy(stored);
+    }
+
+    /**
+     * Same rules as the Mongo template for a versioned entity: no version means
+     * insert, otherwise the stored version has to be the one the caller read.
+     */
+    private void checkVersion(final User user, final User current){
+        if(Objects.isNull(user.getVersion())){
+            if(Objects.nonNull(current))
+                throw new DuplicateKeyException("E11000 duplicate key error collection: user index: _id_ dup key: " + user.getId());
+            return;
+        }
+        if(Objects.isNull(current) || !user.getVersion().equals(current.getVersion()))
+            throw new OptimisticLockingFailureException("Cannot save entity %s with version %s; has it been modified meanwhile?"
+                    .formatted(user.getId(), user.getVersion()));
+    }
+
+    private User merge(final User current, final User changes){
+        final User.UserBuilder merged = current.toBuilder();
+        if(Objects.nonNull(changes.getName()))
+            merged.name(changes.getName());
+        if(Objects.nonNull(changes.getSearchName()))
+            merged.searchName(changes.getSearchName());
+        if(Objects.nonNull(changes.getEmail()))
+            merged.email(changes.getEmail());
+        if(Objects.nonNull(changes.getPassword()))
+            merged.password(changes.getPassword());
+        return merged.build();
+    }
+
+    private void publish(final UserChange.Operation operation, final String id, final User user){
+        synchronized (changes){
+            final long sequence = ++changeSequence;
+            changes.emitNext(new SequencedChange(sequence,
+                    new UserChange(Long.toString(sequence), operation, id, copy(user))), FAIL_FAST);
+        }
+    }
+
+    private long resumePoint(final String resumeAfter){
+        synchronized (changes){
+            if(Objects.isNull(resumeAfter))
+                return changeSequence;
+            try {
+                final long sequence = Long.parseLong(resumeAfter);
+                if(sequence >= changeSequence - CHANGE_HISTORY && sequence <= changeSequence)
+                    return sequence;
+            } catch (NumberFormatException ex){
+                // not one of our tokens, same answer as an expired one
+            }
+            throw new DataRetrievalFailureException("Resume token is no longer in the change history: " + resumeAfter);
+        }
+    }
+
+    /** A copy without the password and search key, like the Mongo detail projection. */
+    private User detail(final User user){
+        return Objects.isNull(user) ? null : user.toBuilder()
+                .password(null)
+                .searchName(null)
+                .build();
+    }
+
+    private User copy(final User user){
+        return Objects.isNull(user) ? null : user.toBuilder().build();
+    }
+
+    private record SequencedChange(long sequence, UserChange change) {
+    }
+}
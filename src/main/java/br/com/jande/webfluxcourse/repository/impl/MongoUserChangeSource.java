@@ -0,0 +1,78 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserChangeSource;
+import com.mongodb.MongoException;
+import com.mongodb.client.model.changestream.OperationType;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.*;
+
+/**
+ * Tails a change stream on the user collection. Needs a replica set (or a
+ * sharded cluster); updates come with the full document looked up after the
+ * change. With tenancy on, the stream covers the database, so collections
+ * created for new tenants are followed without reopening it, and each change
+ * is tagged with the tenant of its collection.
+ */
+@Component
+@Profile("!in-memory")
+@RequiredArgsConstructor
+public class MongoUserChangeSource implements UserChangeSource {
+
+    private static final String TOKEN_DATA = "_data";
+    /** InvalidResumeToken, ChangeStreamFatalError and ChangeStreamHistoryLost. */
+    private static final Set<Integer> LOST_RESUME_CODES = Set.of(260, 280, 286);
+    private static final Map<OperationType, UserChange.Operation> OPERATIONS = Map.of(
+            OperationType.INSERT, INSERT,
+            OperationType.UPDATE, UPDATE,
+            OperationType.REPLACE, REPLACE,
+            OperationType.DELETE, DELETE);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TenantCollections collections;
+
+    @Override
+    public Flux<UserChange> changes(final String resumeAfter) {
+        final ChangeStreamOptions.ChangeStreamOptionsBuilder options = ChangeStreamOptions.builder()
+                .returnFullDocumentOnUpdate();
+        if(Objects.nonNull(resumeAfter))
+            options.resumeAfter(new BsonDocument(TOKEN_DATA, new BsonString(resumeAfter)));
+
+        final String collection = collections.isEnabled() ? null : mongoTemplate.getCollectionName(User.class);
+        return mongoTemplate.changeStream(null, collection, options.build(), User.class)
+                .filter(event -> OPERATIONS.containsKey(event.getOperationType()))
+                .filter(event -> !collections.isEnabled() || Objects.nonNull(collections.tenantOf(event.getCollectionName())))
+                .map(this::toChange)
+                .onErrorMap(MongoUserChangeSource::isLostResumeToken, ex -> new DataRetrievalFailureException(
+                        "Resume token is no longer in the change stream history: " + resumeAfter, ex));
+    }
+
+    private UserChange toChange(final ChangeStreamEvent<User> event){
+        final String token = event.getResumeToken().asDocument().getString(TOKEN_DATA).getValue();
+        final String id = event.getRaw().getDocumentKey().get("_id").asObjectId().getValue().toHexString();
+        return new UserChange(token, OPERATIONS.get(event.getOperationType()), id, event.getBody(),
+                collections.tenantOf(event.getCollectionName()));
+    }
+
+    private static boolean isLostResumeToken(final Throwable ex){
+        for(Throwable cause = ex; Objects.nonNull(cause); cause = cause.getCause())
+            if(cause instanceof MongoException mongoException && LOST_RESUME_CODES.contains(mongoException.getCode()))
+                return true;
+        return false;
+    }
+}
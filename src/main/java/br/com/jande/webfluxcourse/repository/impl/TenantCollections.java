@@ -0,0 +1,119 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.UserTenancyProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+
+/**
+ * Routes user operations to the collection of the tenant in the Reactor
+ * context: {@code user_<tenant>} next to the shared {@code user} collection,
+ * which stays in use while tenancy is off. Each tenant's working set and
+ * indexes stay apart from the others', and a tenant that outgrows a shard can
+ * have its own collection sharded on a hashed {@code _id}.
+ * <p>
+ * Only the configured tenants have a collection. Auto index creation only
+ * covers the entity's own collection, so the indexes declared on {@link User},
+ * unique e-mail included, are created in each tenant's collection at startup,
+ * before the server takes requests; startup fails when they cannot be.
+ * Operations never create collections or indexes.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+public class TenantCollections implements InitializingBean {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final Set<String> tenants;
+    private final String sharedCollection;
+    private final String prefix;
+    private final List<IndexDefinition> indexes;
+
+    public TenantCollections(final ReactiveMongoTemplate mongoTemplate, final UserTenancyProperties properties) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = properties.isEnabled();
+        this.tenants = Set.copyOf(properties.getTenants());
+        this.sharedCollection = mongoTemplate.getCollectionName(User.class);
+        this.prefix = sharedCollection + "_";
+        this.indexes = StreamSupport.stream(IndexResolver.create(mongoTemplate.getConverter().getMappingContext())
+                        .resolveIndexFor(User.class).spliterator(), false)
+                .map(IndexDefinition.class::cast)
+                .toList();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if(!enabled)
+            return;
+        Flux.fromIterable(tenants)
+                .filter(Tenants::isValid)
+                .map(this::collectionOf)
+                .concatMap(this::ensureIndexes)
+                .blockLast();
+    }
+
+    public boolean isEnabled(){
+        return enabled;
+    }
+
+    /** The collection of the tenant in context, which must be one of the configured tenants. */
+    public Mono<String> current(){
+        if(!enabled)
+            return Mono.just(sharedCollection);
+        return Mono.deferContextual(context -> {
+            final String tenant = Tenants.current(context);
+            if(Objects.isNull(tenant))
+                return Mono.error(new IllegalStateException("No tenant in context for a user operation"));
+            if(!tenants.contains(tenant))
+                return Mono.error(new IllegalStateException("Unknown tenant " + tenant + " for a user operation"));
+            return Mono.just(collectionOf(tenant));
+        });
+    }
+
+    /** The collection of every configured tenant, or the shared one while tenancy is off. */
+    public List<String> all(){
+        return enabled ? tenants.stream().filter(Tenants::isValid).map(this::collectionOf).sorted().toList()
+                : List.of(sharedCollection);
+    }
+
+    public <T> Mono<T> mono(final Function<String, Mono<T>> operation){
+        return enabled ? current().flatMap(operation) : operation.apply(sharedCollection);
+    }
+
+    public <T> Flux<T> flux(final Function<String, Flux<T>> operation){
+        return enabled ? current().flatMapMany(operation) : operation.apply(sharedCollection);
+    }
+
+    /** Null while tenancy is off, and for the collections of everything but users. */
+    public String tenantOf(final String collection){
+        if(!enabled || Objects.isNull(collection) || !collection.startsWith(prefix))
+            return null;
+        return collection.substring(prefix.length());
+    }
+
+    String collectionOf(final String tenant){
+        return prefix + tenant;
+    }
+
+    private Mono<String> ensureIndexes(final String collection){
+        return Flux.fromIterable(indexes)
+                .concatMap(index -> mongoTemplate.indexOps(collection).ensureIndex(index))
+                .then(Mono.just(collection))
+                .doOnNext(created -> log.info("Indexes of {} in place", created));
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Fills in {@code createdAt} and {@code searchName} on users stored before
+ * they existed, which filtered listings would otherwise never return. The
+ * creation time comes from the {@code _id} timestamp in one server-side
+ * update; the search key is computed here, the way the mapper does, and
+ * written in unordered batches. Only documents still missing a field are
+ * touched, so running it again, or next to live writes, is harmless.
+ * <p>
+ * Runs in the background once the application is ready, unless
+ * {@code users.search.backfill-on-startup} is off.
+ */
+@Slf4j
+@Component
+@Profile("!in-memory")
+@RequiredArgsConstructor
+public class UserBackfill {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final Document NO_SEARCH_NAME = new Document("searchName", new Document("$exists", false));
+    private static final Document NO_CREATED_AT = new Document("createdAt", new Document("$exists", false));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final TenantCollections collections;
+    private final UserSearchProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(){
+        if(properties.isBackfillOnStartup())
+            backfill().subscribe(
+                    count -> log.info("Backfilled {} users", count),
+                    ex -> log.warn("Backfill of users failed, it runs again on the next start", ex));
+    }
+
+    /** The number of documents updated, in every collection of users. */
+    public Mono<Long> backfill(){
+        return Flux.fromIterable(collections.all())
+                .concatMap(name -> mongoTemplate.getCollection(name)
+                        .flatMap(collection -> createdAt(collection).zipWith(searchName(collection), Long::sum)))
+                .reduce(0L, Long::sum);
+    }
+
+    private Mono<Long> createdAt(final MongoCollection<Document> collection){
+        return Mono.from(collection.updateMany(NO_CREATED_AT,
+                        List.of(new Document("$set", new Document("createdAt", new Document("$toDate", "$_id"))))))
+                .map(result -> result.getModifiedCount());
+    }
+
+    private Mono<Long> searchName(final MongoCollection<Document> collection){
+        return Flux.from(collection.find(NO_SEARCH_NAME)
+                        .projection(new Document("name", 1))
+                        .batchSize(BATCH_SIZE))
+                .map(UserBackfill::withSearchName)
+                .buffer(BATCH_SIZE)
+                .concatMap(batch -> Mono.from(collection.bulkWrite(batch, new BulkWriteOptions().ordered(false))))
+                .reduce(0L, (count, result) -> count + result.getModifiedCount());
+    }
+
+    /** Guarded on the field still missing, so a rename in the meantime keeps its own key. */
+    private static WriteModel<Document> withSearchName(final Document user){
+        return new UpdateOneModel<>(new Document("_id", user.get("_id")).append("searchName", new Document("$exists", false)),
+                new Document("$set", new Document("searchName", User.searchNameOf(user.getString("name")))));
+    }
+}
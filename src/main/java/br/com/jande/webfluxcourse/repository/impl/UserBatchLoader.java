@@ -0,0 +1,150 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.UserBatchLoaderProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces lookups by id that arrive close together into one query for all
+ * of them. The first id opens a batch; the batch is sent when the window
+ * elapses or it holds {@code max-batch-size} distinct ids, whichever comes
+ * first, and each caller gets the user with its id, or nothing. Callers
+ * asking for the same id share one slot in the batch.
+ * <p>
+ * Cancelling a lookup does not take its id out of a batch already sent. An
+ * error of the query fails every lookup of the batch.
+ */
+public class UserBatchLoader {
+
+    private final Function<Collection<String>, Flux<User>> query;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Scheduler scheduler;
+    private final DistributionSummary batchSize;
+    private final Timer wait;
+    private final Counter coalesced;
+
+    /** Guards {@code open}. */
+    private final Object lock = new Object();
+    private Batch open;
+
+    public UserBatchLoader(final Function<Collection<String>, Flux<User>> query,
+                           final UserBatchLoaderProperties properties, final MeterRegistry registry) {
+        this(query, properties, registry, Schedulers.parallel());
+    }
+
+    UserBatchLoader(final Function<Collection<String>, Flux<User>> query,
+                    final UserBatchLoaderProperties properties, final MeterRegistry registry,
+                    final Scheduler scheduler) {
+        this.query = query;
+        this.enabled = properties.isEnabled();
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.scheduler = scheduler;
+        this.batchSize = DistributionSummary.builder("users.batch-loader.batch.size")
+                .description("Distinct ids per batched lookup query")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.wait = Timer.builder("users.batch-loader.wait")
+                .description("Time a lookup waited for its batch to be sent")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.coalesced = Counter.builder("users.batch-loader.coalesced")
+                .description("Lookups that joined a pending lookup of the same id")
+                .register(registry);
+    }
+
+    public Mono<User> load(final String id){
+        if(!enabled || maxBatchSize < 2)
+            return Flux.defer(() -> query.apply(List.of(id))).next();
+        final String key = key(id);
+        return Mono.defer(() -> {
+            final Batch batch;
+            final CompletableFuture<User> user;
+            final boolean full;
+            synchronized (lock){
+                if(Objects.isNull(open)){
+                    open = new Batch();
+                    final Batch scheduled = open;
+                    scheduler.schedule(() -> send(scheduled), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                batch = open;
+                batch.arrived(System.nanoTime());
+                final CompletableFuture<User> waiting = batch.users.get(key);
+                if(Objects.nonNull(waiting)){
+                    coalesced.increment();
+                    user = waiting;
+                } else {
+                    user = new CompletableFuture<>();
+                    batch.users.put(key, user);
+                }
+                full = batch.users.size() >= maxBatchSize;
+            }
+            if(full)
+                send(batch);
+            // other callers wait on the same future, so one cancelling must not complete it
+            return Mono.fromFuture(user, true);
+        });
+    }
+
+    private void send(final Batch batch){
+        final long sentAt = System.nanoTime();
+        synchronized (lock){
+            if(batch.sent)
+                return;
+            batch.sent = true;
+            if(open == batch)
+                open = null;
+        }
+        batchSize.record(batch.users.size());
+        for(int i = 0; i < batch.arrivals; i++)
+            wait.record(sentAt - batch.arrivedAt[i], TimeUnit.NANOSECONDS);
+        Flux.defer(() -> query.apply(batch.users.keySet()))
+                .subscribe(user -> {
+                    final CompletableFuture<User> waiting = batch.users.get(key(user.getId()));
+                    if(Objects.nonNull(waiting))
+                        waiting.complete(user);
+                }, ex -> batch.users.values().forEach(waiting -> waiting.completeExceptionally(ex)),
+                        () -> batch.users.values().forEach(waiting -> waiting.complete(null)));
+    }
+
+    /** Hex ids match whatever case they were asked in, as they do in a query by id. */
+    private static String key(final String id){
+        return ObjectId.isValid(id) ? id.toLowerCase(Locale.ROOT) : id;
+    }
+
+    /** Only changed under the loader's lock, and not at all once sent. */
+    private static final class Batch {
+
+        private final Map<String, CompletableFuture<User>> users = new HashMap<>();
+        private long[] arrivedAt = new long[8];
+        private int arrivals;
+        private boolean sent;
+
+        private void arrived(final long nanos){
+            if(arrivals == arrivedAt.length)
+                arrivedAt = Arrays.copyOf(arrivedAt, arrivals * 2);
+            arrivedAt[arrivals++] = nanos;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import static org.springframework.data.domain.Sort.Direction.ASC;
+
+/**
+ * Keyset queries for filtered listings. Every query is pinned with a hint to
+ * the index behind its most selective filter (email, then name prefix, then
+ * creation range, else {@code _id}), so the planner can never pick a
+ * collection scan; the other filters are checked on what that index returns.
+ * Listings are sorted in the order of that index, {@code (searchName, _id)}
+ * or {@code (createdAt, _id)}, so pages come straight off it without an
+ * in-memory sort, and a page resumes at the index bounds of the last key.
+ * Reads are projected to the fields of the view they feed, so passwords
+ * never leave the database for a listing or a lookup; listings read the
+ * search key only so that name-ordered pages can resume from it.
+ */
+final class UserQueries {
+
+    private static final String ID_INDEX = "_id_";
+    /** U+10FFFF, the highest code point: its UTF-8 bytes, which Mongo compares, sort after any other character's. */
+    static final String MAX_CHARACTER = new String(Character.toChars(Character.MAX_CODE_POINT));
+    private static final String[] SUMMARY_FIELDS = {"id", "name", "email", "createdAt", "searchName"};
+    private static final String[] DETAIL_FIELDS = {"id", "name", "email", "createdAt", "version"};
+
+    private UserQueries(){
+    }
+
+    static Query keyset(final UserFilter filter, final PageKey after){
+        final String sortField = filter.sortField();
+        final Query query = new Query()
+                .with(Objects.isNull(sortField) ? Sort.by(ASC, "id") : Sort.by(ASC, sortField, "id"))
+                .withHint(hintFor(filter));
+        query.fields().include(SUMMARY_FIELDS);
+        final Object afterValue = Objects.isNull(after) ? null : after.value();
+        if(Objects.nonNull(after))
+            query.addCriteria(Objects.isNull(sortField)
+                    ? Criteria.where("id").gt(new ObjectId(after.id()))
+                    : new Criteria().orOperator(Criteria.where(sortField).gt(afterValue),
+                            Criteria.where("id").gt(new ObjectId(after.id()))));
+        if(Objects.nonNull(filter.email()))
+            query.addCriteria(Criteria.where("email").is(filter.email()));
+        if(Objects.nonNull(filter.namePrefix()))
+            query.addCriteria(prefix(UserFilter.SEARCH_NAME, filter.namePrefix(),
+                    UserFilter.SEARCH_NAME.equals(sortField) ? (String) afterValue : null));
+        if(filter.hasCreatedRange())
+            query.addCriteria(createdRange(filter, UserFilter.CREATED_AT.equals(sortField) ? (Instant) afterValue : null));
+        return query;
+    }
+
+    /** Whole documents in id order, walking the {@code _id} index. */
+    static Query dump(final String afterId){
+        final Query query = new Query()
+                .with(Sort.by(ASC, "id"))
+                .withHint(ID_INDEX);
+        if(Objects.nonNull(afterId))
+            query.addCriteria(Criteria.where("id").gt(new ObjectId(afterId)));
+        return query;
+    }
+
+    /** Fields of the detail view, the {@code User} returned by lookups and updates. */
+    static Query detail(final Query query){
+        query.fields().include(DETAIL_FIELDS);
+        return query;
+    }
+
+    static String hintFor(final UserFilter filter){
+        if(Objects.nonNull(filter.email()))
+            return User.EMAIL_INDEX;
+        if(Objects.nonNull(filter.namePrefix()))
+            return User.SEARCH_NAME_INDEX;
+        if(filter.hasCreatedRange())
+            return User.CREATED_AT_INDEX;
+        return ID_INDEX;
+    }
+
+    /**
+     * A range instead of a regex, so the index bounds are always tight. A
+     * resumed page starts at the last sort value instead; together with the
+     * {@code $or} on that value and the id this reads as
+     * {@code (field > v) OR (field = v AND _id > id)}.
+     */
+    private static Criteria prefix(final String field, final String prefix, final String after){
+        final String from = Objects.nonNull(after) && after.compareTo(prefix) > 0 ? after : prefix;
+        return Criteria.where(field).gte(from).lt(prefix + MAX_CHARACTER);
+    }
+
+    private static Criteria createdRange(final UserFilter filter, final Instant after){
+        final Criteria criteria = Criteria.where(UserFilter.CREATED_AT);
+        final Instant from = Objects.isNull(after) || (Objects.nonNull(filter.createdFrom()) && filter.createdFrom().isAfter(after))
+                ? filter.createdFrom() : after;
+        if(Objects.nonNull(from))
+            criteria.gte(from);
+        if(Objects.nonNull(filter.createdTo()))
+            criteria.lt(filter.createdTo());
+        return criteria;
+    }
+}
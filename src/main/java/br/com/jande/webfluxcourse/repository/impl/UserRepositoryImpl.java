@@ -0,0 +1,284 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.MongoClientConfig;
+import br.com.jande.webfluxcourse.config.UserBatchLoaderProperties;
+import br.com.jande.webfluxcourse.config.MongoDriverProperties;
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UpdateOutcome;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoExecutionTimeoutException;
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Repository
+@Profile("!in-memory")
+public class UserRepositoryImpl implements UserRepository {
+
+    private static final int DUPLICATE_KEY_CODE = 11000;
+    private static final String VERSION = "version";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    /**
+     * Listings, the e-mail scan and dumps, which may be served by secondaries.
+     * Lookups by id stay on the primary: they must see a user right after it
+     * is written, or a write-behind flush, a cache refill after a delete and
+     * an ETag could all be answered from a lagging copy.
+     */
+    private final ReactiveMongoTemplate listingTemplate;
+    private final UserSearchProperties searchProperties;
+    private final TenantCollections collections;
+    private final UserBatchLoaderProperties loaderProperties;
+    private final MeterRegistry registry;
+    /** Concurrent lookups by id, sent as one {@link #findAllById(Collection)}, per collection. */
+    private final Map<String, UserBatchLoader> loaders = new ConcurrentHashMap<>();
+
+    public UserRepositoryImpl(final ReactiveMongoTemplate mongoTemplate, final UserSearchProperties searchProperties,
+                              final MongoDriverProperties driverProperties,
+                              final UserBatchLoaderProperties loaderProperties, final MeterRegistry registry,
+                              final TenantCollections collections) {
+        this.mongoTemplate = mongoTemplate;
+        this.listingTemplate = withReadPreference(mongoTemplate, MongoClientConfig.listingReadPreference(driverProperties));
+        this.searchProperties = searchProperties;
+        this.loaderProperties = loaderProperties;
+        this.registry = registry;
+        this.collections = collections;
+    }
+
+    @Override
+    public Mono<User> save(final User user){
+      return collections.mono(collection -> mongoTemplate.save(stampCreation(user), collection));
+    }
+
+    @Override
+    public Mono<User> findById(String id) {
+        return collections.mono(collection -> loaders.computeIfAbsent(collection, this::loader).load(id));
+    }
+
+    @Override
+    public Mono<User> findByEmail(final String email) {
+        return collections.mono(collection -> mongoTemplate.findOne(new Query(Criteria.where("email").is(email)), User.class,
+                collection));
+    }
+
+    @Override
+    public Mono<Boolean> existsByEmail(final String email) {
+        return collections.mono(collection -> mongoTemplate.exists(new Query(Criteria.where("email").is(email)), User.class,
+                collection));
+    }
+
+    /**
+     * A covered scan of the e-mail index: every string sorts after "", the
+     * hint keeps the planner on the index and the projection lets it skip
+     * fetching the documents. Served like the listings; writes a
+     * secondary has not caught up with reach the filter through the change
+     * feed.
+     */
+    @Override
+    public Flux<String> emails(final int batchSize) {
+        final Query query = new Query(Criteria.where("email").gt(""))
+                .withHint(User.EMAIL_INDEX)
+                .cursorBatchSize(batchSize);
+        query.fields().include("email").exclude("_id");
+        return collections.flux(collection -> listingTemplate.find(query, Document.class, collection))
+                .mapNotNull(document -> document.getString("email"));
+    }
+
+    /** Off the listing template, so a long export can be served by a secondary. */
+    @Override
+    public Flux<User> dump(final String afterId, final int batchSize) {
+        return collections.flux(collection -> listingTemplate.find(UserQueries.dump(afterId).cursorBatchSize(batchSize),
+                User.class, collection));
+    }
+
+    @Override
+    public Flux<User> findAllById(final Collection<String> ids) {
+        return collections.flux(collection -> findAllById(ids, collection));
+    }
+
+    @Override
+    public Flux<UserSummary> findPage(final UserFilter filter, final PageKey after, final int limit) {
+        final Query query = UserQueries.keyset(filter, after)
+                .limit(limit)
+                .maxTime(searchProperties.getMaxTime());
+        return summaries(query)
+                .onErrorMap(UserRepositoryImpl::isExecutionTimeout, ex -> new QueryTimeoutException(
+                        "Query exceeded %s, Filter: %s".formatted(searchProperties.getMaxTime(), filter), ex));
+    }
+
+    @Override
+    public Flux<UserSummary> stream(final UserFilter filter, final PageKey after, final int batchSize) {
+        final Query query = UserQueries.keyset(filter, after)
+                .cursorBatchSize(batchSize)
+                .maxTime(searchProperties.getStreamMaxTime());
+        return summaries(query)
+                .onErrorMap(UserRepositoryImpl::isExecutionTimeout, ex -> new QueryTimeoutException(
+                        "Stream exceeded %s, Filter: %s".formatted(searchProperties.getStreamMaxTime(), filter), ex));
+    }
+
+    @Override
+    public Mono<User> findAndRemove(String id) {
+        Query query = new Query();
+        Criteria where = Criteria.where("id").is(id);
+        query.fields().include("id");
+        return collections.mono(collection -> mongoTemplate.findAndRemove(query.addCriteria(where), User.class, collection));
+    }
+
+    @Override
+    public Mono<UpdateOutcome> update(final String id, final User changes, final List<Long> expectedVersions) {
+        final Criteria where = Criteria.where("id").is(id);
+        final Query query = UserQueries.detail(new Query(Objects.isNull(expectedVersions) ? where : where.and(VERSION).in(expectedVersions)));
+
+        return collections.mono(collection -> mongoTemplate.findAndModify(query, toUpdate(changes),
+                        FindAndModifyOptions.options().returnNew(false), User.class, collection)
+                .map(previous -> new UpdateOutcome(previous, updated(previous, changes)))
+                .switchIfEmpty(Mono.defer(() -> Objects.isNull(expectedVersions)
+                        ? Mono.empty()
+                        : mongoTemplate.exists(new Query(Criteria.where("id").is(id)), User.class, collection)
+                                .flatMap(exists -> exists
+                                        ? Mono.error(new OptimisticLockingFailureException(
+                                                "Version mismatch, Id: %s, Type: %s".formatted(id, User.class.getSimpleName())))
+                                        : Mono.empty()))));
+    }
+
+    @Override
+    public Flux<InsertOutcome> insertAll(final List<User> users) {
+        final List<Document> documents = users.stream()
+                .map(this::toDocument)
+                .toList();
+
+        return collections.mono(mongoTemplate::getCollection)
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+                .map(result -> Map.<Integer, BulkWriteError>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity()))))
+                .flatMapIterable(errors -> IntStream.range(0, users.size())
+                        .mapToObj(index -> toOutcome(users.get(index), errors.get(index)))
+                        .toList());
+    }
+
+    /** Decoded straight into the summary record, the projection keeps out every other field. */
+    private Flux<UserSummary> summaries(final Query query){
+        return collections.flux(collection -> listingTemplate.query(User.class)
+                .inCollection(collection)
+                .as(UserSummary.class)
+                .matching(query)
+                .all());
+    }
+
+    private Flux<User> findAllById(final Collection<String> ids, final String collection){
+        return mongoTemplate.find(UserQueries.detail(new Query(Criteria.where("id").in(ids))), User.class, collection);
+    }
+
+    /** Batches only ever hold ids of one collection, so the loader's query is bound to it. */
+    private UserBatchLoader loader(final String collection){
+        return new UserBatchLoader(ids -> findAllById(ids, collection), loaderProperties, registry);
+    }
+
+    private Document toDocument(final User user){
+        if(Objects.isNull(user.getId()))
+            user.setId(ObjectId.get().toHexString());
+        if(Objects.isNull(user.getVersion()))
+            user.setVersion(0L);
+        final Document document = new Document();
+        mongoTemplate.getConverter().write(stampCreation(user), document);
+        return document;
+    }
+
+    private User stampCreation(final User user){
+        if(Objects.isNull(user.getCreatedAt()))
+            user.setCreatedAt(Instant.now());
+        return user;
+    }
+
+    /**
+     * $set of the fields the converter writes for {@code changes} (it skips
+     * nulls), plus $inc of the version, which also starts legacy documents
+     * that predate the version field.
+     */
+    private Update toUpdate(final User changes){
+        final Document document = new Document();
+        mongoTemplate.getConverter().write(changes, document);
+        document.remove("_id");
+        document.remove("_class");
+        document.remove(VERSION);
+
+        final Update update = new Update();
+        document.forEach(update::set);
+        return update.inc(VERSION, 1);
+    }
+
+    /**
+     * The detail view the update left, from the pre-image it returned: what
+     * {@link #toUpdate} sets, applied to the projected fields, one read less
+     * than asking for both.
+     */
+    private static User updated(final User previous, final User changes){
+        final User.UserBuilder updated = previous.toBuilder()
+                .version(Objects.isNull(previous.getVersion()) ? 1L : previous.getVersion() + 1);
+        if(Objects.nonNull(changes.getName()))
+            updated.name(changes.getName());
+        if(Objects.nonNull(changes.getEmail()))
+            updated.email(changes.getEmail());
+        if(Objects.nonNull(changes.getCreatedAt()))
+            updated.createdAt(changes.getCreatedAt());
+        return updated.build();
+    }
+
+    private InsertOutcome toOutcome(final User user, final BulkWriteError error){
+        if(Objects.isNull(error))
+            return InsertOutcome.inserted(user);
+        return InsertOutcome.failed(user, error.getCode() == DUPLICATE_KEY_CODE, error.getMessage());
+    }
+
+    /**
+     * The Spring Data version in use has no per-query read preference, so
+     * listings get a template of their own sharing the factory and converter.
+     * Constructing it re-checks the entity indexes, which is idempotent.
+     */
+    private static ReactiveMongoTemplate withReadPreference(final ReactiveMongoTemplate template,
+                                                            final ReadPreference readPreference){
+        if(readPreference.equals(ReadPreference.primary()))
+            return template;
+        final ReactiveMongoTemplate listings = new ReactiveMongoTemplate(template.getMongoDatabaseFactory(), template.getConverter());
+        listings.setReadPreference(readPreference);
+        return listings;
+    }
+
+    private static boolean isExecutionTimeout(final Throwable ex){
+        for(Throwable cause = ex; Objects.nonNull(cause); cause = cause.getCause())
+            if(cause instanceof MongoExecutionTimeoutException)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.jande.webfluxcourse.service;
+
+import br.com.jande.webfluxcourse.config.UserBulkProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.service.bulk.BulkItemResult;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import br.com.jande.webfluxcourse.validator.RequestValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static br.com.jande.webfluxcourse.service.bulk.BulkItemResult.Status.*;
+
+@Service
+@RequiredArgsConstructor
+public class UserBulkService {
+
+    private static final String DUPLICATED_MESSAGE = "E-mail already registered";
+
+    private final UserRepository repository;
+    private final UserMapper mapper;
+    private final RequestValidator validator;
+    private final UserBulkProperties properties;
+    private final PasswordHasher passwordHasher;
+    private final EmailRegistry emails;
+
+    /**
+     * Validates every request on its own and writes the valid ones in batches.
+     * Emits exactly one result per request, in request order.
+     */
+    public Flux<BulkItemResult> saveAll(final Flux<UserRequest> requests){
+        return requests.index()
+                .map(this::validate)
+                .buffer(properties.getBatchSize())
+                .flatMapSequential(this::insertBatch, properties.getConcurrency());
+    }
+
+    private BulkItemResult validate(final Tuple2<Long, UserRequest> indexed){
+        final BindingResult result = new BeanPropertyBindingResult(indexed.getT2(), "userRequest");
+        validator.validate(indexed.getT2(), result);
+        if(!result.hasErrors())
+            return new BulkItemResult(indexed.getT1(), mapper.toEntity(indexed.getT2()), null, null);
+
+        return new BulkItemResult(indexed.getT1(), null, INVALID, result.getFieldErrors().stream()
+                .sorted(Comparator.comparing(FieldError::getField))
+                .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                .collect(Collectors.joining("; ")));
+    }
+
+    private Flux<BulkItemResult> insertBatch(final List<BulkItemResult> batch){
+        final List<BulkItemResult> pending = batch.stream()
+                .filter(item -> item.status() == null)
+                .toList();
+        if(pending.isEmpty())
+            return Flux.fromIterable(batch);
+
+        return Flux.fromIterable(pending)
+                .flatMapSequential(item -> passwordHasher.hash(item.user().getPassword())
+                        .doOnNext(item.user()::setPassword), passwordHasher.parallelism())
+                .thenMany(Flux.defer(() -> repository.insertAll(pending.stream().map(BulkItemResult::user).toList())))
+                .collectList()
+                .map(outcomes -> merge(batch, pending, outcomes))
+                .onErrorResume(ex -> Flux.fromIterable(batch)
+                        .map(item -> item.status() == null
+                                ? new BulkItemResult(item.index(), item.user(), FAILED, ex.getMessage())
+                                : item)
+                        .collectList())
+                .flatMapIterable(results -> results);
+    }
+
+    private List<BulkItemResult> merge(final List<BulkItemResult> batch, final List<BulkItemResult> pending,
+                                       final List<InsertOutcome> outcomes){
+        final var written = pending.iterator();
+        final var outcome = outcomes.iterator();
+        return batch.stream()
+                .map(item -> item.status() != null ? item : toResult(written.next(), outcome.next()))
+                .toList();
+    }
+
+    private BulkItemResult toResult(final BulkItemResult item, final InsertOutcome outcome){
+        if(outcome.succeeded()){
+            emails.registered(outcome.user().getEmail());
+            return new BulkItemResult(item.index(), outcome.user(), CREATED, null);
+        }
+        if(outcome.duplicateKey())
+            return new BulkItemResult(item.index(), outcome.user(), DUPLICATED, DUPLICATED_MESSAGE);
+        return new BulkItemResult(item.index(), outcome.user(), FAILED, outcome.error());
+    }
+}
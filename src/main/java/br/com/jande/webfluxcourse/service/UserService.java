@@ -1,57 +1,260 @@
 package br.com.jande.webfluxcourse.service;
 
+import br.com.jande.webfluxcourse.config.UserPaginationProperties;
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
 import br.com.jande.webfluxcourse.entity.User;
 import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UpdateOutcome;
+import br.com.jande.webfluxcourse.repository.UserFilter;
 import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.service.cache.UserCache;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCredentialsException;
+import br.com.jande.webfluxcourse.service.exception.InvalidFilterException;
 import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import br.com.jande.webfluxcourse.service.lookup.OrderedLookup;
+import br.com.jande.webfluxcourse.service.lookup.UserLookup;
+import br.com.jande.webfluxcourse.service.pagination.KeysetPage;
+import br.com.jande.webfluxcourse.service.pagination.PageCursor;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import br.com.jande.webfluxcourse.service.writebehind.UserWriteBehind;
+import br.com.jande.webfluxcourse.tenant.Tenants;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import static java.lang.String.format;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository repository;
     private final UserMapper mapper;
+    private final UserPaginationProperties paginationProperties;
+    private final UserSearchProperties searchProperties;
+    private final UserCache cache;
+    private final PasswordHasher passwordHasher;
+    private final UserWriteBehind writeBehind;
+    private final EmailRegistry emails;
+
+    /**
+     * Creates a user. With write-behind on, the user is only journaled here
+     * and {@link #isPending(String)} stays true until it reaches the database.
+     * An e-mail known to be taken fails before the password is hashed.
+     */
     public Mono<User> save(final UserRequest request){
-        return repository.save(mapper.toEntity(request));
+        return emails.isRegistered(request.email())
+                .flatMap(registered -> registered
+                        ? Mono.error(new EmailAlreadyRegisteredException("E-mail already registered"))
+                        : passwordHasher.hash(request.password()))
+                .map(hash -> withPassword(mapper.toEntity(request), hash))
+                .flatMap(user -> writeBehind.isEnabled()
+                        ? writeBehind.submit(user)
+                        : repository.save(user).transformDeferredContextual(this::cached))
+                .doOnNext(user -> emails.registered(request.email()));
     }
 
+    public Mono<Boolean> isEmailAvailable(final String email){
+        return emails.isRegistered(email).map(registered -> !registered);
+    }
+
+    public boolean isPending(final String id){
+        return writeBehind.isPending(id);
+    }
+
+    /** Also finds users accepted in write-behind mode that are not flushed yet. */
     public Mono<User> findById(final String id){
-        return repository.findById(id);
+        return Mono.deferContextual(context -> writeBehind.find(id)
+                .map(Mono::just)
+                .orElseGet(() -> cache.get(Tenants.key(context, id), key -> repository.findById(id).contextWrite(context))));
+    }
+
+    /**
+     * Resolves many ids with one {@code $in} query, skipping the ones already
+     * in the cache. Emits one lookup per requested id, in request order, and
+     * streams each one as soon as every id before it is resolved.
+     */
+    public Flux<UserLookup> findAllById(final List<String> ids){
+        return Flux.deferContextual(context -> {
+            final Map<String, User> cached = new HashMap<>();
+            final Set<String> missing = new LinkedHashSet<>();
+            for(String id : ids){
+                final User user = cache.getIfReady(Tenants.key(context, id));
+                if(Objects.nonNull(user))
+                    cached.put(id, user);
+                else
+                    missing.add(id);
+            }
+
+            final OrderedLookup lookup = new OrderedLookup(ids, cached);
+            final Flux<User> fetched = missing.isEmpty() ? Flux.empty() : repository.findAllById(missing);
+            return Flux.concat(
+                    Flux.defer(() -> Flux.fromIterable(lookup.ready())),
+                    fetched.doOnNext(user -> cache.put(Tenants.key(context, user.getId()), user))
+                            .concatMapIterable(lookup::arrived),
+                    Flux.defer(() -> Flux.fromIterable(lookup.remaining())));
+        });
     }
 
-    public Flux<User> findAll(){
-        return repository.findAll();
+    public Mono<KeysetPage<UserSummary>> findPage(final String after, final Integer limit){
+        return findPage(UserFilter.NONE, after, limit);
+    }
+
+    public Mono<KeysetPage<UserSummary>> findPage(final UserFilter filter, final String after, final Integer limit){
+        final int size = resolveLimit(limit);
+        return repository.findPage(validate(filter), PageCursor.decode(after, filter), size + 1)
+                .onErrorMap(QueryTimeoutException.class, ex -> new InvalidFilterException(
+                        "Filter matches too many users, narrow it down"))
+                .collectList()
+                .map(users -> users.size() > size
+                        ? new KeysetPage<>(users.subList(0, size), PageCursor.encode(PageKey.after(filter, users.get(size - 1))))
+                        : new KeysetPage<>(users, null));
+    }
+
+    public Flux<UserSummary> stream(final String after){
+        return stream(UserFilter.NONE, after);
+    }
+
+    public Flux<UserSummary> stream(final UserFilter filter, final String after){
+        final int batchSize = paginationProperties.getStreamBatchSize();
+        return repository.stream(validate(filter), PageCursor.decode(after, filter), batchSize)
+                .onErrorMap(QueryTimeoutException.class, ex -> new InvalidFilterException(
+                        "Filter matches too many users, narrow it down"))
+                .limitRate(batchSize);
     }
 
     public Mono<User> update(final String id, final UserRequest request){
-        return findById(id)
-                .switchIfEmpty(Mono.error(
-                        new ObjectNotFoundException(
-                                format("Object not found, Id: %s, Type: %s", id, User.class.getSimpleName())
-                        )
-                ))
-                .map(entity -> mapper.toEntity(request, entity))
-                .flatMap(repository::save);
+        return update(id, request, null);
+    }
+
+    /**
+     * Applies the non-null fields of the request in one atomic write. When
+     * {@code expectedVersions} is given the update fails fast with an
+     * {@code OptimisticLockingFailureException} if the document is at none of them.
+     */
+    public Mono<User> update(final String id, final UserRequest request, final List<Long> expectedVersions){
+        final Mono<User> changes = Objects.isNull(request.password())
+                ? Mono.fromSupplier(() -> mapper.toEntity(request))
+                : passwordHasher.hash(request.password()).map(hash -> withPassword(mapper.toEntity(request), hash));
+        return handlerNotFound(afterFlush(id).then(changes)
+                .flatMap(user -> repository.update(id, user, expectedVersions))
+                .doOnNext(this::emailChanged)
+                .map(UpdateOutcome::user), id)
+                .transformDeferredContextual(this::cached);
+    }
+
+    /** Only an update that replaced the stored e-mail frees the old one. */
+    private void emailChanged(final UpdateOutcome outcome){
+        final String previous = outcome.previous().getEmail();
+        if(Objects.equals(previous, outcome.user().getEmail()))
+            return;
+        emails.registered(outcome.user().getEmail());
+        if(Objects.nonNull(previous))
+            emails.released();
+    }
 
+    /**
+     * The user owning these credentials. Unknown e-mails and wrong passwords
+     * fail the same way and take the same time. A password still stored in
+     * plain text, or with a weaker hash, is rehashed once it has matched.
+     */
+    public Mono<User> verify(final UserCredentialsRequest credentials){
+        return repository.findByEmail(credentials.email())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(user -> passwordHasher.matches(credentials.password(), user.map(User::getPassword).orElse(null))
+                        .flatMap(matches -> matches
+                                ? rehashIfNeeded(user.get(), credentials.password())
+                                : Mono.error(new InvalidCredentialsException("Invalid e-mail or password"))));
     }
 
     public Mono<User> delete(final String id){
-        return handlerNotFound(repository.findAndRemove(id), id);
+        return handlerNotFound(afterFlush(id).then(repository.findAndRemove(id))
+                .transformDeferredContextual((removed, context) -> removed
+                        .doOnSuccess(user -> cache.invalidate(Tenants.key(context, id)))), id)
+                .doOnNext(user -> emails.released());
+    }
+
+    /**
+     * Replaces a legacy password with its hash, only if the user has not
+     * changed since it was read. Failing to do so does not fail the
+     * verification; the next one tries again.
+     */
+    private Mono<User> rehashIfNeeded(final User user, final String rawPassword){
+        if(!passwordHasher.needsRehash(user.getPassword()))
+            return Mono.just(user);
+        return passwordHasher.hash(rawPassword)
+                .flatMap(hash -> repository.update(user.getId(), User.builder().password(hash).build(),
+                        Collections.singletonList(user.getVersion())))
+                .map(UpdateOutcome::user)
+                .transformDeferredContextual(this::cached)
+                .onErrorResume(ex -> {
+                    log.warn("Could not rehash the password of user {}: {}", user.getId(), ex.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn(user);
+    }
+
+    /** Updates and deletes of a user still in the write-behind journal wait until it is written. */
+    private Mono<Void> afterFlush(final String id){
+        return Mono.defer(() -> writeBehind.isPending(id) ? writeBehind.whenFlushed(id) : Mono.empty());
+    }
+
+    /** Entries hold the detail view lookups return, whatever wrote them: never the password hash or the search key. */
+    private Mono<User> cached(final Mono<User> users, final ContextView context){
+        return users.doOnNext(user -> cache.put(Tenants.key(context, user.getId()), detail(user)));
+    }
+
+    private static User detail(final User user){
+        return user.toBuilder()
+                .password(null)
+                .searchName(null)
+                .build();
+    }
+
+    private User withPassword(final User user, final String hash){
+        user.setPassword(hash);
+        return user;
+    }
+
+    private UserFilter validate(final UserFilter filter){
+        if(Objects.nonNull(filter.namePrefix()) && filter.namePrefix().length() < searchProperties.getMinPrefixLength())
+            throw new InvalidFilterException(format("Name prefix must have at least %d characters",
+                    searchProperties.getMinPrefixLength()));
+        if(Objects.nonNull(filter.createdFrom()) && Objects.nonNull(filter.createdTo())
+                && !filter.createdFrom().isBefore(filter.createdTo()))
+            throw new InvalidFilterException("createdFrom must be before createdTo");
+        return filter;
+    }
+
+    private int resolveLimit(final Integer limit){
+        if(Objects.isNull(limit) || limit < 1)
+            return paginationProperties.getDefaultLimit();
+        return Math.min(limit, paginationProperties.getMaxLimit());
     }
 
     private <T> Mono<T> handlerNotFound(Mono<T> mono, String id){
-        return mono.switchIfEmpty(Mono.error(
-                new ObjectNotFoundException(
-                        format("Object not found, Id: %s, Type: %s", id, User.class.getSimpleName())
-                ))
-        );
+        return mono.switchIfEmpty(Mono.error(() -> new ObjectNotFoundException(User.class, id)));
     }
 
 }
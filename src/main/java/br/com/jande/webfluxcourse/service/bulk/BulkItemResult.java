@@ -0,0 +1,15 @@
+package br.com.jande.webfluxcourse.service.bulk;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+public record BulkItemResult(
+        long index,
+        User user,
+        Status status,
+        String message
+) {
+
+    public enum Status {
+        CREATED, INVALID, DUPLICATED, FAILED
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.jande.webfluxcourse.service.cache;
+
+import br.com.jande.webfluxcourse.config.UserCacheProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of the user repository. Concurrent misses for
+ * the same key share a single in-flight load; writes replace or drop the entry
+ * so a read after a write never returns the previous document. Keys are ids,
+ * qualified with the tenant when there is one.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "users";
+
+    private final boolean enabled;
+    private final AsyncCache<String, User> cache;
+
+    public UserCache(final UserCacheProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .buildAsync();
+    }
+
+    /** The load runs detached from the caller's pipeline, so a loader needing its context has to carry it. */
+    public Mono<User> get(final String key, final Function<String, Mono<User>> loader){
+        if(!enabled)
+            return loader.apply(key);
+        // cancellation of one subscriber must not cancel the load shared with the others
+        return Mono.fromFuture(() -> cache.get(key, (k, executor) -> loader.apply(k).toFuture()), true);
+    }
+
+    /** The cached user when it is already loaded, without triggering or waiting for a load. */
+    public User getIfReady(final String key){
+        if(!enabled)
+            return null;
+        final CompletableFuture<User> future = cache.getIfPresent(key);
+        if(Objects.isNull(future) || !future.isDone() || future.isCompletedExceptionally())
+            return null;
+        return future.getNow(null);
+    }
+
+    public void put(final String key, final User user){
+        if(enabled && Objects.nonNull(user.getId()))
+            cache.put(key, CompletableFuture.completedFuture(user));
+    }
+
+    public void invalidate(final String key){
+        cache.synchronous().invalidate(key);
+    }
+
+    public CacheStats stats(){
+        return cache.synchronous().stats();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        new CaffeineCacheMetrics<>(cache.synchronous(), CACHE_NAME, Tags.empty()).bindTo(registry);
+    }
+}
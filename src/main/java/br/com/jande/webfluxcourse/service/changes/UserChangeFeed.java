@@ -0,0 +1,178 @@
+package br.com.jande.webfluxcourse.service.changes;
+
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserChangeSource;
+import br.com.jande.webfluxcourse.service.exception.ResumeTokenExpiredException;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static br.com.jande.webfluxcourse.config.UserChangesProperties.Overflow.DROP;
+
+/**
+ * Fans one upstream change cursor out to any number of subscribers. The last
+ * {@code historySize} changes stay in memory, so a subscriber that resumes
+ * with a recent token is served from the shared cursor too; only older tokens
+ * open a cursor of their own. Each subscriber gets a bounded buffer, and a slow
+ * one either loses its oldest changes or is disconnected, without holding back
+ * the others.
+ */
+@Slf4j
+@Component
+public class UserChangeFeed implements MeterBinder, DisposableBean {
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final UserChangeSource source;
+    private final UserChangesProperties properties;
+    private final Sinks.Many<SequencedChange> shared;
+    private final Map<String, Long> sequenceByToken;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private volatile Disposable upstream;
+
+    /** Guards the sequence, the token index and emissions into {@code shared}. */
+    private final Object lock = new Object();
+    private long sequence;
+    private String lastToken;
+
+    public UserChangeFeed(final UserChangeSource source, final UserChangesProperties properties) {
+        this.source = source;
+        this.properties = properties;
+        this.shared = Sinks.many().replay().limit(properties.getHistorySize());
+        this.sequenceByToken = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > properties.getHistorySize();
+            }
+        };
+    }
+
+    /**
+     * Changes after {@code resumeAfter}, or from now on when it is null. Fails
+     * with a {@link ResumeTokenExpiredException} when the token is too old to
+     * resume from. Only changes of the tenant in context, when there is one.
+     */
+    public Flux<UserChange> changes(final String resumeAfter){
+        return Flux.deferContextual(context -> {
+                    connect();
+                    final Long after = resumePoint(resumeAfter);
+                    final Flux<UserChange> changes = Objects.nonNull(after)
+                            ? shared.asFlux().filter(change -> change.sequence() > after).map(SequencedChange::change)
+                            : source.changes(resumeAfter).onErrorMap(DataRetrievalFailureException.class,
+                                    ex -> new ResumeTokenExpiredException(ex.getMessage()));
+                    final String tenant = Tenants.current(context);
+                    return bounded(Objects.isNull(tenant) ? changes : changes.filter(change -> tenant.equals(change.tenant())));
+                })
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("users.changes.subscribers", subscribers, AtomicInteger::get)
+                .description("Open change feed subscriptions")
+                .register(registry);
+        FunctionCounter.builder("users.changes.dropped", dropped, LongAdder::sum)
+                .description("Changes dropped from the buffer of a slow subscriber")
+                .register(registry);
+        FunctionCounter.builder("users.changes.disconnected", disconnected, LongAdder::sum)
+                .description("Subscribers disconnected because their buffer overflowed")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        if(Objects.nonNull(upstream))
+            upstream.dispose();
+        synchronized (lock){
+            shared.tryEmitComplete();
+        }
+    }
+
+    /** Shared position to resume from, or null when only a cursor of its own can serve the token. */
+    private Long resumePoint(final String resumeAfter){
+        synchronized (lock){
+            if(Objects.isNull(resumeAfter))
+                return sequence;
+            return sequenceByToken.get(resumeAfter);
+        }
+    }
+
+    private Flux<UserChange> bounded(final Flux<UserChange> changes){
+        if(properties.getOverflow() == DROP)
+            return changes.onBackpressureBuffer(properties.getBufferSize(), change -> dropped.increment(),
+                    BufferOverflowStrategy.DROP_OLDEST);
+        return changes.onBackpressureBuffer(properties.getBufferSize(), change -> disconnected.increment(),
+                        BufferOverflowStrategy.ERROR)
+                .onErrorResume(Exceptions::isOverflow, ex -> Mono.empty());
+    }
+
+    /**
+     * Opens the shared cursor on first use, resuming after the last change
+     * seen whenever it has to reconnect. Subscribes outside {@code lock}: a
+     * source may publish synchronously from its own critical section.
+     */
+    private void connect(){
+        if(!connected.compareAndSet(false, true))
+            return;
+        upstream = Flux.defer(() -> source.changes(lastToken()))
+                .doOnError(DataRetrievalFailureException.class, ex -> forgetLastToken())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF)
+                        .maxBackoff(MAX_BACKOFF)
+                        .transientErrors(true)
+                        .doBeforeRetry(retry -> log.warn("User change stream failed, reconnecting", retry.failure())))
+                .subscribe(this::publish);
+    }
+
+    private void publish(final UserChange change){
+        synchronized (lock){
+            final long next = ++sequence;
+            sequenceByToken.put(change.token(), next);
+            lastToken = change.token();
+            shared.emitNext(new SequencedChange(next, change), Sinks.EmitFailureHandler.FAIL_FAST);
+        }
+    }
+
+    private String lastToken(){
+        synchronized (lock){
+            return lastToken;
+        }
+    }
+
+    private void forgetLastToken(){
+        synchronized (lock){
+            log.warn("Resume token {} expired, the change feed has a gap", lastToken);
+            lastToken = null;
+        }
+    }
+
+    private record SequencedChange(long sequence, UserChange change) {
+    }
+}
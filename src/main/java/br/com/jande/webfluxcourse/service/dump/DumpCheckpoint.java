@@ -0,0 +1,50 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+
+/**
+ * Progress of a dump as of its last checkpoint: {@code documents} done, and
+ * for an export the id of the last one and the length of the file holding
+ * them, with every compressed member closed. The tenant is the one the
+ * dump was running for, null without tenancy.
+ */
+record DumpCheckpoint(String tenant, String lastId, long offset, long documents) {
+
+    static final DumpCheckpoint START = new DumpCheckpoint(null, null, 0, 0);
+
+    /**
+     * {@link #START} when there is none; a checkpoint left by another tenant is
+     * refused, resuming it would mix two tenants' users in one dump or collection.
+     */
+    static DumpCheckpoint read(final Path path, final String tenant) throws IOException {
+        if(!Files.exists(path))
+            return START;
+        final Document document = Document.parse(Files.readString(path, StandardCharsets.UTF_8));
+        final DumpCheckpoint checkpoint = new DumpCheckpoint(document.getString("tenant"), document.getString("lastId"),
+                document.get("offset", Number.class).longValue(), document.get("documents", Number.class).longValue());
+        if(!Objects.equals(checkpoint.tenant(), tenant))
+            throw new InvalidDumpException("Checkpoint " + path.getFileName() + " belongs to "
+                    + (Objects.isNull(checkpoint.tenant()) ? "no tenant" : "tenant " + checkpoint.tenant())
+                    + ", run it again without resuming");
+        return checkpoint;
+    }
+
+    /** Replaces the previous checkpoint in one rename, so a crash leaves either one whole. */
+    void write(final Path path) throws IOException {
+        final Document document = new Document("tenant", tenant)
+                .append("lastId", lastId)
+                .append("offset", offset)
+                .append("documents", documents);
+        final Path next = path.resolveSibling(path.getFileName() + ".next");
+        Files.writeString(next, document.toJson(), StandardCharsets.UTF_8);
+        Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of a dump, told apart by the file extension. Both codecs read
+ * a file of several members (gzip) or frames (zstd) back to back as one
+ * stream, which is what lets a resumed export append to a checkpoint.
+ */
+public enum DumpCompression {
+
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private final String extension;
+
+    DumpCompression(final String extension) {
+        this.extension = extension;
+    }
+
+    public String extension(){
+        return extension;
+    }
+
+    /** Closing the returned stream ends the member or frame and closes {@code out}. */
+    OutputStream compress(final OutputStream out, final int bufferSize, final int zstdLevel) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, bufferSize);
+            case ZSTD -> new ZstdOutputStreamNoFinalizer(out, zstdLevel);
+        };
+    }
+
+    InputStream decompress(final InputStream in, final int bufferSize) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, bufferSize);
+            case ZSTD -> new ZstdInputStreamNoFinalizer(in);
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * A dump in the dump directory. Names are plain file names, so a request can
+ * never reach outside the directory; the extension picks the format and the
+ * compression, as in {@code users.ndjson.zst} or {@code users.bson.gz}.
+ */
+record DumpFile(String name, Path path, DumpFormat format, DumpCompression compression) {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+
+    static DumpFile resolve(final Path directory, final String name){
+        if(Objects.isNull(name) || !NAME.matcher(name).matches())
+            throw new InvalidDumpException("Dump names are letters, digits, '.', '-' and '_', at most 128 characters");
+        DumpCompression compression = DumpCompression.NONE;
+        for(DumpCompression candidate : DumpCompression.values())
+            if(!candidate.extension().isEmpty() && name.endsWith(candidate.extension()))
+                compression = candidate;
+        final String base = name.substring(0, name.length() - compression.extension().length());
+        for(DumpFormat format : DumpFormat.values())
+            if(base.endsWith(format.extension()) && base.length() > format.extension().length())
+                return new DumpFile(name, directory.resolve(name), format, compression);
+        throw new InvalidDumpException("Dump names end in .ndjson or .bson, optionally followed by .gz or .zst");
+    }
+
+    /** Where the progress of an export or an import of this dump is kept. */
+    Path checkpoint(final String operation){
+        return path.resolveSibling(name + "." + operation + "-checkpoint");
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+/** How users are laid out in a dump, told apart by the file extension. */
+public enum DumpFormat {
+
+    /** One relaxed Extended JSON document per line. */
+    NDJSON(".ndjson"),
+    /** Length-prefixed BSON documents back to back, like mongodump writes them. */
+    BSON(".bson");
+
+    private final String extension;
+
+    DumpFormat(final String extension) {
+        this.extension = extension;
+    }
+
+    public String extension(){
+        return extension;
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import com.github.luben.zstd.ZstdIOException;
+import org.bson.BsonInvalidOperationException;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.json.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.zip.ZipException;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/** Reads the documents of a dump one at a time, through a file channel and a decompressor. */
+final class DumpReader implements Closeable {
+
+    /** Largest document Mongo stores, plus room for the length prefix. */
+    private static final int MAX_DOCUMENT_SIZE = 16 * 1024 * 1024 + 16 * 1024;
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    private final DumpFile file;
+    private final InputStream in;
+    private final BufferedReader lines;
+    private final byte[] length = new byte[4];
+    private long read;
+
+    private DumpReader(final DumpFile file, final InputStream in) {
+        this.file = file;
+        this.in = in;
+        this.lines = file.format() == DumpFormat.NDJSON ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)) : null;
+    }
+
+    static DumpReader open(final DumpFile file, final int bufferSize) throws IOException {
+        if(!Files.isRegularFile(file.path()))
+            throw new InvalidDumpException("No dump named " + file.name());
+        final FileChannel channel = FileChannel.open(file.path(), READ);
+        // an export of no users writes no compressed member at all
+        if(channel.size() == 0){
+            channel.close();
+            return new DumpReader(file, InputStream.nullInputStream());
+        }
+        try {
+            return new DumpReader(file, new BufferedInputStream(
+                    file.compression().decompress(Channels.newInputStream(channel), bufferSize), bufferSize));
+        } catch (IOException ex){
+            channel.close();
+            throw new InvalidDumpException("Dump " + file.name() + " is not " + file.compression().name().toLowerCase() + " compressed");
+        }
+    }
+
+    /** The next document, or null at the end of the dump. */
+    Document next() throws IOException {
+        try {
+            final Document document = file.format() == DumpFormat.NDJSON ? nextLine() : nextBson();
+            if(Objects.nonNull(document))
+                read++;
+            return document;
+        } catch (JsonParseException | BsonInvalidOperationException | IllegalArgumentException | ZipException | EOFException
+                 | ZstdIOException ex){
+            throw corrupt(ex.getMessage());
+        }
+    }
+
+    /** Reads past {@code documents} documents without decoding them into users. */
+    long skip(final long documents) throws IOException {
+        while (read < documents && Objects.nonNull(next()))
+            ;
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Document nextLine() throws IOException {
+        for(String line = lines.readLine(); Objects.nonNull(line); line = lines.readLine())
+            if(!line.isBlank())
+                return Document.parse(line);
+        return null;
+    }
+
+    private Document nextBson() throws IOException {
+        final int first = in.readNBytes(length, 0, length.length);
+        if(first == 0)
+            return null;
+        if(first < length.length)
+            throw corrupt("truncated length");
+        final int size = (length[0] & 0xff) | (length[1] & 0xff) << 8 | (length[2] & 0xff) << 16 | (length[3] & 0xff) << 24;
+        if(size < 5 || size > MAX_DOCUMENT_SIZE)
+            throw corrupt("invalid document length " + size);
+        final byte[] bytes = new byte[size];
+        System.arraycopy(length, 0, bytes, 0, length.length);
+        if(in.readNBytes(bytes, length.length, size - length.length) < size - length.length)
+            throw corrupt("truncated document");
+        return new RawBsonDocument(bytes).decode(CODEC);
+    }
+
+    private InvalidDumpException corrupt(final String reason){
+        return new InvalidDumpException("Dump " + file.name() + " is corrupt after " + read + " documents: " + reason);
+    }
+}
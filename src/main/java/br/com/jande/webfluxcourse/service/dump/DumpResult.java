@@ -0,0 +1,10 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+/**
+ * Outcome of an export or an import. {@code documents} counts every user of
+ * the dump, including the {@code resumedAfter} ones done before a resume; an
+ * import also reports users it found already stored and ones it failed to
+ * insert. {@code bytes} is the size of the dump file.
+ */
+public record DumpResult(String file, long documents, long duplicates, long failed, long resumedAfter, long bytes) {
+}
@@ -0,0 +1,118 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.config.UserDumpProperties;
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends documents to a dump through a file channel, a buffer and a
+ * compressor, holding nothing but those buffers. {@link #sync()} closes the
+ * current compressed member, so the file read up to that point is a complete
+ * dump that a resumed export can append to.
+ */
+final class DumpWriter implements Closeable {
+
+    static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.RELAXED).build();
+    private static final DocumentCodec CODEC = new DocumentCodec();
+    private static final EncoderContext ENCODER = EncoderContext.builder().build();
+
+    private final FileChannel channel;
+    private final DumpFile file;
+    private final UserDumpProperties properties;
+    private final BasicOutputBuffer bson = new BasicOutputBuffer();
+    /** The open compressed member, null between {@link #sync()} and the next write. */
+    private OutputStream out;
+
+    private DumpWriter(final FileChannel channel, final DumpFile file, final UserDumpProperties properties) {
+        this.channel = channel;
+        this.file = file;
+        this.properties = properties;
+    }
+
+    /** Positioned at {@code offset}, dropping whatever a failed run wrote after it. */
+    static DumpWriter open(final DumpFile file, final long offset, final UserDumpProperties properties) throws IOException {
+        Files.createDirectories(file.path().getParent());
+        final FileChannel channel = FileChannel.open(file.path(), CREATE, WRITE);
+        if(channel.size() < offset){
+            channel.close();
+            throw new InvalidDumpException("Dump " + file.name() + " is shorter than its checkpoint, export it again without resuming");
+        }
+        channel.truncate(offset);
+        channel.position(offset);
+        return new DumpWriter(channel, file, properties);
+    }
+
+    void write(final Document document) throws IOException {
+        if(Objects.isNull(out))
+            out = new BufferedOutputStream(file.compression().compress(new MemberOutputStream(Channels.newOutputStream(channel)),
+                    properties.getBufferSize(), properties.getZstdLevel()), properties.getBufferSize());
+        switch (file.format()) {
+            case NDJSON -> {
+                out.write(document.toJson(JSON).getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+            case BSON -> {
+                bson.truncateToPosition(0);
+                CODEC.encode(new BsonBinaryWriter(bson), document, ENCODER);
+                bson.pipe(out);
+            }
+        }
+    }
+
+    /** Closes the compressed member and forces it to disk; the file length, where the next member starts. */
+    long sync() throws IOException {
+        if(Objects.nonNull(out)){
+            out.close();
+            out = null;
+        }
+        channel.force(false);
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /** Keeps the channel open when a compressor closes the stream under it at the end of a member. */
+    private static final class MemberOutputStream extends FilterOutputStream {
+
+        private MemberOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
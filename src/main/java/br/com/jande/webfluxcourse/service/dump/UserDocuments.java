@@ -0,0 +1,50 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.entity.User;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Users as the documents Mongo stores for them: ObjectId ids, dates for
+ * instants, no {@code _class}. A dump of the collection taken with the
+ * database tools reads the same way.
+ */
+final class UserDocuments {
+
+    private UserDocuments(){
+    }
+
+    static Document toDocument(final User user){
+        final Document document = new Document("_id", ObjectId.isValid(user.getId()) ? new ObjectId(user.getId()) : user.getId());
+        putIfPresent(document, "name", user.getName());
+        putIfPresent(document, "searchName", user.getSearchName());
+        putIfPresent(document, "email", user.getEmail());
+        putIfPresent(document, "password", user.getPassword());
+        putIfPresent(document, "createdAt", Objects.isNull(user.getCreatedAt()) ? null : Date.from(user.getCreatedAt()));
+        putIfPresent(document, "version", user.getVersion());
+        return document;
+    }
+
+    static User toUser(final Document document){
+        final Object id = document.get("_id");
+        final Date createdAt = document.getDate("createdAt");
+        final Number version = document.get("version", Number.class);
+        return User.builder()
+                .id(id instanceof ObjectId objectId ? objectId.toHexString() : Objects.toString(id, null))
+                .name(document.getString("name"))
+                .searchName(document.getString("searchName"))
+                .email(document.getString("email"))
+                .password(document.getString("password"))
+                .createdAt(Objects.isNull(createdAt) ? null : createdAt.toInstant())
+                .version(Objects.isNull(version) ? null : version.longValue())
+                .build();
+    }
+
+    private static void putIfPresent(final Document document, final String key, final Object value){
+        if(Objects.nonNull(value))
+            document.put(key, value);
+    }
+}
@@ -0,0 +1,252 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.config.UserDumpProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exports the users of the collection in context to a dump file and imports
+ * them back, at constant memory whatever the size of the collection.
+ * <p>
+ * An export walks the {@code _id} index with a bounded cursor batch and
+ * writes each batch on a worker while the next one is fetched. An import
+ * reads the dump on a worker and inserts up to {@code import-concurrency}
+ * batches at once, passwords as they were hashed; users already stored,
+ * by id or by e-mail, are counted as duplicates and left alone.
+ * <p>
+ * Both save a checkpoint every {@code checkpoint-interval} users and resume
+ * from it when asked to, repeating at most that many users; the checkpoint
+ * records the tenant, and only that tenant can resume it. A dump is only ever
+ * handled by one export or import at a time, and an export starting over
+ * replaces an existing dump only when told to overwrite it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserDump {
+
+    private static final String EXPORT = "export";
+    private static final String IMPORT = "import";
+
+    private final UserRepository repository;
+    private final EmailRegistry emails;
+    private final UserDumpProperties properties;
+    private final Set<Path> running = ConcurrentHashMap.newKeySet();
+
+    public Mono<DumpResult> exportTo(final String name, final boolean resume, final boolean overwrite){
+        return Mono.deferContextual(context -> Mono.using(
+                        () -> new Export(claim(name), Tenants.current(context), resume, overwrite),
+                        export -> repository.dump(export.checkpoint.lastId(), properties.getBatchSize())
+                                .buffer(properties.getBatchSize())
+                                .publishOn(Schedulers.boundedElastic(), 1)
+                                .doOnNext(export::write)
+                                .then(Mono.fromCallable(export::finish)),
+                        Export::close))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    public Mono<DumpResult> importFrom(final String name, final boolean resume){
+        return Mono.deferContextual(context -> Mono.using(
+                        () -> new Import(claim(name), Tenants.current(context), resume),
+                        load -> Flux.<User>generate(sink -> {
+                                    final User user = load.next();
+                                    if(Objects.isNull(user))
+                                        sink.complete();
+                                    else
+                                        sink.next(user);
+                                })
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .buffer(properties.getBatchSize())
+                                .flatMapSequential(batch -> repository.insertAll(batch).collectList(),
+                                        properties.getImportConcurrency(), 1)
+                                .publishOn(Schedulers.boundedElastic(), 1)
+                                .doOnNext(load::record)
+                                .then(Mono.fromCallable(load::finish)),
+                        Import::close))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private DumpFile claim(final String name){
+        final DumpFile file = DumpFile.resolve(properties.getDirectory(), name);
+        if(!running.add(file.path()))
+            throw new InvalidDumpException("Dump " + name + " is already being exported or imported");
+        return file;
+    }
+
+    private static long size(final DumpFile file){
+        try {
+            return Files.size(file.path());
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /** An export in progress; owns the claim on its file from construction until closed. */
+    private final class Export {
+
+        private final DumpFile file;
+        private final String tenant;
+        private final Path checkpointPath;
+        private final DumpCheckpoint checkpoint;
+        private final DumpWriter writer;
+        private String lastId;
+        private long documents;
+        private long sinceCheckpoint;
+
+        private Export(final DumpFile file, final String tenant, final boolean resume, final boolean overwrite) throws IOException {
+            this.file = file;
+            this.tenant = tenant;
+            this.checkpointPath = file.checkpoint(EXPORT);
+            try {
+                this.checkpoint = resume ? DumpCheckpoint.read(checkpointPath, tenant) : DumpCheckpoint.START;
+                if(checkpoint == DumpCheckpoint.START && !overwrite && Files.exists(file.path()))
+                    throw new InvalidDumpException("Dump " + file.name() + " already exists, pass overwrite to replace it");
+                this.writer = DumpWriter.open(file, checkpoint.offset(), properties);
+            } catch (IOException | RuntimeException ex){
+                running.remove(file.path());
+                throw ex;
+            }
+            this.lastId = checkpoint.lastId();
+            this.documents = checkpoint.documents();
+        }
+
+        private void write(final List<User> users){
+            try {
+                for(User user : users){
+                    writer.write(UserDocuments.toDocument(user));
+                    lastId = user.getId();
+                    documents++;
+                    if(++sinceCheckpoint >= properties.getCheckpointInterval())
+                        checkpoint();
+                }
+            } catch (IOException ex){
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        private void checkpoint() throws IOException {
+            new DumpCheckpoint(tenant, lastId, writer.sync(), documents).write(checkpointPath);
+            sinceCheckpoint = 0;
+            log.info("Exported {} users to {}", documents, file.name());
+        }
+
+        private DumpResult finish() throws IOException {
+            writer.sync();
+            Files.deleteIfExists(checkpointPath);
+            log.info("Export of {} users to {} complete", documents, file.name());
+            return new DumpResult(file.name(), documents, 0, 0, checkpoint.documents(), size(file));
+        }
+
+        private void close(){
+            try {
+                writer.close();
+            } catch (IOException ex){
+                log.warn("Could not close dump {}", file.name(), ex);
+            } finally {
+                running.remove(file.path());
+            }
+        }
+    }
+
+    /** An import in progress; owns the claim on its file from construction until closed. */
+    private final class Import {
+
+        private final DumpFile file;
+        private final String tenant;
+        private final Path checkpointPath;
+        private final DumpReader reader;
+        private final long resumedAfter;
+        private long documents;
+        private long duplicates;
+        private long failed;
+        private long sinceCheckpoint;
+
+        private Import(final DumpFile file, final String tenant, final boolean resume) throws IOException {
+            this.file = file;
+            this.tenant = tenant;
+            this.checkpointPath = file.checkpoint(IMPORT);
+            DumpReader opened = null;
+            try {
+                final DumpCheckpoint checkpoint = resume ? DumpCheckpoint.read(checkpointPath, tenant) : DumpCheckpoint.START;
+                opened = DumpReader.open(file, properties.getBufferSize());
+                this.resumedAfter = opened.skip(checkpoint.documents());
+            } catch (IOException | RuntimeException ex){
+                if(Objects.nonNull(opened))
+                    opened.close();
+                running.remove(file.path());
+                throw ex;
+            }
+            this.reader = opened;
+            this.documents = resumedAfter;
+        }
+
+        private User next(){
+            try {
+                final Document document = reader.next();
+                return Objects.isNull(document) ? null : UserDocuments.toUser(document);
+            } catch (IOException ex){
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /** Batches arrive in dump order, so everything up to the last one recorded is done. */
+        private void record(final List<InsertOutcome> outcomes){
+            for(InsertOutcome outcome : outcomes){
+                if(outcome.succeeded())
+                    emails.registered(outcome.user().getEmail());
+                else if(outcome.duplicateKey())
+                    duplicates++;
+                else
+                    failed++;
+            }
+            documents += outcomes.size();
+            sinceCheckpoint += outcomes.size();
+            if(sinceCheckpoint >= properties.getCheckpointInterval()){
+                try {
+                    new DumpCheckpoint(tenant, null, 0, documents).write(checkpointPath);
+                } catch (IOException ex){
+                    throw new UncheckedIOException(ex);
+                }
+                sinceCheckpoint = 0;
+                log.info("Imported {} users from {}", documents, file.name());
+            }
+        }
+
+        private DumpResult finish() throws IOException {
+            Files.deleteIfExists(checkpointPath);
+            log.info("Import of {} users from {} complete, {} already stored, {} failed",
+                    documents, file.name(), duplicates, failed);
+            return new DumpResult(file.name(), documents, duplicates, failed, resumedAfter, size(file));
+        }
+
+        private void close(){
+            try {
+                reader.close();
+            } catch (IOException ex){
+                log.warn("Could not close dump {}", file.name(), ex);
+            } finally {
+                running.remove(file.path());
+            }
+        }
+    }
+}
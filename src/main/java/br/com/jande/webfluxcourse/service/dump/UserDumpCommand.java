@@ -0,0 +1,68 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The command line mode of the application: {@code --export=<dump>} or
+ * {@code --import=<dump>}, with {@code --resume} to continue from the last
+ * checkpoint, {@code --overwrite} to replace an existing dump on export and
+ * {@code --tenant=<id>} when tenancy is on. Runs the dump and
+ * lets the application exit; without either option it does nothing.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserDumpCommand implements ApplicationRunner {
+
+    private static final String EXPORT = "export";
+    private static final String IMPORT = "import";
+    private static final String RESUME = "resume";
+    private static final String OVERWRITE = "overwrite";
+    private static final String TENANT = "tenant";
+
+    private final UserDump dump;
+
+    /** Whether the arguments ask for a dump rather than for the server. */
+    public static boolean isDump(final String... args){
+        for(String arg : args)
+            if(arg.startsWith("--" + EXPORT + "=") || arg.startsWith("--" + IMPORT + "="))
+                return true;
+        return false;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) {
+        final String export = single(args, EXPORT);
+        final String load = single(args, IMPORT);
+        if(Objects.isNull(export) && Objects.isNull(load))
+            return;
+        if(Objects.nonNull(export) && Objects.nonNull(load))
+            throw new IllegalArgumentException("Pass either --export or --import, not both");
+
+        final boolean resume = args.containsOption(RESUME);
+        final String tenant = single(args, TENANT);
+        Mono<DumpResult> result = Objects.nonNull(export) ? dump.exportTo(export, resume, args.containsOption(OVERWRITE))
+                : dump.importFrom(load, resume);
+        if(Objects.nonNull(tenant))
+            result = result.contextWrite(Tenants.of(tenant));
+        log.info("Dump finished: {}", result.block());
+    }
+
+    private static String single(final ApplicationArguments args, final String option){
+        final List<String> values = args.getOptionValues(option);
+        if(Objects.isNull(values) || values.isEmpty())
+            return null;
+        if(values.size() > 1)
+            throw new IllegalArgumentException("--" + option + " given more than once");
+        return values.get(0);
+    }
+}
@@ -0,0 +1,114 @@
+package br.com.jande.webfluxcourse.service.email;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of e-mails. {@link #mightContain(String)} never
+ * misses an e-mail that was {@link #put(String) put}, and wrongly matches an
+ * absent one with roughly the false-positive rate it was sized for, as long as
+ * it holds no more than {@code expectedElements}. E-mails cannot be removed.
+ * <p>
+ * The {@code k} bit positions come from two 64-bit hashes of the characters
+ * (Kirsch and Mitzenmacher), so checking an e-mail allocates nothing.
+ */
+public final class EmailBloomFilter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashCount;
+    private final long expectedElements;
+    private final AtomicLong bitCount = new AtomicLong();
+    private final AtomicLong elements = new AtomicLong();
+
+    public EmailBloomFilter(final long expectedElements, final double falsePositiveRate) {
+        if(expectedElements < 1)
+            throw new IllegalArgumentException("expectedElements must be positive");
+        if(falsePositiveRate <= 0 || falsePositiveRate >= 1)
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        final double bits = -expectedElements * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        final long wordCount = Math.max(1, (long) Math.ceil(bits / Long.SIZE));
+        if(wordCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Filter for " + expectedElements + " e-mails does not fit in memory");
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = wordCount * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round(bitSize / (double) expectedElements * Math.log(2)));
+        this.expectedElements = expectedElements;
+    }
+
+    /** Adds the e-mail; returns whether it was new to the filter (false positives count as not new). */
+    public boolean put(final String email){
+        final long hash1 = hash(email);
+        final long hash2 = mix(hash1 + GOLDEN_GAMMA) | 1;
+        boolean changed = false;
+        for(int i = 0; i < hashCount; i++)
+            changed |= set(Long.remainderUnsigned(hash1 + i * hash2, bitSize));
+        if(changed)
+            elements.incrementAndGet();
+        return changed;
+    }
+
+    public boolean mightContain(final String email){
+        final long hash1 = hash(email);
+        final long hash2 = mix(hash1 + GOLDEN_GAMMA) | 1;
+        for(int i = 0; i < hashCount; i++){
+            final long bit = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+            if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** E-mails put so far, slightly low: an e-mail that only hit bits already set is not counted. */
+    public long approximateElementCount(){
+        return elements.get();
+    }
+
+    public long expectedElements(){
+        return expectedElements;
+    }
+
+    public long byteSize(){
+        return bitSize / Byte.SIZE;
+    }
+
+    public int hashCount(){
+        return hashCount;
+    }
+
+    /** The chance an absent e-mail matches now, from how full the filter is. */
+    public double expectedFalsePositiveRate(){
+        return Math.pow((double) bitCount.get() / bitSize, hashCount);
+    }
+
+    private boolean set(final long bit){
+        final int index = (int) (bit >>> 6);
+        final long mask = 1L << bit;
+        long word;
+        do {
+            word = words.get(index);
+            if((word & mask) != 0)
+                return false;
+        } while (!words.compareAndSet(index, word, word | mask));
+        bitCount.incrementAndGet();
+        return true;
+    }
+
+    /** FNV-1a over the UTF-16 code units, finished with a 64-bit avalanche mix. */
+    private static long hash(final String email){
+        long hash = FNV_OFFSET;
+        for(int i = 0; i < email.length(); i++)
+            hash = (hash ^ email.charAt(i)) * FNV_PRIME;
+        return mix(hash);
+    }
+
+    private static long mix(long value){
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
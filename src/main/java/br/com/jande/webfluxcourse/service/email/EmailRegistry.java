@@ -0,0 +1,219 @@
+package br.com.jande.webfluxcourse.service.email;
+
+import br.com.jande.webfluxcourse.config.EmailFilterProperties;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.writebehind.UserWriteBehind;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.DELETE;
+
+/**
+ * Which e-mails are registered, answered from an {@link EmailBloomFilter}
+ * when it can: an e-mail the filter has never seen is free without a database
+ * round trip, and only possible hits are looked up on the unique index.
+ * <p>
+ * The filter is built in the background by scanning every e-mail, and checks
+ * go to the index until it is ready. Writes through this instance and, with
+ * {@code follow-changes}, the change feed keep it current. Deleted or replaced
+ * e-mails cannot be taken out, so they only cost lookups until enough of them
+ * pile up to rebuild the filter, which is then sized for twice the e-mails
+ * seen. E-mails written meanwhile go to both filters. Unique e-mails are still
+ * enforced by the index; a stale answer only affects the availability check.
+ */
+@Slf4j
+@Component
+public class EmailRegistry implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final UserRepository repository;
+    private final UserChangeFeed changeFeed;
+    private final UserWriteBehind writeBehind;
+    private final EmailFilterProperties properties;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicLong stale = new AtomicLong();
+    private final LongAdder definitelyAbsent = new LongAdder();
+    private final LongAdder possibleHits = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /** Null until the first build completes. */
+    private volatile EmailBloomFilter filter;
+    /** The filter being built, which also receives every e-mail written meanwhile. */
+    private volatile EmailBloomFilter next;
+    private volatile Disposable build;
+    private volatile boolean closed;
+    private Disposable changes;
+
+    public EmailRegistry(final UserRepository repository, final UserChangeFeed changeFeed,
+                         final UserWriteBehind writeBehind, final EmailFilterProperties properties) {
+        this.repository = repository;
+        this.changeFeed = changeFeed;
+        this.writeBehind = writeBehind;
+        this.properties = properties;
+    }
+
+    /** Starts following changes, then builds the filter; neither holds up startup. */
+    @Override
+    public void afterPropertiesSet() {
+        if(!properties.isEnabled())
+            return;
+        if(properties.isFollowChanges())
+            changes = Flux.defer(() -> changeFeed.changes(null))
+                    // disconnected for being slow or the feed closed: changes were missed, start over from the database
+                    .repeatWhen(completions -> completions
+                            .takeWhile(completion -> !closed)
+                            .delayElements(MIN_BACKOFF)
+                            .doOnNext(completion -> rebuild()))
+                    .retryWhen(backoff("E-mail filter lost the change feed, reconnecting"))
+                    .subscribe(this::apply);
+        rebuild();
+    }
+
+    /** Whether a user, stored or still in the write-behind journal, has this e-mail. */
+    public Mono<Boolean> isRegistered(final String email){
+        if(writeBehind.isEmailPending(email))
+            return Mono.just(true);
+        final EmailBloomFilter current = filter;
+        if(Objects.isNull(current))
+            return repository.existsByEmail(email);
+        if(!current.mightContain(email)){
+            definitelyAbsent.increment();
+            return Mono.just(false);
+        }
+        possibleHits.increment();
+        return repository.existsByEmail(email).doOnNext(registered -> {
+            if(!registered)
+                falsePositives.increment();
+        });
+    }
+
+    public void registered(final String email){
+        if(Objects.isNull(email))
+            return;
+        // next before filter: a rebuild publishes filter before clearing next, so whenever
+        // next is already gone the filter read after it is the new one
+        final EmailBloomFilter replacement = next;
+        final EmailBloomFilter current = filter;
+        if(Objects.nonNull(current))
+            current.put(email);
+        if(Objects.nonNull(replacement))
+            replacement.put(email);
+        if(Objects.nonNull(current) && current.approximateElementCount() > current.expectedElements())
+            rebuild();
+    }
+
+    /** An e-mail was deleted or replaced, its bits stay set until the next rebuild. */
+    public void released(){
+        final EmailBloomFilter current = filter;
+        final long released = stale.incrementAndGet();
+        if(Objects.nonNull(current) && released > properties.getRebuildStaleRatio() * current.approximateElementCount())
+            rebuild();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        filterGauge(registry, "users.email.filter.bytes", "Memory held by the e-mail filter's bits",
+                EmailBloomFilter::byteSize);
+        filterGauge(registry, "users.email.filter.emails", "E-mails in the filter",
+                EmailBloomFilter::approximateElementCount);
+        filterGauge(registry, "users.email.filter.false-positive-rate", "Expected share of free e-mails that still need a lookup",
+                EmailBloomFilter::expectedFalsePositiveRate);
+        Gauge.builder("users.email.filter.stale", stale, AtomicLong::get)
+                .description("Deleted or replaced e-mails still in the filter")
+                .register(registry);
+        FunctionCounter.builder("users.email.filter.checks", definitelyAbsent, LongAdder::sum)
+                .description("E-mail checks by filter answer")
+                .tag("result", "absent")
+                .register(registry);
+        FunctionCounter.builder("users.email.filter.checks", possibleHits, LongAdder::sum)
+                .description("E-mail checks by filter answer")
+                .tag("result", "possible")
+                .register(registry);
+        FunctionCounter.builder("users.email.filter.false-positives", falsePositives, LongAdder::sum)
+                .description("Possible hits the index lookup did not find")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        if(Objects.nonNull(changes))
+            changes.dispose();
+        final Disposable running = build;
+        if(Objects.nonNull(running))
+            running.dispose();
+    }
+
+    /** Scans every e-mail into a new filter and swaps it in; does nothing while a build is running. */
+    void rebuild(){
+        if(closed || !building.compareAndSet(false, true))
+            return;
+        final EmailBloomFilter previous = filter;
+        final EmailBloomFilter replacement = new EmailBloomFilter(
+                Math.max(properties.getExpectedEmails(), 2 * approximateElementCount(previous)),
+                properties.getFalsePositiveRate());
+        final long staleBefore = stale.get();
+        next = replacement;
+        build = repository.emails(properties.getScanBatchSize())
+                .doOnNext(replacement::put)
+                .then()
+                .retryWhen(backoff("Building the e-mail filter failed, retrying"))
+                .subscribe(null, ex -> building.set(false), () -> {
+                    // in this order, see registered(String)
+                    filter = replacement;
+                    next = null;
+                    stale.addAndGet(-staleBefore);
+                    building.set(false);
+                    log.info("E-mail filter ready: {} e-mails, {} KiB, {} hash functions, expected false-positive rate {}",
+                            replacement.approximateElementCount(), replacement.byteSize() / 1024, replacement.hashCount(),
+                            String.format("%.4f", replacement.expectedFalsePositiveRate()));
+                });
+    }
+
+    private void apply(final UserChange change){
+        if(change.operation() == DELETE)
+            released();
+        else if(Objects.nonNull(change.user()))
+            registered(change.user().getEmail());
+    }
+
+    private void filterGauge(final MeterRegistry registry, final String name, final String description,
+                             final ToDoubleFunction<EmailBloomFilter> value){
+        Gauge.builder(name, this, emails -> Objects.isNull(emails.filter) ? 0 : value.applyAsDouble(emails.filter))
+                .description(description)
+                .register(registry);
+    }
+
+    private static long approximateElementCount(final EmailBloomFilter filter){
+        return Objects.isNull(filter) ? 0 : filter.approximateElementCount();
+    }
+
+    private static Retry backoff(final String message){
+        return Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF)
+                .maxBackoff(MAX_BACKOFF)
+                .transientErrors(true)
+                .doBeforeRetry(retry -> log.warn(message, retry.failure()));
+    }
+}
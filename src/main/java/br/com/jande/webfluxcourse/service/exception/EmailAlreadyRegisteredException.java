@@ -0,0 +1,20 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+import org.springframework.dao.DuplicateKeyException;
+
+/**
+ * A new user's e-mail is known to be taken before anything is written. A
+ * {@link DuplicateKeyException}, so it is answered like the unique index
+ * violation it spares; thrown for ordinary input, so it has no stack trace.
+ */
+public class EmailAlreadyRegisteredException extends DuplicateKeyException {
+
+    public EmailAlreadyRegisteredException(String message){
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
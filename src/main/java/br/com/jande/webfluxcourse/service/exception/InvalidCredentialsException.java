@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class InvalidCredentialsException extends RuntimeException{
+
+    public InvalidCredentialsException(String message){
+        super(message);
+    }
+
+}
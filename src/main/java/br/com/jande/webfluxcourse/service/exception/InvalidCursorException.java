@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class InvalidCursorException extends RuntimeException{
+
+    public InvalidCursorException(String message){
+        super(message);
+    }
+
+}
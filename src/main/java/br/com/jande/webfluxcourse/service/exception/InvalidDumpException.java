@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class InvalidDumpException extends RuntimeException{
+
+    public InvalidDumpException(String message){
+        super(message);
+    }
+
+}
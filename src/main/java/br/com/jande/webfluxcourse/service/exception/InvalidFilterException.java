@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class InvalidFilterException extends RuntimeException{
+
+    public InvalidFilterException(String message){
+        super(message);
+    }
+
+}
@@ -1,9 +1,41 @@
 package br.com.jande.webfluxcourse.service.exception;
 
+import java.util.Objects;
+
+/**
+ * A missing resource. Misses are ordinary traffic (enumeration, scraping,
+ * stale links), so this exception skips the stack trace, and the message is
+ * only formatted if something asks for it.
+ */
 public class ObjectNotFoundException extends RuntimeException{
 
+    private final String type;
+    private final String id;
+
     public ObjectNotFoundException(String message){
-        super(message);
+        super(message, null, false, false);
+        this.type = null;
+        this.id = null;
     }
 
+    public ObjectNotFoundException(Class<?> type, String id){
+        super(null, null, false, false);
+        this.type = type.getSimpleName();
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getMessage() {
+        if(Objects.isNull(type))
+            return super.getMessage();
+        return "Object not found, Id: " + id + ", Type: " + type;
+    }
 }
@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class ResumeTokenExpiredException extends RuntimeException{
+
+    public ResumeTokenExpiredException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package br.com.jande.webfluxcourse.service.exception;
+
+public class ServiceOverloadedException extends RuntimeException{
+
+    public ServiceOverloadedException(String message){
+        super(message);
+    }
+
+}
@@ -0,0 +1,53 @@
+package br.com.jande.webfluxcourse.service.lookup;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Puts users that arrive in any order back into request order. Each arrival
+ * releases the longest prefix of requested ids that is now resolved, so the
+ * first results can be written before the last ones are fetched. Not thread
+ * safe: meant to be driven by a single serial publisher.
+ */
+public final class OrderedLookup {
+
+    private final List<String> ids;
+    private final Map<String, User> resolved = new HashMap<>();
+    private int next;
+
+    public OrderedLookup(final List<String> ids, final Map<String, User> preResolved) {
+        this.ids = ids;
+        this.resolved.putAll(preResolved);
+    }
+
+    public List<UserLookup> arrived(final User user){
+        resolved.put(user.getId(), user);
+        return release(false);
+    }
+
+    public List<UserLookup> ready(){
+        return release(false);
+    }
+
+    /** Everything still pending once the source completed; unresolved ids are not found. */
+    public List<UserLookup> remaining(){
+        return release(true);
+    }
+
+    private List<UserLookup> release(final boolean complete){
+        final List<UserLookup> released = new ArrayList<>();
+        while (next < ids.size()) {
+            final String id = ids.get(next);
+            final User user = resolved.get(id);
+            if(user == null && !complete)
+                break;
+            released.add(new UserLookup(id, user));
+            next++;
+        }
+        return released;
+    }
+}
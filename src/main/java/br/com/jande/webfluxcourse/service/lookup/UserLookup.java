@@ -0,0 +1,18 @@
+package br.com.jande.webfluxcourse.service.lookup;
+
+import br.com.jande.webfluxcourse.entity.User;
+
+import java.util.Objects;
+
+/**
+ * One requested id and the user it resolved to, or null when there is none.
+ */
+public record UserLookup(
+        String id,
+        User user
+) {
+
+    public boolean found(){
+        return Objects.nonNull(user);
+    }
+}
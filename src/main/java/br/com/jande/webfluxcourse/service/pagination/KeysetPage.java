@@ -0,0 +1,14 @@
+package br.com.jande.webfluxcourse.service.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record KeysetPage<T>(
+        List<T> content,
+        String next
+) {
+
+    public <R> KeysetPage<R> map(final Function<? super T, ? extends R> mapper){
+        return new KeysetPage<>(content.stream().<R>map(mapper).toList(), next);
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.jande.webfluxcourse.service.pagination;
+
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.service.exception.InvalidCursorException;
+import org.bson.types.ObjectId;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque keyset cursor. Clients only see a url-safe token; internally it is
+ * the {@code _id} of the last document of the previous page, followed by its
+ * sort value when the listing is ordered by name or creation time.
+ */
+public final class PageCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final int ID_LENGTH = 12;
+    private static final byte SEARCH_NAME = 'n';
+    private static final byte CREATED_AT = 'c';
+
+    private PageCursor() {
+    }
+
+    public static String encode(final PageKey key){
+        final byte[] id = new ObjectId(key.id()).toByteArray();
+        if(key.value() instanceof String searchName){
+            final byte[] name = searchName.getBytes(StandardCharsets.UTF_8);
+            return ENCODER.encodeToString(ByteBuffer.allocate(ID_LENGTH + 1 + name.length)
+                    .put(id).put(SEARCH_NAME).put(name).array());
+        }
+        if(key.value() instanceof Instant createdAt)
+            return ENCODER.encodeToString(ByteBuffer.allocate(ID_LENGTH + 1 + Long.BYTES + Integer.BYTES)
+                    .put(id).put(CREATED_AT).putLong(createdAt.getEpochSecond()).putInt(createdAt.getNano()).array());
+        return ENCODER.encodeToString(id);
+    }
+
+    /** The key of a token, which must come from a listing ordered the way {@code filter} orders. */
+    public static PageKey decode(final String token, final UserFilter filter){
+        if(Objects.isNull(token) || token.isBlank())
+            return null;
+        final PageKey key;
+        try {
+            key = read(ByteBuffer.wrap(DECODER.decode(token)));
+        } catch (IllegalArgumentException | BufferUnderflowException | DateTimeException ex){
+            throw new InvalidCursorException("Invalid page cursor: " + token);
+        }
+        if(Objects.isNull(key) || !key.fits(filter))
+            throw new InvalidCursorException("Page cursor does not match the filter: " + token);
+        return key;
+    }
+
+    private static PageKey read(final ByteBuffer buffer){
+        final byte[] id = new byte[ID_LENGTH];
+        buffer.get(id);
+        final String hexId = new ObjectId(id).toHexString();
+        if(!buffer.hasRemaining())
+            return new PageKey(hexId, null);
+        final byte type = buffer.get();
+        if(type == SEARCH_NAME){
+            final byte[] name = new byte[buffer.remaining()];
+            buffer.get(name);
+            return new PageKey(hexId, new String(name, StandardCharsets.UTF_8));
+        }
+        if(type == CREATED_AT && buffer.remaining() == Long.BYTES + Integer.BYTES)
+            return new PageKey(hexId, Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()));
+        return null;
+    }
+}
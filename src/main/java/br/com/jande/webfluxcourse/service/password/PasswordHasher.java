@@ -0,0 +1,92 @@
+package br.com.jande.webfluxcourse.service.password;
+
+import br.com.jande.webfluxcourse.config.PasswordHashingProperties;
+import br.com.jande.webfluxcourse.service.exception.ServiceOverloadedException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt hashing and verification on a dedicated, bounded scheduler. The
+ * CPU-heavy work never runs on the event loop, and once the queue is full new
+ * requests are shed with a {@link ServiceOverloadedException} instead of
+ * piling up.
+ * <p>
+ * Users stored before passwords were hashed still hold them in plain text.
+ * Those are compared as they are, and {@link #needsRehash} tells the caller to
+ * store a hash once the password has been verified.
+ */
+@Component
+public class PasswordHasher implements DisposableBean {
+
+    private static final String SCHEDULER_NAME = "password-hasher";
+    private static final Pattern BCRYPT = Pattern.compile("\\A\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}");
+
+    private final BCryptPasswordEncoder encoder;
+    private final Scheduler scheduler;
+    private final int parallelism;
+    /** Compared against when the user does not exist, so both paths cost one hash. */
+    private final String decoyHash;
+
+    public PasswordHasher(final PasswordHashingProperties properties) {
+        this.encoder = new BCryptPasswordEncoder(properties.getStrength());
+        this.parallelism = properties.getThreads();
+        this.scheduler = Schedulers.newBoundedElastic(properties.getThreads(), properties.getQueueCapacity(),
+                SCHEDULER_NAME);
+        this.decoyHash = encoder.encode(SCHEDULER_NAME);
+    }
+
+    public Mono<String> hash(final String rawPassword){
+        return offload(Mono.fromCallable(() -> encoder.encode(rawPassword)));
+    }
+
+    /** False when there is no hash to compare with, after spending the same time as a real check. */
+    public Mono<Boolean> matches(final String rawPassword, final String hash){
+        return offload(Mono.fromCallable(() -> {
+            if(Objects.isNull(hash)){
+                encoder.matches(rawPassword, decoyHash);
+                return false;
+            }
+            if(!isHashed(hash)){
+                // a legacy plain-text password, still paying for one hash so it costs the same
+                encoder.matches(rawPassword, decoyHash);
+                return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8), hash.getBytes(StandardCharsets.UTF_8));
+            }
+            return encoder.matches(rawPassword, hash);
+        }));
+    }
+
+    /** True when a stored password is not a BCrypt hash, or one weaker than the configured strength. */
+    public boolean needsRehash(final String hash){
+        return Objects.nonNull(hash) && (!isHashed(hash) || encoder.upgradeEncoding(hash));
+    }
+
+    /** Hashes worth running at the same time, e.g. as a flatMap concurrency. */
+    public int parallelism(){
+        return parallelism;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+
+    private static boolean isHashed(final String hash){
+        return BCRYPT.matcher(hash).matches();
+    }
+
+    private <T> Mono<T> offload(final Mono<T> work){
+        return work.subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class,
+                        ex -> new ServiceOverloadedException("Password hashing is saturated, try again later"));
+    }
+}
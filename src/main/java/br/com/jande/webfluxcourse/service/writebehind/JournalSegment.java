@@ -0,0 +1,151 @@
+package br.com.jande.webfluxcourse.service.writebehind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * One fixed-size, memory-mapped journal file. After a small header holding the
+ * flushed offset, records are appended as {@code [length][crc32c][payload]}
+ * and always followed by a zero length, so a scan stops at the first record
+ * that was never completed. The length is written last: it is what commits a
+ * record. Not thread-safe; {@link UserJournal} serializes access.
+ */
+final class JournalSegment implements Closeable {
+
+    static final int HEADER_SIZE = 16;
+    private static final int MAGIC = 0x554A4E4C; // "UJNL"
+    private static final int FORMAT = 1;
+    private static final int FLUSHED_OFFSET = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int TERMINATOR_SIZE = 4;
+
+    private final long sequence;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int writePosition;
+
+    private JournalSegment(final long sequence, final Path path, final FileChannel channel, final MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /** Opens an existing segment, or creates an empty one of {@code size} bytes. */
+    static JournalSegment open(final Path path, final long sequence, final int size) throws IOException {
+        final FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+        final int mappedSize = (int) Math.max(size, channel.size());
+        final JournalSegment segment = new JournalSegment(sequence, path, channel,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        if(segment.buffer.getInt(0) != MAGIC){
+            segment.buffer.putInt(HEADER_SIZE, 0);
+            segment.buffer.putLong(FLUSHED_OFFSET, HEADER_SIZE);
+            segment.buffer.putInt(4, FORMAT);
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.force();
+        }
+        segment.writePosition = segment.scan(null);
+        return segment;
+    }
+
+    /** Payload capacity of an empty segment of {@code size} bytes. */
+    static int capacity(final int size){
+        return size - HEADER_SIZE - RECORD_HEADER_SIZE - TERMINATOR_SIZE;
+    }
+
+    long sequence(){
+        return sequence;
+    }
+
+    /** Offset right after the new record, or -1 when it does not fit. */
+    int append(final byte[] payload, final boolean force){
+        final int start = writePosition;
+        final int end = start + RECORD_HEADER_SIZE + payload.length;
+        if(end + TERMINATOR_SIZE > buffer.capacity())
+            return -1;
+        buffer.put(start + RECORD_HEADER_SIZE, payload);
+        buffer.putInt(end, 0);
+        buffer.putInt(start + 4, checksum(payload));
+        buffer.putInt(start, payload.length);
+        if(force)
+            buffer.force(start, end + TERMINATOR_SIZE - start);
+        writePosition = end;
+        return end;
+    }
+
+    /**
+     * Records everything up to {@code offset} as written to the database. Not
+     * forced: losing it in a crash only means replaying records that are
+     * already there.
+     */
+    void markFlushed(final int offset){
+        buffer.putLong(FLUSHED_OFFSET, offset);
+    }
+
+    void markAllFlushed(){
+        markFlushed(writePosition);
+    }
+
+    boolean fullyFlushed(){
+        return buffer.getLong(FLUSHED_OFFSET) == writePosition;
+    }
+
+    /** Records after the flushed offset, each with the offset it ends at. */
+    List<Record> unflushed(){
+        final List<Record> records = new ArrayList<>();
+        scan(records);
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        channel.close();
+        Files.deleteIfExists(path);
+    }
+
+    /** Walks the committed records after the flushed offset and returns where the next one goes. */
+    private int scan(final List<Record> records){
+        int position = (int) buffer.getLong(FLUSHED_OFFSET);
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()){
+            final int length = buffer.getInt(position);
+            final int end = position + RECORD_HEADER_SIZE + length;
+            if(length <= 0 || end + TERMINATOR_SIZE > buffer.capacity())
+                break;
+            final byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            if(checksum(payload) != buffer.getInt(position + 4))
+                break;
+            if(Objects.nonNull(records))
+                records.add(new Record(payload, end));
+            position = end;
+        }
+        return position;
+    }
+
+    private static int checksum(final byte[] payload){
+        final CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    record Record(byte[] payload, int endOffset) {
+    }
+}
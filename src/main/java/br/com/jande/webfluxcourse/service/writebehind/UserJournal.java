@@ -0,0 +1,197 @@
+package br.com.jande.webfluxcourse.service.writebehind;
+
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.service.exception.ServiceOverloadedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of users accepted but not yet written to the database,
+ * kept as a chain of memory-mapped {@link JournalSegment}s. Appending rolls
+ * over to a new segment when the current one is full, and a segment is
+ * deleted as soon as everything in it has been flushed.
+ */
+final class UserJournal implements Closeable {
+
+    private static final String PREFIX = "users-";
+    private static final String SUFFIX = ".journal";
+    private static final int FORMAT = 1;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final boolean forceOnAppend;
+    /** Oldest first; the last one takes the appends. Guarded by {@code this}. */
+    private final Deque<JournalSegment> segments = new ArrayDeque<>();
+
+    private UserJournal(final UserWriteBehindProperties properties) {
+        this.directory = properties.getJournalDirectory();
+        this.segmentSize = properties.getSegmentSize();
+        this.maxSegments = properties.getMaxSegments();
+        this.forceOnAppend = properties.isForceOnAppend();
+    }
+
+    static UserJournal open(final UserWriteBehindProperties properties) throws IOException {
+        final UserJournal journal = new UserJournal(properties);
+        Files.createDirectories(journal.directory);
+        try (Stream<Path> files = Files.list(journal.directory)){
+            for(Path file : files.filter(UserJournal::isSegment).sorted().toList())
+                journal.segments.addLast(JournalSegment.open(file, sequenceOf(file), journal.segmentSize));
+        }
+        if(journal.segments.isEmpty())
+            journal.roll();
+        return journal;
+    }
+
+    /** Every user appended but not flushed yet, in append order. */
+    synchronized List<Entry> replay(){
+        final List<Entry> entries = new ArrayList<>();
+        for(JournalSegment segment : segments)
+            for(JournalSegment.Record record : segment.unflushed())
+                entries.add(new Entry(decode(record.payload()), new Position(segment.sequence(), record.endOffset())));
+        return entries;
+    }
+
+    /**
+     * Appends {@code user} and, still holding the journal lock, hands its
+     * position to {@code onAppended}, so callers see positions in journal
+     * order. Fails with a {@link ServiceOverloadedException} when the
+     * journal has reached its size limit.
+     */
+    synchronized Position append(final User user, final BiConsumer<User, Position> onAppended){
+        final byte[] payload = encode(user);
+        if(payload.length > JournalSegment.capacity(segmentSize))
+            throw new IllegalArgumentException("User does not fit in a journal segment");
+
+        int end = segments.getLast().append(payload, forceOnAppend);
+        if(end < 0){
+            if(segments.size() >= maxSegments)
+                throw new ServiceOverloadedException("Write-behind journal is full, try again later");
+            roll();
+            end = segments.getLast().append(payload, forceOnAppend);
+        }
+        final Position position = new Position(segments.getLast().sequence(), end);
+        onAppended.accept(user, position);
+        return position;
+    }
+
+    /** Everything up to and including {@code position} is in the database. */
+    synchronized void markFlushed(final Position position){
+        for(JournalSegment segment : segments){
+            if(segment.sequence() < position.segment())
+                segment.markAllFlushed();
+            else if(segment.sequence() == position.segment())
+                segment.markFlushed(position.endOffset());
+        }
+        while (segments.size() > 1 && segments.getFirst().fullyFlushed()){
+            try {
+                segments.removeFirst().delete();
+            } catch (IOException ex){
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for(JournalSegment segment : segments)
+            segment.close();
+        segments.clear();
+    }
+
+    private void roll(){
+        final long sequence = segments.isEmpty() ? 1 : segments.getLast().sequence() + 1;
+        try {
+            segments.addLast(JournalSegment.open(directory.resolve(fileName(sequence)), sequence, segmentSize));
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static byte[] encode(final User user){
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)){
+            out.writeByte(FORMAT);
+            writeNullable(out, user.getId());
+            writeNullable(out, user.getName());
+            writeNullable(out, user.getSearchName());
+            writeNullable(out, user.getEmail());
+            writeNullable(out, user.getPassword());
+            out.writeBoolean(Objects.nonNull(user.getCreatedAt()));
+            if(Objects.nonNull(user.getCreatedAt())){
+                out.writeLong(user.getCreatedAt().getEpochSecond());
+                out.writeInt(user.getCreatedAt().getNano());
+            }
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    static User decode(final byte[] payload){
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))){
+            final int format = in.readByte();
+            if(format != FORMAT)
+                throw new IOException("Unknown journal record format " + format);
+            return User.builder()
+                    .id(readNullable(in))
+                    .name(readNullable(in))
+                    .searchName(readNullable(in))
+                    .email(readNullable(in))
+                    .password(readNullable(in))
+                    .createdAt(in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null)
+                    .build();
+        } catch (IOException ex){
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void writeNullable(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(Objects.nonNull(value));
+        if(Objects.nonNull(value))
+            out.writeUTF(value);
+    }
+
+    private static String readNullable(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static boolean isSegment(final Path file){
+        final String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static long sequenceOf(final Path file){
+        final String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /** Zero-padded, so file names sort in sequence order. */
+    private static String fileName(final long sequence){
+        return PREFIX + "%019d".formatted(sequence) + SUFFIX;
+    }
+
+    /** Where a record ends: the segment and the offset right after it. */
+    record Position(long segment, int endOffset) {
+    }
+
+    record Entry(User user, Position position) {
+    }
+}
@@ -0,0 +1,262 @@
+package br.com.jande.webfluxcourse.service.writebehind;
+
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for user creation. A new user is appended to the local
+ * {@link UserJournal} and acknowledged right away; a background flusher then
+ * writes the journal to the database in unordered batches, retrying until
+ * each record is in. Ids are assigned before journaling, so a record written
+ * twice (a retried batch, or a replay after a crash) shows up as a duplicate
+ * {@code _id} and counts as done.
+ * <p>
+ * Until a user is flushed it is served from memory, so reads by id see their
+ * own writes. An e-mail conflict with a user that already is in the database
+ * only surfaces at flush time: the record is dropped and counted under
+ * {@code users.write-behind.conflicts}.
+ */
+@Slf4j
+@Component
+public class UserWriteBehind implements InitializingBean, DisposableBean, MeterBinder {
+
+    private static final String SCHEDULER_NAME = "user-write-behind";
+    private static final String DUPLICATE_ID = "_id_";
+
+    private final UserRepository repository;
+    private final UserWriteBehindProperties properties;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Map<String, String> pendingEmails = new ConcurrentHashMap<>();
+    /** Pending users in journal order; only the flusher removes from it. */
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private UserJournal journal;
+    private Scheduler scheduler;
+    private Disposable flusher;
+
+    public UserWriteBehind(final UserRepository repository, final UserWriteBehindProperties properties) {
+        this.repository = repository;
+        this.properties = properties;
+    }
+
+    /** Opens the journal, takes over whatever the last run left unflushed and starts the flusher. */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if(!properties.isEnabled())
+            return;
+        journal = UserJournal.open(properties);
+        final List<UserJournal.Entry> replayed = journal.replay();
+        replayed.forEach(entry -> track(entry.user(), entry.position()));
+        if(!replayed.isEmpty())
+            log.info("Replaying {} journaled users not yet written to the database", replayed.size());
+
+        scheduler = Schedulers.newSingle(SCHEDULER_NAME);
+        flusher = Flux.interval(properties.getFlushInterval(), scheduler)
+                .onBackpressureDrop()
+                .concatMap(tick -> drain())
+                .subscribe();
+    }
+
+    public boolean isEnabled(){
+        return properties.isEnabled();
+    }
+
+    /** Whether a journaled user that is not written yet has this e-mail. */
+    public boolean isEmailPending(final String email){
+        return Objects.nonNull(email) && pendingEmails.containsKey(email);
+    }
+
+    /**
+     * Journals a new user and emits it, with its id and creation time, once
+     * the record is durable. Fails with a {@link DuplicateKeyException} when
+     * another pending user has the same e-mail.
+     */
+    public Mono<User> submit(final User user){
+        return Mono.fromCallable(() -> {
+            user.setId(ObjectId.get().toHexString());
+            if(Objects.isNull(user.getCreatedAt()))
+                user.setCreatedAt(Instant.now());
+            if(Objects.nonNull(user.getEmail()) && Objects.nonNull(pendingEmails.putIfAbsent(user.getEmail(), user.getId())))
+                throw new DuplicateKeyException("E11000 duplicate key error collection: user index: email dup key: "
+                        + user.getEmail());
+            try {
+                journal.append(user, this::track);
+            } catch (RuntimeException ex){
+                forgetEmail(user);
+                throw ex;
+            }
+            return copy(user);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /** The user with this id while it waits to be flushed. */
+    public Optional<User> find(final String id){
+        return Optional.ofNullable(pending.get(id)).map(entry -> copy(entry.user()));
+    }
+
+    public boolean isPending(final String id){
+        return pending.containsKey(id);
+    }
+
+    /** Completes once the user with this id is in the database, right away if it is not pending. */
+    public Mono<Void> whenFlushed(final String id){
+        return Mono.defer(() -> {
+            final Pending entry = pending.get(id);
+            return Objects.isNull(entry) ? Mono.empty() : Mono.fromFuture(entry.flushed(), true);
+        });
+    }
+
+    /** Writes journaled users in batches until none are left or a batch fails; emits how many were settled. */
+    public Mono<Long> drain(){
+        return flushBatch()
+                .expand(settled -> settled == properties.getBatchSize() ? flushBatch() : Mono.empty())
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("users.write-behind.pending", pending, Map::size)
+                .description("Users acknowledged but not yet written to the database")
+                .register(registry);
+        FunctionCounter.builder("users.write-behind.flushed", flushed, LongAdder::sum)
+                .description("Journaled users written to the database")
+                .register(registry);
+        FunctionCounter.builder("users.write-behind.conflicts", conflicts, LongAdder::sum)
+                .description("Journaled users dropped because their e-mail was already taken")
+                .register(registry);
+        FunctionCounter.builder("users.write-behind.failures", failures, LongAdder::sum)
+                .description("Flush batches that failed and will be retried")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if(Objects.isNull(journal))
+            return;
+        flusher.dispose();
+        try {
+            drain().block(properties.getShutdownTimeout());
+        } catch (RuntimeException ex){
+            log.warn("Final write-behind flush did not finish, the journal is replayed on the next start", ex);
+        }
+        close();
+    }
+
+    /** Stops flushing and closes the journal as is; what is left is replayed on the next start. */
+    void close() throws IOException {
+        if(Objects.isNull(journal))
+            return;
+        flusher.dispose();
+        scheduler.dispose();
+        journal.close();
+        journal = null;
+    }
+
+    /** Called under the journal lock, so the queue follows journal order. */
+    private void track(final User user, final UserJournal.Position position){
+        final Pending entry = new Pending(user, position, new CompletableFuture<>());
+        pending.put(user.getId(), entry);
+        if(Objects.nonNull(user.getEmail()))
+            pendingEmails.putIfAbsent(user.getEmail(), user.getId());
+        queue.add(entry);
+    }
+
+    private Mono<Long> flushBatch(){
+        return Mono.defer(() -> {
+            final List<Pending> batch = new ArrayList<>(properties.getBatchSize());
+            for(Iterator<Pending> it = queue.iterator(); it.hasNext() && batch.size() < properties.getBatchSize();)
+                batch.add(it.next());
+            if(batch.isEmpty())
+                return Mono.just(0L);
+            // fresh copies every attempt: the repository stamps ids and versions on what it is given
+            return repository.insertAll(batch.stream().map(entry -> copy(entry.user())).toList())
+                    .collectList()
+                    .map(outcomes -> settle(batch, outcomes))
+                    .onErrorResume(ex -> {
+                        failures.increment();
+                        log.warn("Write-behind flush of {} users failed, retrying", batch.size(), ex);
+                        return Mono.just(0L);
+                    });
+        });
+    }
+
+    /**
+     * Settles the longest prefix of the batch that made it to the database and
+     * advances the journal past it. Records after a failed one stay queued;
+     * the ones among them that did go in count as done on the next attempt.
+     */
+    private long settle(final List<Pending> batch, final List<InsertOutcome> outcomes){
+        int settled = 0;
+        for(InsertOutcome outcome : outcomes){
+            final Pending entry = batch.get(settled);
+            if(!outcome.succeeded() && !(outcome.duplicateKey() && outcome.error().contains(DUPLICATE_ID))){
+                if(!outcome.duplicateKey()){
+                    failures.increment();
+                    break;
+                }
+                conflicts.increment();
+                log.warn("Dropping journaled user {}: {}", entry.user().getId(), outcome.error());
+            } else {
+                flushed.increment();
+            }
+            settled++;
+        }
+        if(settled == 0)
+            return 0;
+
+        journal.markFlushed(batch.get(settled - 1).position());
+        for(Pending entry : batch.subList(0, settled)){
+            queue.poll();
+            pending.remove(entry.user().getId());
+            forgetEmail(entry.user());
+            entry.flushed().complete(null);
+        }
+        return settled;
+    }
+
+    private void forgetEmail(final User user){
+        if(Objects.nonNull(user.getEmail()))
+            pendingEmails.remove(user.getEmail(), user.getId());
+    }
+
+    private static User copy(final User user){
+        return user.toBuilder().version(null).build();
+    }
+
+    private record Pending(User user, UserJournal.Position position, CompletableFuture<Void> flushed) {
+    }
+}
@@ -0,0 +1,134 @@
+package br.com.jande.webfluxcourse.tenant;
+
+import br.com.jande.webfluxcourse.config.EmailFilterProperties;
+import br.com.jande.webfluxcourse.config.UserTenancyProperties;
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.controller.exceptions.StandardError;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Resolves the tenant of every request from its header and puts it in the
+ * Reactor context of the whole exchange, where the service and the repository
+ * pick it up. Requests without a valid tenant are answered with 400, and those
+ * naming a tenant that is not configured with 403, before reaching a handler.
+ */
+@Component
+public class TenantWebFilter implements WebFilter, Ordered, InitializingBean {
+
+    /** Right after admission control, which does not need the tenant to turn a request away. */
+    private static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 20;
+
+    private final UserTenancyProperties properties;
+    private final UserWriteBehindProperties writeBehindProperties;
+    private final EmailFilterProperties emailFilterProperties;
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final List<PathPattern> excludedPaths;
+
+    public TenantWebFilter(final UserTenancyProperties properties, final UserWriteBehindProperties writeBehindProperties,
+                           final EmailFilterProperties emailFilterProperties, final Environment environment,
+                           final ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.writeBehindProperties = writeBehindProperties;
+        this.emailFilterProperties = emailFilterProperties;
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+        this.excludedPaths = properties.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+    }
+
+    /**
+     * The journal, the e-mail filter and the in-memory store hold every user
+     * in one place with no tenant attached, so they cannot be combined with
+     * tenancy.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if(!properties.isEnabled())
+            return;
+        final List<String> problems = new ArrayList<>();
+        if(properties.getTenants().isEmpty())
+            problems.add("needs at least one tenant in tenants");
+        for(String tenant : properties.getTenants())
+            if(!Tenants.isValid(tenant))
+                problems.add("tenants has an invalid tenant id: " + tenant);
+        if(Objects.nonNull(properties.getDefaultTenant()) && !properties.getTenants().contains(properties.getDefaultTenant()))
+            problems.add("default-tenant is not one of the tenants");
+        if(writeBehindProperties.isEnabled())
+            problems.add("needs users.write-behind.enabled=false");
+        if(emailFilterProperties.isEnabled())
+            problems.add("needs users.email-filter.enabled=false");
+        if(environment.acceptsProfiles(Profiles.of("in-memory")))
+            problems.add("is not supported by the in-memory profile");
+        if(!problems.isEmpty())
+            throw new IllegalStateException("Invalid users.tenancy settings: " + String.join("; ", problems));
+    }
+
+    @Override
+    public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
+        if(!properties.isEnabled() || isExcluded(exchange.getRequest().getPath().pathWithinApplication()))
+            return chain.filter(exchange);
+
+        final String header = exchange.getRequest().getHeaders().getFirst(properties.getHeader());
+        final String tenant = Objects.isNull(header) ? properties.getDefaultTenant() : header;
+        if(Objects.isNull(tenant))
+            return reject(exchange, HttpStatus.BAD_REQUEST, "Missing " + properties.getHeader() + " header");
+        if(!Tenants.isValid(tenant))
+            return reject(exchange, HttpStatus.BAD_REQUEST, "Invalid tenant, expected lower-case letters, digits, '-' and '_'");
+        if(!properties.getTenants().contains(tenant))
+            return reject(exchange, HttpStatus.FORBIDDEN, "Unknown tenant");
+        return chain.filter(exchange).contextWrite(Tenants.of(tenant));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private boolean isExcluded(final PathContainer path){
+        for(PathPattern pattern : excludedPaths)
+            if(pattern.matches(path))
+                return true;
+        return false;
+    }
+
+    private Mono<Void> reject(final ServerWebExchange exchange, final HttpStatus status, final String message){
+        final ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        final StandardError error = StandardError.builder()
+                .timestamp(LocalDateTime.now())
+                .path(exchange.getRequest().getPath().toString())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .build();
+        try {
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(objectMapper.writeValueAsBytes(error))));
+        } catch (JsonProcessingException ex){
+            return response.setComplete();
+        }
+    }
+}
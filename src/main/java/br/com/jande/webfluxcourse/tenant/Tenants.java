@@ -0,0 +1,43 @@
+package br.com.jande.webfluxcourse.tenant;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * The tenant a pipeline works for, carried in the Reactor {@link Context} from
+ * {@link TenantWebFilter} down to the repository. Code that resolves it runs
+ * inside {@code Mono.deferContextual}; anything subscribed outside the request
+ * pipeline, like a cache load turned into a future, has to be handed the
+ * context explicitly.
+ */
+public final class Tenants {
+
+    private static final String CONTEXT_KEY = Tenants.class.getName();
+    private static final Pattern VALID = Pattern.compile("[a-z0-9][a-z0-9_-]{0,47}");
+
+    private Tenants() {
+    }
+
+    public static Context of(final String tenant){
+        return Context.of(CONTEXT_KEY, tenant);
+    }
+
+    /** The tenant of the pipeline, or null outside of a tenant's request. */
+    public static String current(final ContextView context){
+        return context.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /** Keys of state shared by all tenants, like the user cache, so no tenant is served another one's entry. */
+    public static String key(final ContextView context, final String id){
+        final String tenant = current(context);
+        return Objects.isNull(tenant) ? id : tenant + '/' + id;
+    }
+
+    /** Safe to use as a collection name suffix: no dots, dollars or upper case. */
+    public static boolean isValid(final String tenant){
+        return Objects.nonNull(tenant) && VALID.matcher(tenant).matches();
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.jande.webfluxcourse.validator;
+
+import org.hibernate.validator.internal.util.DomainNameUtil;
+
+import java.net.IDN;
+import java.util.Objects;
+
+/**
+ * The check behind {@code @Email}, written out instead of matched with
+ * Hibernate Validator's regular expressions: a local part of at most 64
+ * characters made of dot-separated atoms or quoted strings, then a domain of
+ * dash-joined labels up to 63 characters and 255 in total. Walks the
+ * characters once and allocates nothing for ASCII addresses, which is all
+ * of them in practice.
+ * <p>
+ * International domains still go through {@link IDN} for their length, and
+ * bracketed IP literals through Hibernate Validator itself, so every address
+ * gets the same answer {@code @Email} gives.
+ */
+final class EmailAddresses {
+
+    private static final int MAX_LOCAL_PART = 64;
+    private static final int MAX_DOMAIN = 255;
+    private static final int MAX_LABEL = 63;
+    /** Symbols allowed in atoms and domain labels besides the dash. */
+    private static final String ATOM_SYMBOLS = "!#$%&'*+/=?^_`{|}~";
+    private static final String QUOTED_SYMBOLS = "!#$%&'*.(),<>[]:; @+/=?^_`{|}~-";
+
+    private EmailAddresses() {
+    }
+
+    /** Null and empty count as valid, like they do for {@code @Email}. */
+    static boolean isValid(final CharSequence email){
+        if(Objects.isNull(email) || email.length() == 0)
+            return true;
+        int at = email.length() - 1;
+        while (at >= 0 && email.charAt(at) != '@')
+            at--;
+        return at > 0 && isLocalPart(email, 0, at) && isDomain(email, at + 1, email.length());
+    }
+
+    private static boolean isLocalPart(final CharSequence email, final int start, final int end){
+        if(end - start > MAX_LOCAL_PART)
+            return false;
+        int i = start;
+        while (true) {
+            final int next = email.charAt(i) == '"' ? quotedEnd(email, i, end) : atomEnd(email, i, end);
+            if(next < 0)
+                return false;
+            if(next == end)
+                return true;
+            if(email.charAt(next) != '.' || next + 1 == end)
+                return false;
+            i = next + 1;
+        }
+    }
+
+    /** End of the atom starting at {@code start}, or -1 when there is none. */
+    private static int atomEnd(final CharSequence email, final int start, final int end){
+        int i = start;
+        while (i < end && isAtomChar(email.charAt(i)))
+            i++;
+        return i == start ? -1 : i;
+    }
+
+    /** End of the quoted string starting at {@code start}, or -1 when it is not one. */
+    private static int quotedEnd(final CharSequence email, final int start, final int end){
+        int i = start + 1;
+        while (i < end) {
+            final char c = email.charAt(i);
+            if(c == '"')
+                return i == start + 1 ? -1 : i + 1;
+            if(c == '\\'){
+                if(i + 1 >= end || (email.charAt(i + 1) != '\\' && email.charAt(i + 1) != '"'))
+                    return -1;
+                i += 2;
+            } else if(isLetterOrDigit(c) || QUOTED_SYMBOLS.indexOf(c) >= 0){
+                i++;
+            } else {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDomain(final CharSequence email, final int start, final int end){
+        if(start == end)
+            return false;
+        if(email.charAt(start) == '[')
+            return DomainNameUtil.isValidEmailDomainAddress(email.subSequence(start, end).toString());
+        boolean ascii = true;
+        int labelStart = start;
+        for(int i = start; i <= end; i++){
+            if(i < end){
+                final char c = email.charAt(i);
+                ascii &= c < 0x80;
+                if(c != '.')
+                    continue;
+            }
+            if(!isLabel(email, labelStart, i))
+                return false;
+            labelStart = i + 1;
+        }
+        return ascii ? end - start <= MAX_DOMAIN : fitsAsAscii(email.subSequence(start, end).toString());
+    }
+
+    private static boolean isLabel(final CharSequence email, final int start, final int end){
+        if(start == end || end - start > MAX_LABEL)
+            return false;
+        if(email.charAt(start) == '-' || email.charAt(end - 1) == '-')
+            return false;
+        for(int i = start; i < end; i++){
+            final char c = email.charAt(i);
+            if(c != '-' && !isAtomChar(c))
+                return false;
+        }
+        return true;
+    }
+
+    /** Whether the Punycode form of an international domain stays within the limits. */
+    private static boolean fitsAsAscii(final String domain){
+        try {
+            return IDN.toASCII(domain).length() <= MAX_DOMAIN;
+        } catch (IllegalArgumentException ex){
+            return false;
+        }
+    }
+
+    private static boolean isAtomChar(final char c){
+        return isLetterOrDigit(c) || c == '-' || ATOM_SYMBOLS.indexOf(c) >= 0;
+    }
+
+    /** ASCII letters and digits, and anything outside ASCII. */
+    private static boolean isLetterOrDigit(final char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c >= 0x80;
+    }
+}
@@ -0,0 +1,235 @@
+package br.com.jande.webfluxcourse.validator;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AnnotatedParameterizedType;
+import java.lang.reflect.AnnotatedType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The Bean Validation constraints of one record type, read once and turned
+ * into plain checks on the component values. A valid record is checked
+ * without allocating; errors are reported the way Spring's adapter for Bean
+ * Validation reports them, same field names, codes and messages.
+ * <p>
+ * Only what the request records use is supported: {@code @NotNull},
+ * {@code @NotEmpty}, {@code @NotBlank}, {@code @Size}, {@code @Email} and
+ * {@link TrimString} with literal messages in the default group, on a
+ * component or on the elements of a {@code List} component. {@link #compile}
+ * returns null for any other record, which is then left to Bean Validation.
+ */
+final class RecordConstraints {
+
+    private static final MethodType ACCESSOR = MethodType.methodType(Object.class, Object.class);
+
+    private final Component[] components;
+
+    private RecordConstraints(final Component[] components) {
+        this.components = components;
+    }
+
+    /** The compiled constraints of the type, or null when it has any this class cannot check. */
+    static RecordConstraints compile(final Class<?> type){
+        if(!type.isRecord() || !Modifier.isPublic(type.getModifiers()) || hasConstraints(type.getAnnotations()))
+            return null;
+        final List<Component> components = new ArrayList<>();
+        for(RecordComponent recordComponent : type.getRecordComponents()){
+            final Component component = component(type, recordComponent);
+            if(Objects.isNull(component))
+                return null;
+            if(component.checks.length > 0 || component.elementChecks.length > 0)
+                components.add(component);
+        }
+        return new RecordConstraints(components.toArray(Component[]::new));
+    }
+
+    void validate(final Object target, final Errors errors){
+        for(Component component : components){
+            final Object value = component.value(target);
+            for(Check check : component.checks)
+                if(!check.test(value))
+                    reject(errors, component.name, value, check);
+            if(component.elementChecks.length > 0 && value instanceof List<?> elements)
+                for(int i = 0; i < elements.size(); i++){
+                    final Object element = elements.get(i);
+                    for(Check check : component.elementChecks)
+                        if(!check.test(element))
+                            reject(errors, component.name + "[" + i + "]", element, check);
+                }
+        }
+    }
+
+    private static void reject(final Errors errors, final String field, final Object value, final Check check){
+        final FieldError existing = errors.getFieldError(field);
+        if(Objects.nonNull(existing) && existing.isBindingFailure())
+            return;
+        final Object[] arguments = check.arguments(errors.getObjectName(), field);
+        if(errors instanceof BindingResult result)
+            result.addError(new FieldError(errors.getObjectName(), result.getNestedPath() + field, value, false,
+                    result.resolveMessageCodes(check.code(), field), arguments, check.message()));
+        else
+            errors.rejectValue(field, check.code(), arguments, check.message());
+    }
+
+    private static Component component(final Class<?> type, final RecordComponent recordComponent){
+        final Field field;
+        final MethodHandle accessor;
+        try {
+            // Hibernate Validator reads record constraints from the fields; accessors are not getters to it
+            field = type.getDeclaredField(recordComponent.getName());
+            accessor = MethodHandles.publicLookup().unreflect(recordComponent.getAccessor()).asType(ACCESSOR);
+        } catch (ReflectiveOperationException ex){
+            return null;
+        }
+        final Class<?> valueType = field.getType();
+        final Check[] checks = checks(field.getAnnotations(), valueType);
+        final Check[] elementChecks = elementChecks(field.getAnnotatedType());
+        if(Objects.isNull(checks) || Objects.isNull(elementChecks) || (valueType.isPrimitive() && checks.length > 0))
+            return null;
+        return new Component(recordComponent.getName(), accessor, checks, elementChecks);
+    }
+
+    /** Checks on the elements of a {@code List<...>} component, empty when there are none, null when unsupported. */
+    private static Check[] elementChecks(final AnnotatedType type){
+        if(!(type instanceof AnnotatedParameterizedType parameterized))
+            return new Check[0];
+        final AnnotatedType[] arguments = parameterized.getAnnotatedActualTypeArguments();
+        boolean constrained = false;
+        for(AnnotatedType argument : arguments)
+            constrained |= hasConstraints(argument.getAnnotations()) || argument instanceof AnnotatedParameterizedType;
+        if(!constrained)
+            return new Check[0];
+        if(type.getType() instanceof ParameterizedType raw && raw.getRawType() == List.class
+                && arguments[0].getType() instanceof Class<?> elementType && !(arguments[0] instanceof AnnotatedParameterizedType))
+            return checks(arguments[0].getAnnotations(), elementType);
+        return null;
+    }
+
+    private static Check[] checks(final Annotation[] annotations, final Class<?> valueType){
+        final List<Check> checks = new ArrayList<>();
+        for(Annotation annotation : annotations){
+            if(!isConstraint(annotation))
+                continue;
+            final Check check = Check.of(annotation, valueType);
+            if(Objects.isNull(check))
+                return null;
+            checks.add(check);
+        }
+        return checks.toArray(Check[]::new);
+    }
+
+    private static boolean hasConstraints(final Annotation[] annotations){
+        for(Annotation annotation : annotations)
+            if(isConstraint(annotation))
+                return true;
+        return false;
+    }
+
+    /** Constraints, their repeated containers and cascades, which all need Bean Validation unless supported. */
+    private static boolean isConstraint(final Annotation annotation){
+        final Class<? extends Annotation> type = annotation.annotationType();
+        return type.isAnnotationPresent(Constraint.class) || type == Valid.class
+                || type.getName().startsWith("jakarta.validation.") || type.getName().startsWith("org.hibernate.validator.");
+    }
+
+    private record Component(String name, MethodHandle accessor, Check[] checks, Check[] elementChecks) {
+
+        private Object value(final Object target){
+            try {
+                return (Object) accessor.invokeExact(target);
+            } catch (RuntimeException | Error ex){
+                throw ex;
+            } catch (Throwable ex){
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    private enum Kind { NOT_NULL, NOT_EMPTY, NOT_BLANK, SIZE, EMAIL, TRIMMED }
+
+    private record Check(Kind kind, String code, String message, int min, int max) {
+
+        static Check of(final Annotation annotation, final Class<?> valueType){
+            final boolean text = CharSequence.class.isAssignableFrom(valueType);
+            final boolean sized = text || Collection.class.isAssignableFrom(valueType) || Map.class.isAssignableFrom(valueType)
+                    || Object[].class.isAssignableFrom(valueType);
+            if(annotation instanceof NotNull notNull && isPlain(notNull.message(), notNull.groups()))
+                return new Check(Kind.NOT_NULL, "NotNull", notNull.message(), 0, 0);
+            if(annotation instanceof NotEmpty notEmpty && sized && isPlain(notEmpty.message(), notEmpty.groups()))
+                return new Check(Kind.NOT_EMPTY, "NotEmpty", notEmpty.message(), 0, 0);
+            if(annotation instanceof NotBlank notBlank && text && isPlain(notBlank.message(), notBlank.groups()))
+                return new Check(Kind.NOT_BLANK, "NotBlank", notBlank.message(), 0, 0);
+            if(annotation instanceof Size size && sized && isPlain(size.message(), size.groups()))
+                return new Check(Kind.SIZE, "Size", size.message(), size.min(), size.max());
+            if(annotation instanceof Email email && text && ".*".equals(email.regexp()) && email.flags().length == 0
+                    && isPlain(email.message(), email.groups()))
+                return new Check(Kind.EMAIL, "Email", email.message(), 0, 0);
+            if(annotation instanceof TrimString trimString && valueType == String.class
+                    && isPlain(trimString.message(), trimString.groups()))
+                return new Check(Kind.TRIMMED, "TrimString", trimString.message(), 0, 0);
+            return null;
+        }
+
+        /** A message that needs no interpolation, for the default group. */
+        private static boolean isPlain(final String message, final Class<?>[] groups){
+            return groups.length == 0 && message.indexOf('{') < 0 && message.indexOf('$') < 0;
+        }
+
+        boolean test(final Object value){
+            return switch (kind) {
+                case NOT_NULL -> Objects.nonNull(value);
+                case NOT_EMPTY -> Objects.nonNull(value) && size(value) > 0;
+                case NOT_BLANK -> Objects.nonNull(value) && !isBlank((CharSequence) value);
+                case SIZE -> Objects.isNull(value) || (size(value) >= min && size(value) <= max);
+                case EMAIL -> EmailAddresses.isValid((CharSequence) value);
+                case TRIMMED -> Objects.isNull(value) || TrimStringValidator.isTrimmed((CharSequence) value);
+            };
+        }
+
+        /** The arguments Spring's Bean Validation adapter passes along with the error code. */
+        Object[] arguments(final String objectName, final String field){
+            final DefaultMessageSourceResolvable name = new DefaultMessageSourceResolvable(
+                    new String[]{objectName + Errors.NESTED_PATH_SEPARATOR + field, field}, field);
+            return kind == Kind.SIZE ? new Object[]{name, max, min} : new Object[]{name};
+        }
+
+        private static boolean isBlank(final CharSequence value){
+            for(int i = 0; i < value.length(); i++)
+                if(value.charAt(i) > ' ')
+                    return false;
+            return true;
+        }
+
+        private static int size(final Object value){
+            if(value instanceof CharSequence text)
+                return text.length();
+            if(value instanceof Collection<?> collection)
+                return collection.size();
+            if(value instanceof Map<?, ?> map)
+                return map.size();
+            return ((Object[]) value).length;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.jande.webfluxcourse.validator;
+
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import jakarta.validation.Validator;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates request records with {@link RecordConstraints} compiled once per
+ * type instead of Bean Validation's reflective walk. Types it cannot compile,
+ * validation groups and single values still go to Bean Validation, so this
+ * can stand in for the WebFlux validator everywhere.
+ */
+@Component
+public class RequestValidator implements SmartValidator {
+
+    private final SpringValidatorAdapter beanValidation;
+    private final boolean precompiled;
+    private final Map<Class<?>, Optional<RecordConstraints>> constraints = new ConcurrentHashMap<>();
+
+    public RequestValidator(final Validator validator, final UserWebProperties properties) {
+        this.beanValidation = new SpringValidatorAdapter(validator);
+        this.precompiled = properties.isPrecompiledValidation();
+    }
+
+    @Override
+    public boolean supports(final Class<?> type) {
+        return beanValidation.supports(type);
+    }
+
+    @Override
+    public void validate(final Object target, final Errors errors) {
+        final RecordConstraints compiled = precompiled ? constraints(target.getClass()) : null;
+        if(Objects.isNull(compiled))
+            beanValidation.validate(target, errors);
+        else
+            compiled.validate(target, errors);
+    }
+
+    @Override
+    public void validate(final Object target, final Errors errors, final Object... validationHints) {
+        if(validationHints.length == 0)
+            validate(target, errors);
+        else
+            beanValidation.validate(target, errors, validationHints);
+    }
+
+    @Override
+    public void validateValue(final Class<?> targetType, final String fieldName, @Nullable final Object value,
+                              final Errors errors, final Object... validationHints) {
+        beanValidation.validateValue(targetType, fieldName, value, errors, validationHints);
+    }
+
+    private RecordConstraints constraints(final Class<?> type){
+        return constraints.computeIfAbsent(type, key -> Optional.ofNullable(RecordConstraints.compile(key))).orElse(null);
+    }
+}
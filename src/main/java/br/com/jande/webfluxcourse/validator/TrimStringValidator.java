@@ -9,9 +9,12 @@ public class TrimStringValidator implements ConstraintValidator<TrimString, Stri
 
     @Override
     public boolean isValid(String value, ConstraintValidatorContext context) {
-        if(Objects.isNull(value))
-            return true;
+        return Objects.isNull(value) || isTrimmed(value);
+    }
 
-        return value.trim().length() == value.length();
+    /** Same as {@code value.trim().length() == value.length()}, without the trimmed copy. */
+    static boolean isTrimmed(final CharSequence value){
+        final int length = value.length();
+        return length == 0 || (value.charAt(0) > ' ' && value.charAt(length - 1) > ' ');
     }
 }
@@ -0,0 +1,25 @@
+package br.com.jande.webfluxcourse.validator;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Validator;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Makes {@link RequestValidator} the WebFlux validator, used for
+ * {@code @Valid} arguments and, as {@code webFluxValidator}, by the
+ * functional handlers.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ValidationConfig implements WebFluxConfigurer {
+
+    private final RequestValidator validator;
+
+    public ValidationConfig(final RequestValidator validator) {
+        this.validator = validator;
+    }
+
+    @Override
+    public Validator getValidator() {
+        return validator;
+    }
+}
@@ -0,0 +1,84 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AdmissionProperties.Concurrency properties = new AdmissionProperties.Concurrency();
+
+    @Test
+    void testLimitGrowsWhileLatencyIsSteady() {
+        properties.setInitialLimit(10);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int window = 0; window < 20; window++)
+            saturatedWindow(limiter, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertTrue(limiter.limit() > 10, "limit " + limiter.limit());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyClimbs() {
+        properties.setInitialLimit(100);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        saturatedWindow(limiter, TimeUnit.MILLISECONDS.toNanos(5));
+        for (int window = 0; window < 20; window++)
+            saturatedWindow(limiter, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertTrue(limiter.limit() < 100, "limit " + limiter.limit());
+        assertTrue(limiter.limit() >= properties.getMinLimit());
+    }
+
+    @Test
+    void testIdleInstanceKeepsItsLimit() {
+        properties.setInitialLimit(100);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int window = 0; window < 20; window++) {
+            assertTrue(limiter.tryAcquire());
+            clock.addAndGet(WINDOW);
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(500), true);
+        }
+
+        assertEquals(100, limiter.limit());
+    }
+
+    @Test
+    void testRejectsAtLimit() {
+        properties.setInitialLimit(2);
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(1, false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter() {
+        properties.setMinLimit(1);
+        properties.setWindow(Duration.ofNanos(WINDOW));
+        return new AdaptiveConcurrencyLimiter(properties, clock::get);
+    }
+
+    /** Fills every slot, then releases them all with the same latency as the window closes. */
+    private void saturatedWindow(final AdaptiveConcurrencyLimiter limiter, final long latency) {
+        int acquired = 0;
+        while (limiter.tryAcquire())
+            acquired++;
+        clock.addAndGet(WINDOW);
+        for (int i = 0; i < acquired; i++)
+            limiter.release(latency, true);
+    }
+}
@@ -0,0 +1,127 @@
+package br.com.jande.webfluxcourse.admission;
+
+import br.com.jande.webfluxcourse.config.AdmissionProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionWebFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AdmissionProperties properties = new AdmissionProperties();
+
+    @Test
+    void testReadsAndWritesHaveSeparateBudgets() {
+        properties.setReads(new AdmissionProperties.Budget(2, 1));
+        properties.setWrites(new AdmissionProperties.Budget(1, 1));
+        AdmissionWebFilter filter = filter();
+
+        assertNull(run(filter, MockServerHttpRequest.get("/users")));
+        assertNull(run(filter, MockServerHttpRequest.get("/users")));
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/users"));
+        filter.filter(rejected, completing()).block();
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        assertNull(run(filter, MockServerHttpRequest.post("/users")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerHttpRequest.post("/users")));
+        assertEquals(1, registry.get("users.admission.rejected").tag("reason", "rate-read").counter().count());
+        assertEquals(1, registry.get("users.admission.rejected").tag("reason", "rate-write").counter().count());
+    }
+
+    @Test
+    void testBudgetRefillsOverTime() {
+        properties.setReads(new AdmissionProperties.Budget(1, 2));
+        AdmissionWebFilter filter = filter();
+
+        assertNull(run(filter, MockServerHttpRequest.get("/users")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerHttpRequest.get("/users")));
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertNull(run(filter, MockServerHttpRequest.get("/users")));
+    }
+
+    @Test
+    void testClientsAreLimitedByApiKey() {
+        properties.setReads(new AdmissionProperties.Budget(1, 1));
+        properties.setApiKeys(Set.of("a", "b"));
+        AdmissionWebFilter filter = filter();
+
+        assertNull(run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "a")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "a")));
+        assertNull(run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "b")));
+    }
+
+    @Test
+    void testUnknownApiKeysShareTheAddressBudget() {
+        properties.setReads(new AdmissionProperties.Budget(1, 1));
+        properties.setApiKeys(Set.of("a"));
+        AdmissionWebFilter filter = filter();
+
+        assertNull(run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "x1")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "x2")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, run(filter, MockServerHttpRequest.get("/users")));
+        assertNull(run(filter, MockServerHttpRequest.get("/users").header("X-API-Key", "a")));
+    }
+
+    @Test
+    void testInFlightLimitAnswersServiceUnavailable() {
+        properties.getConcurrency().setInitialLimit(1);
+        AdmissionWebFilter filter = filter();
+
+        filter.filter(exchange(MockServerHttpRequest.get("/users/1")), exchange -> Mono.never()).subscribe();
+        MockServerWebExchange rejected = exchange(MockServerHttpRequest.get("/users/2"));
+        filter.filter(rejected, completing()).block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertNotNull(rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.get("users.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    void testExcludedAndLongLivedPaths() {
+        properties.setReads(new AdmissionProperties.Budget(1, 1));
+        properties.getConcurrency().setInitialLimit(1);
+        AdmissionWebFilter filter = filter();
+
+        assertNull(run(filter, MockServerHttpRequest.get("/actuator/prometheus")));
+        assertNull(run(filter, MockServerHttpRequest.get("/actuator/prometheus")));
+        filter.filter(exchange(MockServerHttpRequest.get("/users/changes")), exchange -> Mono.never()).subscribe();
+        assertEquals(0, registry.get("users.admission.in-flight").gauge().value());
+    }
+
+    private AdmissionWebFilter filter() {
+        properties.getConcurrency().setWindow(Duration.ofSeconds(1));
+        return new AdmissionWebFilter(properties, new ObjectMapper().findAndRegisterModules(), registry,
+                new ClientRateLimiter(properties, clock::get),
+                new AdaptiveConcurrencyLimiter(properties.getConcurrency(), clock::get));
+    }
+
+    /** Status written by the filter, or null when the request reached the chain. */
+    private HttpStatus run(final AdmissionWebFilter filter, final MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = exchange(request);
+        filter.filter(exchange, completing()).block();
+        return exchange.getResponse().getStatusCode() == null ? null : HttpStatus.valueOf(exchange.getResponse().getStatusCode().value());
+    }
+
+    private static MockServerWebExchange exchange(final MockServerHttpRequest.BaseBuilder<?> request) {
+        return MockServerWebExchange.from(request);
+    }
+
+    private static WebFilterChain completing() {
+        return exchange -> Mono.empty();
+    }
+}
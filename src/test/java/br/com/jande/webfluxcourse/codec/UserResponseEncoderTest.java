@@ -0,0 +1,122 @@
+package br.com.jande.webfluxcourse.codec;
+
+import br.com.jande.webfluxcourse.model.response.UserPageResponse;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every case is checked against the bytes the Jackson encoder writes with
+ * Spring Boot's defaults, which print dates as ISO-8601 strings.
+ */
+class UserResponseEncoderTest {
+
+    private static final ResolvableType USER = ResolvableType.forClass(UserResponse.class);
+    private static final ResolvableType PAGE = ResolvableType.forClass(UserPageResponse.class);
+
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final Jackson2JsonEncoder jackson = new Jackson2JsonEncoder(Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build());
+    private final UserResponseEncoder encoder = new UserResponseEncoder(3);
+
+    @Test
+    void testEncodesLikeJackson() {
+        List.of(
+                user("Jande", "jande.max@teste.com.br", Instant.parse("2023-01-07T02:30:12Z")),
+                user("José \"Zé\" Müller\\", "ze@teste.com.br", Instant.parse("2023-01-07T02:30:12.100Z")),
+                user("tab\tnew\nline\u0001\u007f", "x@y.z", Instant.parse("1969-12-31T23:59:59.000001Z")),
+                user("日本語 😀 \ud800", "a@b.c", Instant.parse("2000-02-29T00:00:00.123456789Z")),
+                user(null, null, null),
+                user("far", "far@b.c", Instant.parse("+12000-01-01T00:00:00Z"))
+        ).forEach(user -> assertEquals(jackson(Mono.just(user), USER, MediaType.APPLICATION_JSON),
+                encode(Mono.just(user), USER, MediaType.APPLICATION_JSON)));
+    }
+
+    @Test
+    void testEncodesStreamsInBatches() {
+        final List<UserResponse> users = IntStream.range(0, 7)
+                .mapToObj(i -> user("Jande " + i, i + "@teste.com.br", Instant.ofEpochSecond(i)))
+                .toList();
+
+        for(MediaType mediaType : List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON)){
+            assertEquals(jackson(Flux.fromIterable(users), USER, mediaType),
+                    encode(Flux.fromIterable(users), USER, mediaType));
+            assertEquals(jackson(Flux.empty(), USER, mediaType), encode(Flux.empty(), USER, mediaType));
+        }
+        // 7 elements, 3 to a buffer, plus the closing bracket
+        assertEquals(4, encoder.encode(Flux.fromIterable(users), bufferFactory, USER, MediaType.APPLICATION_JSON, null)
+                .doOnNext(DataBufferUtils::release)
+                .count().block());
+    }
+
+    @Test
+    void testEncodesPages() {
+        final var page = new UserPageResponse(List.of(
+                user("Jande", "jande.max@teste.com.br", Instant.parse("2023-01-07T02:30:12Z")),
+                user("Valdir", "valdir@email.com", null)), "63b8d2f4e4b0a1a2b3c4d5e6");
+
+        for(UserPageResponse value : Arrays.asList(page, new UserPageResponse(Collections.emptyList(), null),
+                new UserPageResponse(null, null)))
+            assertEquals(jackson(Mono.just(value), PAGE, MediaType.APPLICATION_JSON),
+                    encode(Mono.just(value), PAGE, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void testLeavesOtherTypesAndCharsetsToJackson() {
+        assertTrue(encoder.canEncode(USER, null));
+        assertTrue(encoder.canEncode(PAGE, MediaType.APPLICATION_JSON));
+        assertFalse(encoder.canEncode(ResolvableType.forClass(Object.class), MediaType.APPLICATION_JSON));
+        assertFalse(encoder.canEncode(USER, MediaType.APPLICATION_XML));
+        assertFalse(encoder.canEncode(USER, new MimeType("application", "json", StandardCharsets.UTF_16)));
+    }
+
+    private static UserResponse user(final String name, final String email, final Instant createdAt){
+        return new UserResponse("63b8d2f4e4b0a1a2b3c4d5e6", name, email, createdAt);
+    }
+
+    private String encode(final Flux<UserResponse> users, final ResolvableType type, final MimeType mimeType){
+        return join(encoder.encode(users, bufferFactory, type, mimeType, null));
+    }
+
+    private String encode(final Mono<?> value, final ResolvableType type, final MimeType mimeType){
+        return join(encoder.encode(value, bufferFactory, type, mimeType, null));
+    }
+
+    private String jackson(final Flux<UserResponse> users, final ResolvableType type, final MimeType mimeType){
+        return join(jackson.encode(users, bufferFactory, type, mimeType, null));
+    }
+
+    private String jackson(final Mono<?> value, final ResolvableType type, final MimeType mimeType){
+        return join(jackson.encode(value, bufferFactory, type, mimeType, null));
+    }
+
+    private String join(final Flux<DataBuffer> buffers){
+        return DataBufferUtils.join(buffers)
+                .map(buffer -> {
+                    final String json = buffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(buffer);
+                    return json;
+                })
+                .block();
+    }
+}
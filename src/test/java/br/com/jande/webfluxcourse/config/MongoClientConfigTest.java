@@ -0,0 +1,73 @@
+package br.com.jande.webfluxcourse.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.ReadPreference;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoClientConfigTest {
+
+    private final MongoDriverProperties properties = new MongoDriverProperties();
+
+    @Test
+    void testAppliesSettingsToTheClient() {
+        properties.getPool().setMaxSize(50);
+        properties.getPool().setMaxWaitTime(Duration.ofMillis(500));
+        properties.setCompressors(List.of("zstd", "zlib"));
+
+        final MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        new MongoClientConfig().mongoDriverCustomizer(properties, new SimpleMeterRegistry()).customize(builder);
+        final MongoClientSettings settings = builder.build();
+
+        assertEquals(10, settings.getConnectionPoolSettings().getMinSize());
+        assertEquals(50, settings.getConnectionPoolSettings().getMaxSize());
+        assertEquals(500, settings.getConnectionPoolSettings().getMaxWaitTime(MILLISECONDS));
+        assertEquals(1, settings.getConnectionPoolSettings().getConnectionPoolListeners().size());
+        assertEquals(10_000, settings.getSocketSettings().getReadTimeout(MILLISECONDS));
+        assertEquals(5_000, settings.getClusterSettings().getServerSelectionTimeout(MILLISECONDS));
+        assertEquals(List.of("zstd", "zlib"), settings.getCompressorList().stream().map(MongoCompressor::getName).toList());
+    }
+
+    @Test
+    void testListingsReadFromSecondariesWithinTheStalenessBound() {
+        properties.setListingMaxStaleness(Duration.ofMinutes(2));
+
+        final ReadPreference readPreference = MongoClientConfig.listingReadPreference(properties);
+
+        assertEquals(ReadPreference.secondaryPreferred(120, SECONDS), readPreference);
+    }
+
+    @Test
+    void testRejectsSettingsThatCannotWork() {
+        properties.getPool().setMinSize(200);
+        properties.getPool().setMaxWaitTime(Duration.ZERO);
+        properties.setCompressors(List.of("snappy", "lz4"));
+        properties.setListingReadPreference("primary");
+        properties.setListingMaxStaleness(Duration.ofSeconds(10));
+
+        final IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> MongoClientConfig.validate(properties));
+
+        assertTrue(ex.getMessage().contains("pool.min-size"));
+        assertTrue(ex.getMessage().contains("pool.max-wait-time must be positive"));
+        assertTrue(ex.getMessage().contains("snappy needs org.xerial.snappy:snappy-java"));
+        assertTrue(ex.getMessage().contains("unknown compressor lz4"));
+        assertTrue(ex.getMessage().contains("listing-max-staleness"));
+        assertTrue(ex.getMessage().contains("listing-read-preference"));
+    }
+
+    @Test
+    void testWaitForAConnectionCannotOutlastServerSelection() {
+        properties.getPool().setMaxWaitTime(Duration.ofSeconds(30));
+
+        assertThrows(IllegalStateException.class, () -> MongoClientConfig.validate(properties));
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.jande.webfluxcourse.config;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.validator.TrimStringValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void testRegistersWhatReflectionReachesAtRuntime() throws NoSuchMethodException {
+        new UserRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection().onField(User.class, "email").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(User.UserBuilder.class, "build").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(
+                UserSummary.class.getDeclaredConstructors()[0]).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onConstructor(
+                TrimStringValidator.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(
+                TypeReference.of("br.com.jande.webfluxcourse.mapper.UserMapperImpl")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserRequest.class, "email").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(UserResponse.class, "createdAt").test(hints));
+    }
+}
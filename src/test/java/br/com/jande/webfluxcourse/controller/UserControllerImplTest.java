@@ -2,14 +2,35 @@ package br.com.jande.webfluxcourse.controller;
 
 import br.com.jande.webfluxcourse.entity.User;
 import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import br.com.jande.webfluxcourse.model.response.UserChangeResponse;
 import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.service.UserBulkService;
 import br.com.jande.webfluxcourse.service.UserService;
+import br.com.jande.webfluxcourse.service.bulk.BulkItemResult;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCredentialsException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCursorException;
+import br.com.jande.webfluxcourse.service.exception.InvalidFilterException;
 import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import br.com.jande.webfluxcourse.service.exception.ResumeTokenExpiredException;
+import br.com.jande.webfluxcourse.service.exception.ServiceOverloadedException;
+import br.com.jande.webfluxcourse.service.lookup.UserLookup;
+import br.com.jande.webfluxcourse.service.pagination.KeysetPage;
 import com.mongodb.reactivestreams.client.MongoClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +38,10 @@ import org.springframework.boot.test.autoconfigure.web.client.AutoConfigureWebCl
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -26,8 +50,12 @@ import org.springframework.web.reactive.function.BodyInserters;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 
@@ -39,31 +67,61 @@ class UserControllerImplTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private UserService service;
 
+    @MockBean
+    private UserBulkService bulkService;
+
     @MockBean
     private MongoClient mongoClient;
 
+    @MockBean
+    private UserChangeFeed changeFeed;
+
     @MockBean
     private UserMapper mapper;
 
+    @MockBean
+    private EmailRegistry emails;
+
     @Test
     @DisplayName("Test endpoint save with success")
     void testSaveWithSuccess() {
         final var request = new UserRequest("Jande", "jande.max@teste.com.br", "123456");
-        when(service.save(any(UserRequest.class))).thenReturn(Mono.just(User.builder().build()));
+        when(service.save(any(UserRequest.class))).thenReturn(Mono.just(User.builder().id("123").build()));
 
         webTestClient.post()
                 .uri("/users")
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(BodyInserters.fromValue(request))
                 .exchange()
-                .expectStatus().isCreated();
+                .expectStatus().isCreated()
+                .expectHeader().location("/users/123");
 
         verify(service, times(1)).save(any(UserRequest.class));
     }
 
+    @Test
+    @DisplayName("Test endpoint save answers 202 while the user waits in the write-behind journal")
+    void testSaveWithWriteBehind() {
+        final var request = new UserRequest("Jande", "jande.max@teste.com.br", "123456");
+        when(service.save(any(UserRequest.class))).thenReturn(Mono.just(User.builder().id("123").build()));
+        when(service.isPending("123")).thenReturn(true);
+
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().location("/users/123")
+                .expectBody().isEmpty();
+    }
+
     @Test
     @DisplayName("Test endpoint save with Bad Request")
     void testSaveWithNameBadRequest() {
@@ -85,10 +143,84 @@ class UserControllerImplTest {
 
     }
 
+    @Test
+    @DisplayName("Test endpoint bulk save with NDJSON")
+    void testSaveAllWithNdjson() {
+        final var body = """
+                {"name":"Jande","email":"jande.max@teste.com.br","password":"123456"}
+                {"name":"Max","email":"max@teste.com.br","password":"123456"}
+                """;
+        when(bulkService.saveAll(any())).thenAnswer(invocation -> invocation.<Flux<UserRequest>>getArgument(0)
+                .index()
+                .map(item -> item.getT1() == 0
+                        ? new BulkItemResult(0, User.builder().id("1").build(), BulkItemResult.Status.CREATED, null)
+                        : new BulkItemResult(1, User.builder().id("2").build(), BulkItemResult.Status.DUPLICATED, "E-mail already registered")));
+
+        webTestClient.post()
+                .uri("/users/_bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1")
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[1].id").doesNotExist()
+                .jsonPath("$[1].status").isEqualTo("DUPLICATED")
+                .jsonPath("$[1].message").isEqualTo("E-mail already registered");
+
+        verify(bulkService, times(1)).saveAll(any());
+    }
+
+    @Test
+    @DisplayName("Test endpoint batch get with success")
+    void testFindAllById() {
+        final var response = new UserResponse("1", "Jande", "jande.max@teste.com.br", null);
+
+        when(service.findAllById(anyList())).thenReturn(Flux.just(
+                new UserLookup("1", User.builder().id("1").build()),
+                new UserLookup("2", null)));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.post()
+                .uri("/users/_batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserBatchGetRequest(List.of("1", "2")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].id").isEqualTo("1")
+                .jsonPath("$[0].found").isEqualTo(true)
+                .jsonPath("$[0].user.name").isEqualTo("Jande")
+                .jsonPath("$[1].id").isEqualTo("2")
+                .jsonPath("$[1].found").isEqualTo(false)
+                .jsonPath("$[1].user").doesNotExist();
+
+        verify(service, times(1)).findAllById(List.of("1", "2"));
+    }
+
+    @Test
+    @DisplayName("Test endpoint batch get with Bad Request")
+    void testFindAllByIdWithBadRequest() {
+
+        webTestClient.post()
+                .uri("/users/_batch-get")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserBatchGetRequest(List.of()))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].fieldName").isEqualTo("ids");
+
+        verify(service, never()).findAllById(anyList());
+    }
+
     @Test
     @DisplayName("Test endpoint findById with success")
     void testindByIdWithSuccess() {
-        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", "123456");
+        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null);
 
         when(service.findById(anyString())).thenReturn(Mono.just(User.builder().build()));
         when(mapper.toResponse(any(User.class))).thenReturn(response);
@@ -102,35 +234,154 @@ class UserControllerImplTest {
                 .jsonPath("$.id").isEqualTo("123456789")
                 .jsonPath("$.name").isEqualTo("Jande")
                 .jsonPath("$.email").isEqualTo("jande.max@teste.com.br")
-                .jsonPath("$.password").isEqualTo("123456");
+                .jsonPath("$.password").doesNotExist();
 
         verify(service, times(1)).findById(anyString());
 
     }
 
 
+    @Test
+    @DisplayName("Test endpoint findById returns the version as ETag")
+    void testFindByIdWithETag() {
+        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null);
+
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(7L).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.get()
+                .uri("/users/"+123456789)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"");
+    }
+
+    @Test
+    @DisplayName("Test endpoint findById with matching If-None-Match")
+    void testFindByIdNotModified() {
+
+        when(service.findById(anyString())).thenReturn(Mono.just(User.builder().version(7L).build()));
+
+        webTestClient.get()
+                .uri("/users/"+123456789)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\", \"7\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"")
+                .expectBody().isEmpty();
+
+        verify(mapper, never()).toResponse(any(User.class));
+    }
+
     @Test
     @DisplayName("Test endpoint findAll with success")
     void findAll() {
-        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", "123456");
+        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null);
 
-        when(service.findAll()).thenReturn(Flux.just(User.builder().build()));
-        when(mapper.toResponse(any(User.class))).thenReturn(response);
+        when(service.findPage(any(), any(), any())).thenReturn(Mono.just(new KeysetPage<>(List.of(new UserSummary("123456789", "Jande", "jande.max@teste.com.br", null, null)), "next-token")));
+        when(mapper.toResponse(any(UserSummary.class))).thenReturn(response);
 
         webTestClient.get()
-                .uri("/users")
+                .uri("/users?limit=1")
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody()
-                .jsonPath("$.[0].id").isEqualTo("123456789")
-                .jsonPath("$.[0].name").isEqualTo("Jande")
-                .jsonPath("$.[0].email").isEqualTo("jande.max@teste.com.br")
-                .jsonPath("$.[0].password").isEqualTo("123456");
+                .jsonPath("$.content[0].id").isEqualTo("123456789")
+                .jsonPath("$.content[0].name").isEqualTo("Jande")
+                .jsonPath("$.content[0].email").isEqualTo("jande.max@teste.com.br")
+                .jsonPath("$.content[0].password").doesNotExist()
+                .jsonPath("$.next").isEqualTo("next-token");
+
+        verify(service, times(1)).findPage(any(), isNull(), eq(1));
+        verify(mapper).toResponse(any(UserSummary.class));
+
+    }
+
+    @Test
+    @DisplayName("Test endpoint findAll streaming as NDJSON")
+    void stream() {
+        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null);
+
+        when(service.stream(any(), any())).thenReturn(Flux.just(new UserSummary("1", null, null, null, null), new UserSummary("2", null, null, null, null)));
+        when(mapper.toResponse(any(UserSummary.class))).thenReturn(response);
+
+        webTestClient.get()
+                .uri("/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(UserResponse.class)
+                .hasSize(2)
+                .contains(response);
+
+        verify(service, times(1)).stream(any(), isNull());
+    }
+
+    @Test
+    @DisplayName("Test endpoint findAll with invalid cursor")
+    void findAllWithInvalidCursor() {
+
+        when(service.findPage(any(), anyString(), any())).thenThrow(new InvalidCursorException("Invalid page cursor: xyz"));
+
+        webTestClient.get()
+                .uri("/users?after=xyz")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid page cursor: xyz");
+    }
 
-        verify(service, times(1)).findAll();
-        verify(mapper).toResponse(any(User.class));
+    @Test
+    @DisplayName("Test endpoint findAll binds the search filters")
+    void findAllWithFilters() {
+        final var filter = new UserFilter("jande.max@teste.com.br", "jan", null, null);
+        when(mapper.toFilter(any(UserSearchRequest.class))).thenReturn(filter);
+        when(service.findPage(any(), any(), any())).thenReturn(Mono.just(new KeysetPage<>(List.of(), null)));
 
+        webTestClient.get()
+                .uri("/users?email=jande.max@teste.com.br&name=Jan&createdFrom=2023-01-01T00:00:00Z")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+
+        final var search = ArgumentCaptor.forClass(UserSearchRequest.class);
+        verify(mapper).toFilter(search.capture());
+        assertEquals("jande.max@teste.com.br", search.getValue().email());
+        assertEquals("Jan", search.getValue().name());
+        assertEquals(Instant.parse("2023-01-01T00:00:00Z"), search.getValue().createdFrom());
+        verify(service, times(1)).findPage(filter, null, null);
+    }
+
+    @Test
+    @DisplayName("Test endpoint findAll with a too broad filter")
+    void findAllWithInvalidFilter() {
+        when(service.findPage(any(), any(), any())).thenThrow(new InvalidFilterException("Name prefix must have at least 2 characters"));
+
+        webTestClient.get()
+                .uri("/users?name=j")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Name prefix must have at least 2 characters");
+    }
+
+    @Test
+    @DisplayName("Test endpoint findAll with a malformed createdFrom")
+    void findAllWithMalformedCreatedFrom() {
+        webTestClient.get()
+                .uri("/users?createdFrom=garbage")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isEqualTo("Invalid value for createdFrom: garbage");
+
+        verify(service, never()).findPage(any(), any(), any());
     }
 
     @Test
@@ -138,9 +389,9 @@ class UserControllerImplTest {
     void update() {
 
         final var request = new UserRequest("Jandera", "jande.max@teste.com.br", "123456");
-        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", "123456");
+        final var response = new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null);
 
-        when(service.update(anyString(), any(UserRequest.class))).thenReturn(Mono.just(User.builder().build()));
+        when(service.update(anyString(), any(UserRequest.class), any())).thenReturn(Mono.just(User.builder().version(3L).build()));
         when(mapper.toResponse(any(User.class))).thenReturn(response);
 
         webTestClient.patch()
@@ -149,16 +400,60 @@ class UserControllerImplTest {
                 .body(BodyInserters.fromValue(request))
                 .exchange()
                 .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
                 .expectBody()
                 .jsonPath("$.id").isEqualTo("123456789")
                 .jsonPath("$.name").isEqualTo("Jande")
                 .jsonPath("$.email").isEqualTo("jande.max@teste.com.br")
-                .jsonPath("$.password").isEqualTo("123456");
+                .jsonPath("$.password").doesNotExist();
 
-        verify(service, times(1)).update(anyString(), any(UserRequest.class));
+        verify(service, times(1)).update(anyString(), any(UserRequest.class), isNull());
         verify(mapper).toResponse(any(User.class)); //default time() = 1
     }
 
+    @Test
+    @DisplayName("Test endpoint update with stale If-Match")
+    void updateWithStaleIfMatch() {
+
+        final var request = new UserRequest("Jandera", "jande.max@teste.com.br", "123456");
+
+        when(service.update(anyString(), any(UserRequest.class), anyList()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Version mismatch")));
+
+        webTestClient.patch()
+                .uri("/users/"+"123456789")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        verify(service, times(1)).update("123456789", request, List.of(2L));
+        verify(mapper, never()).toResponse(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Test endpoint update with an If-Match list")
+    void updateWithIfMatchList() {
+
+        final var request = new UserRequest("Jandera", null, null);
+        final var response = new UserResponse("123456789", "Jandera", "jande.max@teste.com.br", null);
+
+        when(service.update(anyString(), any(UserRequest.class), anyList())).thenReturn(Mono.just(User.builder().version(4L).build()));
+        when(mapper.toResponse(any(User.class))).thenReturn(response);
+
+        webTestClient.patch()
+                .uri("/users/"+"123456789")
+                .header(HttpHeaders.IF_MATCH, "\"2\", W/\"9\", \"x\", \"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+
+        verify(service, times(1)).update("123456789", request, List.of(2L, 3L));
+    }
+
     @Test
     @DisplayName("Test endpoint delete with success")
     void delete() {
@@ -186,4 +481,145 @@ class UserControllerImplTest {
 
         verify(service, times(1)).delete(anyString());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test endpoint findById with not found answers a problem detail")
+    void testFindByIdNotFound() {
+        when(service.findById(anyString())).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/users/"+"123456789")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.type").isEqualTo("about:blank")
+                .jsonPath("$.title").isEqualTo("Not Found")
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.detail").isEqualTo("Object not found, Id: 123456789, Type: User")
+                .jsonPath("$.instance").isEqualTo("/users/123456789");
+    }
+
+    @Test
+    @DisplayName("Test not found errors are counted")
+    void testNotFoundIsCounted() {
+        final var counter = meterRegistry.get("users.errors")
+                .tag("exception", ObjectNotFoundException.class.getSimpleName())
+                .counter();
+        final double before = counter.count();
+
+        when(service.delete(anyString())).thenThrow(new ObjectNotFoundException("user not found"));
+
+        webTestClient.delete()
+                .uri("/users/"+"123456789")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        assertEquals(before + 1, counter.count());
+    }
+
+    @Test
+    @DisplayName("Test endpoint verify with wrong credentials")
+    void testVerifyWithInvalidCredentials() {
+        final var request = new UserCredentialsRequest("jande.max@teste.com.br", "654321");
+        when(service.verify(any(UserCredentialsRequest.class)))
+                .thenReturn(Mono.error(new InvalidCredentialsException("Invalid e-mail or password")));
+
+        webTestClient.post()
+                .uri("/users/_verify")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isUnauthorized()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Invalid e-mail or password");
+    }
+
+    @Test
+    @DisplayName("Test saturated hashing is answered with 503 and Retry-After")
+    void testSaveWhenHashingIsOverloaded() {
+        final var request = new UserRequest("Jande", "jande.max@teste.com.br", "123456");
+        when(service.save(any(UserRequest.class)))
+                .thenReturn(Mono.error(new ServiceOverloadedException("Password hashing is saturated, try again later")));
+
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(request))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+
+    @Test
+    @DisplayName("Test endpoint changes as server-sent events resuming from Last-Event-ID")
+    void testChangesAsServerSentEvents() {
+        final var change = new UserChange("42", UserChange.Operation.INSERT, "123456789", User.builder().build());
+        final var response = new UserChangeResponse("42", "INSERT", "123456789",
+                new UserResponse("123456789", "Jande", "jande.max@teste.com.br", null));
+        when(changeFeed.changes(anyString())).thenReturn(Flux.just(change));
+        when(mapper.toResponse(any(UserChange.class))).thenReturn(response);
+
+        final var body = webTestClient.get()
+                .uri("/users/changes")
+                .header(UserController.LAST_EVENT_ID, "41")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(body);
+        assertTrue(body.contains("id:42"));
+        assertTrue(body.contains("event:INSERT"));
+        assertTrue(body.contains("\"email\":\"jande.max@teste.com.br\""));
+        verify(changeFeed).changes("41");
+    }
+
+    @Test
+    @DisplayName("Test endpoint changes with an expired resume token")
+    void testChangesWithExpiredToken() {
+        when(changeFeed.changes(anyString())).thenReturn(Flux.error(new ResumeTokenExpiredException("Resume token is no longer in the change history: 1")));
+
+        webTestClient.get()
+                .uri("/users/changes?after=1")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    @DisplayName("Test endpoint save with registered e-mail")
+    void testSaveWithRegisteredEmail() {
+        when(service.save(any(UserRequest.class)))
+                .thenReturn(Mono.error(new EmailAlreadyRegisteredException("E-mail already registered")));
+
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserRequest("Jande", "jande.max@teste.com.br", "123456"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("E-mail already registered");
+    }
+
+    @Test
+    @DisplayName("Test endpoint email-available")
+    void testIsEmailAvailable() {
+        when(service.isEmailAvailable("jande.max@teste.com.br")).thenReturn(Mono.just(false));
+
+        webTestClient.get()
+                .uri("/users/email-available?email={email}", "jande.max@teste.com.br")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.noStore())
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("jande.max@teste.com.br")
+                .jsonPath("$.available").isEqualTo(false);
+
+        verify(service, never()).findById(anyString());
+    }
+}
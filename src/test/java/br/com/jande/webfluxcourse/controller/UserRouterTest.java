@@ -0,0 +1,263 @@
+package br.com.jande.webfluxcourse.controller;
+
+import br.com.jande.webfluxcourse.controller.impl.UserControllerImpl;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.response.UserResponse;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.service.UserBulkService;
+import br.com.jande.webfluxcourse.service.UserService;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import br.com.jande.webfluxcourse.service.exception.InvalidFilterException;
+import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import br.com.jande.webfluxcourse.service.pagination.KeysetPage;
+import com.mongodb.reactivestreams.client.MongoClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * The functional stack answers like the annotated one; see UserControllerImplTest.
+ */
+@SpringBootTest(properties = "users.web.stack=functional")
+@AutoConfigureWebTestClient
+class UserRouterTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @MockBean
+    private UserService service;
+
+    @MockBean
+    private UserBulkService bulkService;
+
+    @MockBean
+    private MongoClient mongoClient;
+
+    @MockBean
+    private UserChangeFeed changeFeed;
+
+    @MockBean
+    private UserMapper mapper;
+
+    @MockBean
+    private EmailRegistry emails;
+
+    @Test
+    @DisplayName("Test the functional stack replaces the annotated controller")
+    void testOnlyOneStackIsActive() {
+        assertTrue(context.getBeanNamesForType(UserControllerImpl.class).length == 0);
+    }
+
+    @Test
+    @DisplayName("Test route save with success")
+    void testSaveWithSuccess() {
+        when(service.save(any(UserRequest.class))).thenReturn(Mono.just(User.builder().id("123").build()));
+
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserRequest("Jande", "jande.max@teste.com.br", "123456"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().location("/users/123");
+    }
+
+    @Test
+    @DisplayName("Test route save with Bad Request")
+    void testSaveWithNameBadRequest() {
+        webTestClient.post()
+                .uri("/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserRequest(" Jande", "jande.max@teste.com.br", "123456"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.path").isEqualTo("/users")
+                .jsonPath("$.status").isEqualTo(BAD_REQUEST.value())
+                .jsonPath("$.error").isEqualTo("Validation Error")
+                .jsonPath("$.message").isEqualTo("Error validation attributes")
+                .jsonPath("$.errors[0].fieldName").isEqualTo("name")
+                .jsonPath("$.errors[0].message").isEqualTo("field cannot have blank spaces at the beginning or at end");
+
+        verify(service, never()).save(any(UserRequest.class));
+    }
+
+    @Test
+    @DisplayName("Test route findById with matching If-None-Match")
+    void testFindByIdNotModified() {
+        when(service.findById("1")).thenReturn(Mono.just(User.builder().version(7L).build()));
+
+        webTestClient.get()
+                .uri("/users/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"7\"");
+    }
+
+    @Test
+    @DisplayName("Test route findById with not found answers a problem detail")
+    void testFindByIdNotFound() {
+        when(service.findById("1")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+                .uri("/users/1")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("Object not found, Id: 1, Type: User")
+                .jsonPath("$.instance").isEqualTo("/users/1");
+    }
+
+    @Test
+    @DisplayName("Test route findAll binds the search filters")
+    void testFindAllWithFilters() {
+        final var filter = new UserFilter("jande.max@teste.com.br", "Jan", null, null);
+        when(mapper.toFilter(any())).thenReturn(filter);
+        when(mapper.toResponse(any(UserSummary.class))).thenReturn(new UserResponse("1", "Jande", "jande.max@teste.com.br", null));
+        when(service.findPage(filter, null, 1)).thenReturn(Mono.just(new KeysetPage<>(List.of(new UserSummary("123456789", "Jande", "jande.max@teste.com.br", null, null)), "next")));
+
+        webTestClient.get()
+                .uri("/users?email=jande.max@teste.com.br&name=Jan&limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo("1")
+                .jsonPath("$.next").isEqualTo("next");
+    }
+
+    @Test
+    @DisplayName("Test route findAll rejects an invalid e-mail filter")
+    void testFindAllWithInvalidEmail() {
+        webTestClient.get()
+                .uri("/users?email=not-an-email")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.errors[0].fieldName").isEqualTo("email")
+                .jsonPath("$.errors[0].message").isEqualTo("invalid email");
+    }
+
+    @Test
+    @DisplayName("Test route findAll with a malformed createdFrom")
+    void testFindAllWithMalformedCreatedFrom() {
+        webTestClient.get()
+                .uri("/users?createdFrom=garbage")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(400)
+                .jsonPath("$.message").isEqualTo("Invalid value for createdFrom: garbage");
+
+        verify(service, never()).findPage(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Test route findAll maps errors thrown while the response is assembled")
+    void testFindAllWithInvalidFilter() {
+        when(service.findPage(any(), any(), any())).thenThrow(new InvalidFilterException("Name prefix must have at least 2 characters"));
+
+        webTestClient.get()
+                .uri("/users?name=J")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Name prefix must have at least 2 characters");
+    }
+
+    @Test
+    @DisplayName("Test route stream as NDJSON")
+    void testStream() {
+        when(service.stream(any(), any())).thenReturn(Flux.just(new UserSummary("1", null, null, null, null), new UserSummary("2", null, null, null, null)));
+        when(mapper.toResponse(any(UserSummary.class))).thenReturn(new UserResponse("1", "Jande", "jande.max@teste.com.br", null));
+
+        webTestClient.get()
+                .uri("/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(UserResponse.class).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Test route update with a stale If-Match")
+    void testUpdateWithStaleVersion() {
+        when(service.update(eq("1"), any(UserRequest.class), eq(List.of(6L))))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Version mismatch")));
+
+        webTestClient.patch()
+                .uri("/users/1")
+                .header(HttpHeaders.IF_MATCH, "\"6\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserRequest("Jande", null, null))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    @DisplayName("Test route delete with not found")
+    void testDeleteNotFound() {
+        when(service.delete("1")).thenReturn(Mono.error(new ObjectNotFoundException(User.class, "1")));
+
+        webTestClient.delete()
+                .uri("/users/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Test route email-available")
+    void testIsEmailAvailable() {
+        when(service.isEmailAvailable("jande.max@teste.com.br")).thenReturn(Mono.just(true));
+
+        webTestClient.get()
+                .uri("/users/email-available?email={email}", "jande.max@teste.com.br")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().cacheControl(CacheControl.noStore())
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("jande.max@teste.com.br")
+                .jsonPath("$.available").isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("Test route email-available without an e-mail")
+    void testIsEmailAvailableWithoutEmail() {
+        webTestClient.get()
+                .uri("/users/email-available")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(service, never()).isEmailAvailable(any());
+    }
+}
@@ -0,0 +1,53 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionId;
+import com.mongodb.connection.ConnectionPoolSettings;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolClosedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MongoPoolMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MongoPoolMetrics metrics = new MongoPoolMetrics(registry);
+    private final ServerId server = new ServerId(new ClusterId(), new ServerAddress("db", 27017));
+
+    @Test
+    void testTracksWaitingCheckouts() {
+        metrics.connectionPoolCreated(new ConnectionPoolCreatedEvent(server, ConnectionPoolSettings.builder().build()));
+        metrics.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(server));
+        metrics.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(server));
+        metrics.connectionCheckOutStarted(new ConnectionCheckOutStartedEvent(server));
+
+        assertEquals(3, waitQueue());
+
+        metrics.connectionCheckedOut(new ConnectionCheckedOutEvent(new ConnectionId(server)));
+        metrics.connectionCheckOutFailed(new ConnectionCheckOutFailedEvent(server, ConnectionCheckOutFailedEvent.Reason.TIMEOUT));
+
+        assertEquals(1, waitQueue());
+        assertEquals(1, registry.get("users.mongo.pool.checkout").tag("server", "db:27017").timer().count());
+        assertEquals(1, registry.get("users.mongo.pool.checkout.failures").tag("reason", "timeout").counter().count());
+    }
+
+    @Test
+    void testRemovesMetersWhenThePoolCloses() {
+        metrics.connectionPoolCreated(new ConnectionPoolCreatedEvent(server, ConnectionPoolSettings.builder().build()));
+        metrics.connectionPoolClosed(new ConnectionPoolClosedEvent(server));
+
+        assertNull(registry.find("users.mongo.pool.wait-queue").gauge());
+        assertNull(registry.find("users.mongo.pool.checkout").timer());
+    }
+
+    private double waitQueue(){
+        return registry.get("users.mongo.pool.wait-queue").tag("server", "db:27017").gauge().value();
+    }
+}
@@ -0,0 +1,62 @@
+package br.com.jande.webfluxcourse.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuntimeMetricsConfigTest {
+
+    @Test
+    void testUriTagOnlyTakesRouteTemplates() {
+        assertEquals("/users", RuntimeMetricsConfig.uriTemplate("/users?email=a@b.com"));
+        assertEquals("/users/_bulk", RuntimeMetricsConfig.uriTemplate("/users/_bulk"));
+        assertEquals("/users/changes", RuntimeMetricsConfig.uriTemplate("/users/changes"));
+        assertEquals("/users/{id}", RuntimeMetricsConfig.uriTemplate("/users/123456789"));
+        assertEquals("/actuator/**", RuntimeMetricsConfig.uriTemplate("/actuator/prometheus"));
+        assertEquals("other", RuntimeMetricsConfig.uriTemplate("/users/x/y"));
+        assertEquals("other", RuntimeMetricsConfig.uriTemplate("/users/_anything"));
+        assertEquals("other", RuntimeMetricsConfig.uriTemplate("/users/"));
+        assertEquals("other", RuntimeMetricsConfig.uriTemplate("/wp-login.php"));
+    }
+
+    @Test
+    void testExecutorMetersAreRemovedAndSlotsReused() {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final SchedulerExecutorMetrics metrics = new SchedulerExecutorMetrics(registry);
+        final Scheduler scheduler = Schedulers.newSingle("hasher");
+        try {
+            final ScheduledExecutorService first = metrics.apply(scheduler, Executors.newSingleThreadScheduledExecutor());
+            final ScheduledExecutorService second = metrics.apply(scheduler, Executors.newSingleThreadScheduledExecutor());
+
+            assertFalse(executorMeters(registry, "0").isEmpty());
+            assertFalse(executorMeters(registry, "1").isEmpty());
+
+            first.shutdownNow();
+            assertTrue(executorMeters(registry, "0").isEmpty());
+            assertFalse(executorMeters(registry, "1").isEmpty());
+
+            final ScheduledExecutorService third = metrics.apply(scheduler, Executors.newSingleThreadScheduledExecutor());
+            assertFalse(executorMeters(registry, "0").isEmpty());
+            assertTrue(executorMeters(registry, "2").isEmpty());
+
+            second.shutdownNow();
+            third.shutdown();
+            assertTrue(registry.getMeters().isEmpty());
+        } finally {
+            scheduler.dispose();
+        }
+    }
+
+    private static Collection<Meter> executorMeters(final SimpleMeterRegistry registry, final String slot){
+        return Search.in(registry).tag("executor", slot).meters();
+    }
+}
@@ -0,0 +1,71 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.mongodb.reactivestreams.client.FindPublisher;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscriber;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class UserBackfillTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+    private final TenantCollections collections = mock(TenantCollections.class);
+    @SuppressWarnings("unchecked")
+    private final MongoCollection<Document> collection = mock(MongoCollection.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFillsMissingFieldsOnlyWhereStillMissing() {
+        ObjectId jande = new ObjectId();
+        ObjectId blank = new ObjectId();
+        when(collections.all()).thenReturn(List.of("user"));
+        when(mongoTemplate.getCollection("user")).thenReturn(Mono.just(collection));
+        when(collection.updateMany(any(Bson.class), anyList())).thenReturn(Mono.just(UpdateResult.acknowledged(3, 3L, null)));
+        FindPublisher<Document> found = mock(FindPublisher.class, RETURNS_SELF);
+        doAnswer(invocation -> {
+            Flux.just(new Document("_id", jande).append("name", "  Jande "), new Document("_id", blank))
+                    .subscribe(invocation.<Subscriber<Document>>getArgument(0));
+            return null;
+        }).when(found).subscribe(any());
+        when(collection.find(any(Bson.class))).thenReturn(found);
+        BulkWriteResult written = mock(BulkWriteResult.class);
+        when(written.getModifiedCount()).thenReturn(2);
+        when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class))).thenReturn(Mono.just(written));
+
+        assertEquals(5L, new UserBackfill(mongoTemplate, collections, new UserSearchProperties()).backfill().block());
+
+        ArgumentCaptor<Bson> missing = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<List<Bson>> pipeline = ArgumentCaptor.forClass(List.class);
+        verify(collection).updateMany(missing.capture(), pipeline.capture());
+        assertEquals(new Document("createdAt", new Document("$exists", false)), missing.getValue());
+        assertEquals(List.of(new Document("$set", new Document("createdAt", new Document("$toDate", "$_id")))),
+                pipeline.getValue());
+
+        ArgumentCaptor<List<WriteModel<Document>>> batch = ArgumentCaptor.forClass(List.class);
+        verify(collection).bulkWrite(batch.capture(), any(BulkWriteOptions.class));
+        UpdateOneModel<Document> named = (UpdateOneModel<Document>) batch.getValue().get(0);
+        assertEquals(new Document("_id", jande).append("searchName", new Document("$exists", false)), named.getFilter());
+        assertEquals(new Document("$set", new Document("searchName", "jande")), named.getUpdate());
+        UpdateOneModel<Document> unnamed = (UpdateOneModel<Document>) batch.getValue().get(1);
+        assertEquals(new Document("$set", new Document("searchName", null)), unnamed.getUpdate());
+    }
+}
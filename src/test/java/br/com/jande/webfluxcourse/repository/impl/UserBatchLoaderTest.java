@@ -0,0 +1,139 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.config.UserBatchLoaderProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import reactor.core.publisher.Flux;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserBatchLoaderTest {
+
+    private static final String JANDE = "63b8d2f4e4b0a1a2b3c4d5e6";
+    private static final String VALDIR = "63b8d2f4e4b0a1a2b3c4d5e7";
+    private static final String MISSING = "63b8d2f4e4b0a1a2b3c4d5e8";
+
+    private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UserBatchLoaderProperties properties = new UserBatchLoaderProperties();
+    private final List<Set<String>> queries = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void testLookupsWithinTheWindowShareOneQuery() throws Exception {
+        UserBatchLoader loader = loader(this::find);
+
+        CompletableFuture<User> jande = loader.load(JANDE).toFuture();
+        CompletableFuture<User> valdir = loader.load(VALDIR).toFuture();
+        CompletableFuture<User> missing = loader.load(MISSING).toFuture();
+        assertTrue(queries.isEmpty());
+
+        scheduler.advanceTimeBy(properties.getWindow());
+
+        assertEquals(List.of(Set.of(JANDE, VALDIR, MISSING)), queries);
+        assertEquals("Jande", jande.get().getName());
+        assertEquals("Valdir", valdir.get().getName());
+        assertNull(missing.get());
+        assertEquals(1, registry.get("users.batch-loader.batch.size").summary().count());
+        assertEquals(3, registry.get("users.batch-loader.wait").timer().count());
+    }
+
+    @Test
+    void testSameIdIsQueriedOnce() throws Exception {
+        UserBatchLoader loader = loader(this::find);
+
+        CompletableFuture<User> first = loader.load(JANDE).toFuture();
+        CompletableFuture<User> second = loader.load(JANDE.toUpperCase()).toFuture();
+        scheduler.advanceTimeBy(properties.getWindow());
+
+        assertEquals(List.of(Set.of(JANDE)), queries);
+        assertSame(first.get(), second.get());
+        assertEquals(1.0, registry.get("users.batch-loader.coalesced").counter().count());
+    }
+
+    @Test
+    void testFullBatchIsSentWithoutWaiting() throws Exception {
+        properties.setMaxBatchSize(2);
+        UserBatchLoader loader = loader(this::find);
+
+        CompletableFuture<User> jande = loader.load(JANDE).toFuture();
+        CompletableFuture<User> valdir = loader.load(VALDIR).toFuture();
+        CompletableFuture<User> missing = loader.load(MISSING).toFuture();
+
+        assertEquals(List.of(Set.of(JANDE, VALDIR)), queries);
+        assertEquals("Jande", jande.get().getName());
+        assertEquals("Valdir", valdir.get().getName());
+        assertFalse(missing.isDone());
+
+        scheduler.advanceTimeBy(properties.getWindow());
+        assertEquals(List.of(Set.of(JANDE, VALDIR), Set.of(MISSING)), queries);
+        assertNull(missing.get());
+    }
+
+    @Test
+    void testQueryErrorFailsEveryLookupOfTheBatch() {
+        UserBatchLoader loader = loader(ids -> Flux.error(new QueryTimeoutException("timed out")));
+
+        CompletableFuture<User> jande = loader.load(JANDE).toFuture();
+        CompletableFuture<User> valdir = loader.load(VALDIR).toFuture();
+        scheduler.advanceTimeBy(properties.getWindow());
+
+        for (CompletableFuture<User> lookup : List.of(jande, valdir)) {
+            ExecutionException ex = assertThrows(ExecutionException.class, lookup::get);
+            assertInstanceOf(QueryTimeoutException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    void testCancelledLookupDoesNotFailTheOthers() throws Exception {
+        UserBatchLoader loader = loader(this::find);
+
+        loader.load(JANDE).subscribe().dispose();
+        CompletableFuture<User> jande = loader.load(JANDE).toFuture();
+        scheduler.advanceTimeBy(properties.getWindow());
+
+        assertEquals("Jande", jande.get().getName());
+    }
+
+    @Test
+    void testDisabledSendsOneQueryPerLookup() {
+        properties.setEnabled(false);
+        UserBatchLoader loader = loader(this::find);
+
+        assertEquals("Jande", loader.load(JANDE).block(Duration.ofSeconds(1)).getName());
+        assertNull(loader.load(MISSING).block(Duration.ofSeconds(1)));
+        assertEquals(List.of(Set.of(JANDE), Set.of(MISSING)), queries);
+    }
+
+    private UserBatchLoader loader(final Function<Collection<String>, Flux<User>> query){
+        return new UserBatchLoader(query, properties, registry, scheduler);
+    }
+
+    private Flux<User> find(final Collection<String> ids){
+        queries.add(Set.copyOf(ids));
+        List<User> found = new ArrayList<>();
+        if (ids.contains(JANDE))
+            found.add(User.builder().id(JANDE).name("Jande").build());
+        if (ids.contains(VALDIR))
+            found.add(User.builder().id(VALDIR).name("Valdir").build());
+        return Flux.fromIterable(found);
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.jande.webfluxcourse.repository.impl;
+
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UserFilter;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserQueriesTest {
+
+    @Test
+    void testUnfilteredQueryWalksTheIdIndex() {
+        Query query = UserQueries.keyset(UserFilter.NONE, new PageKey("63b8d2f4e4b0a1a2b3c4d5e6", null));
+
+        assertEquals("_id_", query.getHint());
+        assertTrue(query.getQueryObject().containsKey("id"));
+        assertEquals(new Document("id", 1), query.getSortObject());
+    }
+
+    @Test
+    void testEmailWinsOverOtherFilters() {
+        Query query = UserQueries.keyset(new UserFilter("jande@email.com", "jan",
+                Instant.parse("2023-01-01T00:00:00Z"), null), null);
+
+        assertEquals(User.EMAIL_INDEX, query.getHint());
+        assertEquals("jande@email.com", query.getQueryObject().get("email"));
+    }
+
+    @Test
+    void testNamePrefixIsAnIndexRange() {
+        Query query = UserQueries.keyset(new UserFilter(null, " Jan", null, null), null);
+
+        assertEquals(User.SEARCH_NAME_INDEX, query.getHint());
+        Document range = (Document) query.getQueryObject().get("searchName");
+        assertEquals("jan", range.get("$gte"));
+        assertEquals("jan" + UserQueries.MAX_CHARACTER, range.get("$lt"));
+        assertEquals(new Document("searchName", 1).append("id", 1), query.getSortObject());
+    }
+
+    @Test
+    void testNamePrefixRangeCoversSupplementaryCharacters() {
+        Document range = (Document) UserQueries.keyset(new UserFilter(null, "jan", null, null), null)
+                .getQueryObject().get("searchName");
+        byte[] upper = ((String) range.get("$lt")).getBytes(StandardCharsets.UTF_8);
+
+        for (String name : List.of("jan", "jan\uFFFF", "jan\uD83D\uDE00", "jan\uD840\uDC00", "jan\uDBFF\uDFFE"))
+            assertTrue(Arrays.compareUnsigned(name.getBytes(StandardCharsets.UTF_8), upper) < 0, name);
+        assertTrue(Arrays.compareUnsigned("jao".getBytes(StandardCharsets.UTF_8), upper) > 0);
+    }
+
+    @Test
+    void testNameOrderedPageResumesInIndexOrder() {
+        ObjectId id = new ObjectId("63b8d2f4e4b0a1a2b3c4d5e6");
+        Query query = UserQueries.keyset(new UserFilter(null, "jan", null, null), new PageKey(id.toHexString(), "jane"));
+
+        Document range = (Document) query.getQueryObject().get("searchName");
+        assertEquals("jane", range.get("$gte"));
+        assertEquals("jan" + UserQueries.MAX_CHARACTER, range.get("$lt"));
+        assertEquals(List.of(new Document("searchName", new Document("$gt", "jane")), new Document("id", new Document("$gt", id))),
+                query.getQueryObject().get("$or"));
+        assertEquals(new Document("searchName", 1).append("id", 1), query.getSortObject());
+    }
+
+    @Test
+    void testResumedPageNeverLeavesTheFilter() {
+        Query query = UserQueries.keyset(new UserFilter(null, "jan", null, null), new PageKey(new ObjectId().toHexString(), "a"));
+
+        assertEquals("jan", ((Document) query.getQueryObject().get("searchName")).get("$gte"));
+    }
+
+    @Test
+    void testCreatedRangeIsHalfOpen() {
+        Instant from = Instant.parse("2023-01-01T00:00:00Z");
+        Instant to = Instant.parse("2023-02-01T00:00:00Z");
+        Query query = UserQueries.keyset(new UserFilter(null, null, from, to), null);
+
+        assertEquals(User.CREATED_AT_INDEX, query.getHint());
+        Document range = (Document) query.getQueryObject().get("createdAt");
+        assertEquals(from, range.get("$gte"));
+        assertEquals(to, range.get("$lt"));
+        assertEquals(new Document("createdAt", 1).append("id", 1), query.getSortObject());
+    }
+
+    @Test
+    void testListingsOnlyFetchSummaryFields() {
+        Query query = UserQueries.keyset(UserFilter.NONE, null);
+
+        assertEquals(new Document("id", 1).append("name", 1).append("email", 1).append("createdAt", 1)
+                        .append("searchName", 1), query.getFieldsObject());
+    }
+
+    @Test
+    void testDetailNeverFetchesThePassword() {
+        Document fields = UserQueries.detail(new Query()).getFieldsObject();
+
+        assertEquals(1, fields.get("version"));
+        assertFalse(fields.containsKey("password"));
+        assertFalse(fields.containsKey("searchName"));
+    }
+}
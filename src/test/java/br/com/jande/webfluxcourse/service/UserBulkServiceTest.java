@@ -0,0 +1,113 @@
+package br.com.jande.webfluxcourse.service;
+
+import br.com.jande.webfluxcourse.config.PasswordHashingProperties;
+import br.com.jande.webfluxcourse.config.UserBulkProperties;
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.repository.InsertOutcome;
+import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import br.com.jande.webfluxcourse.validator.RequestValidator;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static br.com.jande.webfluxcourse.service.bulk.BulkItemResult.Status.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserBulkServiceTest {
+
+    @Mock
+    private UserRepository repository;
+
+    @Mock
+    private UserMapper mapper;
+
+    @Mock
+    private EmailRegistry emails;
+
+    private UserBulkService service;
+
+    @BeforeEach
+    void setUp() {
+        UserBulkProperties properties = new UserBulkProperties();
+        properties.setBatchSize(2);
+        PasswordHashingProperties hashing = new PasswordHashingProperties();
+        hashing.setStrength(4);
+        service = new UserBulkService(repository, mapper,
+                new RequestValidator(Validation.buildDefaultValidatorFactory().getValidator(),
+                        new UserWebProperties()), properties, new PasswordHasher(hashing), emails);
+    }
+
+    @Test
+    void testSaveAllReportsEachItem() {
+        User created = User.builder().id("1").email("valdir@email.com").password("123456").build();
+        User duplicated = User.builder().id("2").email("jande@email.com").password("123456").build();
+
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(created, duplicated);
+        when(repository.insertAll(anyList())).thenReturn(Flux.just(
+                InsertOutcome.inserted(created),
+                InsertOutcome.failed(duplicated, true, "E11000 duplicate key error")));
+
+        StepVerifier.create(service.saveAll(Flux.just(
+                        new UserRequest("Valdir", "valdir@email.com", "123456"),
+                        new UserRequest("Jande", "jande@email.com", "123456"),
+                        new UserRequest(" Max", "invalid", "123456"))))
+                .expectNextMatches(result -> result.index() == 0 && result.status() == CREATED
+                        && result.user().getId().equals("1"))
+                .expectNextMatches(result -> result.index() == 1 && result.status() == DUPLICATED)
+                .expectNextMatches(result -> result.index() == 2 && result.status() == INVALID
+                        && result.message().contains("email: invalid email")
+                        && result.message().contains("name: field cannot have blank spaces"))
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).insertAll(anyList());
+        Mockito.verify(emails, times(1)).registered("valdir@email.com");
+        assertTrue(created.getPassword().startsWith("$2a$04$"));
+    }
+
+    @Test
+    void testSaveAllSkipsWriteWhenBatchIsInvalid() {
+        StepVerifier.create(service.saveAll(Flux.just(new UserRequest("", "", ""))))
+                .expectNextMatches(result -> result.status() == INVALID)
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testSaveAllMarksBatchAsFailedOnWriteError() {
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().password("123456").build());
+        when(repository.insertAll(anyList())).thenReturn(Flux.error(new IllegalStateException("timeout")));
+
+        StepVerifier.create(service.saveAll(Flux.fromIterable(List.of(
+                        new UserRequest("Valdir", "valdir@email.com", "123456"),
+                        new UserRequest("Jande", "jande@email.com", "123456"),
+                        new UserRequest("Max", "max@email.com", "123456")))))
+                .expectNextMatches(result -> result.index() == 0 && result.status() == FAILED)
+                .expectNextMatches(result -> result.index() == 1 && result.status() == FAILED)
+                .expectNextMatches(result -> result.index() == 2 && result.status() == FAILED
+                        && result.message().equals("timeout"))
+                .expectComplete()
+                .verify();
+    }
+}
@@ -1,25 +1,53 @@
 package br.com.jande.webfluxcourse.service;
 
+import br.com.jande.webfluxcourse.config.UserCacheProperties;
+import br.com.jande.webfluxcourse.config.UserPaginationProperties;
+import br.com.jande.webfluxcourse.config.UserSearchProperties;
 import br.com.jande.webfluxcourse.entity.User;
 import br.com.jande.webfluxcourse.mapper.UserMapper;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
 import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.repository.PageKey;
+import br.com.jande.webfluxcourse.repository.UpdateOutcome;
+import br.com.jande.webfluxcourse.repository.UserFilter;
 import br.com.jande.webfluxcourse.repository.UserRepository;
+import br.com.jande.webfluxcourse.repository.UserSummary;
+import br.com.jande.webfluxcourse.service.cache.UserCache;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.EmailAlreadyRegisteredException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCredentialsException;
+import br.com.jande.webfluxcourse.service.exception.InvalidCursorException;
+import br.com.jande.webfluxcourse.service.exception.InvalidFilterException;
 import br.com.jande.webfluxcourse.service.exception.ObjectNotFoundException;
+import br.com.jande.webfluxcourse.service.pagination.KeysetPage;
+import br.com.jande.webfluxcourse.service.pagination.PageCursor;
+import br.com.jande.webfluxcourse.service.password.PasswordHasher;
+import br.com.jande.webfluxcourse.service.writebehind.UserWriteBehind;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import org.bson.types.ObjectId;
 import org.hamcrest.CoreMatchers;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.boot.autoconfigure.cassandra.CassandraProperties;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 
 import static java.lang.String.format;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
@@ -33,6 +61,24 @@ class UserServiceTest {
     @Mock
     private UserMapper mapper;
 
+    @Mock
+    private PasswordHasher passwordHasher;
+
+    @Mock
+    private UserWriteBehind writeBehind;
+
+    @Mock
+    private EmailRegistry emails;
+
+    @Spy
+    private UserPaginationProperties paginationProperties = new UserPaginationProperties();
+
+    @Spy
+    private UserSearchProperties searchProperties = new UserSearchProperties();
+
+    @Spy
+    private UserCache cache = new UserCache(new UserCacheProperties());
+
     @InjectMocks
     private UserService service;
 
@@ -41,6 +87,8 @@ class UserServiceTest {
         UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
         User entity = User.builder().build();
 
+        when(emails.isRegistered("email@email.com.br")).thenReturn(Mono.just(false));
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("$2a$hash"));
         when(mapper.toEntity(any())).thenReturn(entity);
         when(repository.save(any(User.class))).thenReturn(Mono.just(User.builder().build()));
 
@@ -50,7 +98,79 @@ class UserServiceTest {
                 .expectComplete()
                 .verify();
 
+        Mockito.verify(passwordHasher, times(1)).hash("1234");
         Mockito.verify(repository, times(1)).save(any(User.class));
+        Mockito.verify(emails).registered("email@email.com.br");
+        assertEquals("$2a$hash", entity.getPassword());
+    }
+
+    @Test
+    void testSavedUserIsCachedAsTheDetailView() {
+        UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
+        User saved = User.builder().id("1234").name("Valdir").searchName("valdir").email("email@email.com.br")
+                .password("$2a$hash").version(0L).build();
+
+        when(emails.isRegistered("email@email.com.br")).thenReturn(Mono.just(false));
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("$2a$hash"));
+        when(mapper.toEntity(any())).thenReturn(User.builder().build());
+        when(repository.save(any(User.class))).thenReturn(Mono.just(saved));
+
+        assertEquals(saved, service.save(request).block());
+
+        User cached = service.findById("1234").block();
+        assertEquals(saved.toBuilder().password(null).searchName(null).build(), cached);
+        Mockito.verify(repository, times(0)).findById(anyString());
+    }
+
+    @Test
+    void testSaveWithRegisteredEmailFailsBeforeHashing() {
+        UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
+        when(emails.isRegistered("email@email.com.br")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.save(request))
+                .expectError(EmailAlreadyRegisteredException.class)
+                .verify();
+
+        Mockito.verify(passwordHasher, times(0)).hash(anyString());
+        Mockito.verify(repository, times(0)).save(any(User.class));
+    }
+
+    @Test
+    void testIsEmailAvailable() {
+        when(emails.isRegistered("email@email.com.br")).thenReturn(Mono.just(true));
+        when(emails.isRegistered("free@email.com.br")).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.isEmailAvailable("email@email.com.br")).expectNext(false).verifyComplete();
+        StepVerifier.create(service.isEmailAvailable("free@email.com.br")).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void testSaveWithWriteBehindOnlyJournals() {
+        UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
+        User entity = User.builder().build();
+
+        when(emails.isRegistered(anyString())).thenReturn(Mono.just(false));
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("$2a$hash"));
+        when(mapper.toEntity(any())).thenReturn(entity);
+        when(writeBehind.isEnabled()).thenReturn(true);
+        when(writeBehind.submit(entity)).thenReturn(Mono.just(User.builder().id("1").build()));
+
+        StepVerifier.create(service.save(request))
+                .expectNextMatches(user -> "1".equals(user.getId()))
+                .verifyComplete();
+
+        Mockito.verify(repository, times(0)).save(any(User.class));
+    }
+
+    @Test
+    void testFindByIdSeesPendingWrites(){
+        when(writeBehind.find("1")).thenReturn(Optional.of(User.builder().id("1").build()));
+
+        StepVerifier.create(service.findById("1"))
+                .expectNextMatches(user -> "1".equals(user.getId()))
+                .verifyComplete();
+
+        Mockito.verify(repository, times(0)).findById(anyString());
     }
 
     @Test
@@ -70,37 +190,305 @@ class UserServiceTest {
     }
 
     @Test
-    void testFindAll(){
-        when(repository.findAll()).thenReturn(Flux.just(User.builder()
+    void testFindByIdIsServedFromCache(){
+        when(repository.findById(anyString())).thenReturn(Mono.just(User.builder()
                 .id("1234")
                 .build()));
 
-        Flux<User> result = service.findAll();
+        StepVerifier.create(service.findById("1234").then(service.findById("1234")))
+                .expectNextMatches(user -> user.getId().equals("1234"))
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).findById("1234");
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void testCacheIsNotSharedAcrossTenants(){
+        when(repository.findById(anyString())).thenReturn(Mono.just(User.builder()
+                .id("1234")
+                .build()));
+
+        service.findById("1234").contextWrite(Tenants.of("acme")).block();
+        service.findById("1234").contextWrite(Tenants.of("globex")).block();
+        service.findById("1234").contextWrite(Tenants.of("acme")).block();
+
+        Mockito.verify(repository, times(2)).findById("1234");
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testDeleteInvalidatesCache(){
+        when(repository.findById(anyString())).thenReturn(Mono.just(User.builder()
+                .id("1234")
+                .build()));
+        when(repository.findAndRemove(anyString())).thenReturn(Mono.just(User.builder().id("1234").build()));
+
+        service.findById("1234").block();
+        service.delete("1234").block();
+        service.findById("1234").block();
+
+        Mockito.verify(repository, times(2)).findById("1234");
+    }
+
+    @Test
+    void testFindAllByIdKeepsRequestOrder(){
+        when(repository.findById("1")).thenReturn(Mono.just(User.builder().id("1").build()));
+        when(repository.findAllById(any())).thenReturn(Flux.just(
+                User.builder().id("3").build(),
+                User.builder().id("2").build()));
+        service.findById("1").block();
+
+        StepVerifier.create(service.findAllById(List.of("2", "1", "404", "3")))
+                .expectNextMatches(lookup -> lookup.id().equals("2") && lookup.found())
+                .expectNextMatches(lookup -> lookup.id().equals("1") && lookup.found())
+                .expectNextMatches(lookup -> lookup.id().equals("404") && !lookup.found())
+                .expectNextMatches(lookup -> lookup.id().equals("3") && lookup.found())
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).findAllById(Set.of("2", "404", "3"));
+    }
+
+    @Test
+    void testFindPage(){
+        final var first = new ObjectId().toHexString();
+        final var second = new ObjectId().toHexString();
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.just(
+                new UserSummary(first, null, null, null, null),
+                new UserSummary(second, null, null, null, null)));
+
+        Mono<KeysetPage<UserSummary>> result = service.findPage(null, 1);
         StepVerifier.create(result)
-                .expectNextMatches(user -> user.getClass() == User.class
-                        && user.getId().equals("1234"))
+                .expectNextMatches(page -> page.content().size() == 1
+                        && page.content().get(0).id().equals(first)
+                        && first.equals(PageCursor.decode(page.next(), UserFilter.NONE).id()))
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).findPage(UserFilter.NONE, null, 2);
+    }
+
+    @Test
+    void testFindPageClampsLimit(){
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.findPage(null, 10_000))
+                .expectNextMatches(page -> page.content().isEmpty() && page.next() == null)
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).findPage(UserFilter.NONE, null, paginationProperties.getMaxLimit() + 1);
+    }
+
+    @Test
+    void testFindPageWithInvalidCursor(){
+        assertThrows(InvalidCursorException.class, () -> service.findPage("not-a-cursor", 10));
+    }
+
+    @Test
+    void testStream(){
+        when(repository.stream(any(), any(), anyInt())).thenReturn(Flux.just(
+                new UserSummary("1234", null, null, null, null)));
+
+        Flux<UserSummary> result = service.stream(null);
+        StepVerifier.create(result)
+                .expectNextMatches(user -> user.id().equals("1234"))
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).findAll();
+        Mockito.verify(repository, times(1)).stream(UserFilter.NONE, null, paginationProperties.getStreamBatchSize());
+    }
+
+    @Test
+    void testFindPageWithFilter(){
+        UserFilter filter = new UserFilter(null, " Jan", null, null);
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.empty());
+
+        StepVerifier.create(service.findPage(filter, null, 10))
+                .expectNextMatches(page -> page.content().isEmpty())
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).findPage(new UserFilter(null, "jan", null, null), null, 11);
+    }
+
+    @Test
+    void testNameOrderedPageResumesAfterNameAndId(){
+        UserFilter filter = new UserFilter(null, "jan", null, null);
+        final var first = new ObjectId().toHexString();
+        final var second = new ObjectId().toHexString();
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.just(
+                new UserSummary(first, "Jane", null, null, "jane"),
+                new UserSummary(second, "Janet", null, null, "janet")));
+
+        KeysetPage<UserSummary> page = service.findPage(filter, null, 1).block();
+        PageKey next = PageCursor.decode(page.next(), filter);
+
+        assertEquals(new PageKey(first, "jane"), next);
+        assertThrows(InvalidCursorException.class, () -> service.findPage(page.next(), 1));
+
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.empty());
+        service.findPage(filter, page.next(), 1).block();
+        Mockito.verify(repository, times(1)).findPage(filter, new PageKey(first, "jane"), 2);
+    }
+
+    @Test
+    void testFindPageRejectsShortNamePrefix(){
+        assertThrows(InvalidFilterException.class,
+                () -> service.findPage(new UserFilter(null, "j", null, null), null, 10));
+        Mockito.verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testFindPageRejectsEmptyCreatedRange(){
+        Instant now = Instant.now();
+        assertThrows(InvalidFilterException.class,
+                () -> service.findPage(new UserFilter(null, null, now, now), null, 10));
+    }
+
+    @Test
+    void testFindPageTimeoutIsReportedAsInvalidFilter(){
+        when(repository.findPage(any(), any(), anyInt())).thenReturn(Flux.error(new QueryTimeoutException("Query exceeded PT2S")));
+
+        StepVerifier.create(service.findPage(new UserFilter(null, "ja", null, null), null, 10))
+                .expectError(InvalidFilterException.class)
+                .verify();
     }
 
     @Test
     void testUpdate(){
-        UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
-        User entity = User.builder().build();
+        UserRequest request = new UserRequest("Valdir", null, null);
+        User changes = User.builder().name("Valdir").build();
+        User previous = User.builder().id("1234").name("Valdo").version(1L).build();
+        User updated = User.builder().id("1234").name("Valdir").version(2L).build();
 
-        when(mapper.toEntity(any(UserRequest.class), any(User.class))).thenReturn(entity);
-        when(repository.findById(anyString())).thenReturn(Mono.just(entity));
-        when(repository.save(any())).thenReturn(Mono.just(entity));
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(changes);
+        when(repository.update(anyString(), any(User.class), any())).thenReturn(Mono.just(new UpdateOutcome(previous, updated)));
 
         Mono<User> result = service.update("1234", request);
         StepVerifier.create(result)
-                .expectNextMatches(Objects::nonNull)
+                .expectNextMatches(user -> user.getVersion() == 2L)
                 .expectComplete()
                 .verify();
 
-        Mockito.verify(repository, times(1)).save(any(User.class));
+        Mockito.verify(repository, times(1)).update("1234", changes, null);
+        Mockito.verify(passwordHasher, times(0)).hash(anyString());
+        Mockito.verify(repository, times(0)).findById(anyString());
+        Mockito.verify(repository, times(0)).save(any(User.class));
+        Mockito.verify(emails, times(0)).released();
+    }
+
+    @Test
+    void testUpdateNotFound(){
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().build());
+        when(repository.update(anyString(), any(User.class), any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.update("1234", new UserRequest("Valdir", null, null)))
+                .expectError(ObjectNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void testDeleteNotFoundIsStackless(){
+        when(repository.findAndRemove(anyString())).thenReturn(Mono.empty());
+
+        StepVerifier.create(service.delete("1234"))
+                .expectErrorSatisfies(ex -> {
+                    ObjectNotFoundException notFound = assertInstanceOf(ObjectNotFoundException.class, ex);
+                    assertEquals("1234", notFound.getId());
+                    assertEquals("User", notFound.getType());
+                    assertEquals(0, notFound.getStackTrace().length);
+                })
+                .verify();
+    }
+
+    @Test
+    void testUpdateOnlyReleasesAChangedEmail(){
+        User stored = User.builder().id("1234").email("email@email.com.br").version(1L).build();
+        User unchanged = stored.toBuilder().version(2L).build();
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().build());
+        when(repository.update(anyString(), any(User.class), any()))
+                .thenReturn(Mono.just(new UpdateOutcome(stored, unchanged)))
+                .thenReturn(Mono.just(new UpdateOutcome(unchanged, unchanged.toBuilder().email("new@email.com.br").version(3L).build())));
+
+        service.update("1234", new UserRequest("Valdir", "email@email.com.br", null)).block();
+        Mockito.verify(emails, times(0)).registered(anyString());
+        Mockito.verify(emails, times(0)).released();
+
+        service.update("1234", new UserRequest("Valdir", "new@email.com.br", null)).block();
+        Mockito.verify(emails).registered("new@email.com.br");
+        Mockito.verify(emails, times(1)).released();
+        Mockito.verify(repository, times(0)).findById(anyString());
+    }
+
+    @Test
+    void testUpdateWithStaleVersion(){
+        UserRequest request = new UserRequest("Valdir", "email@email.com.br", "1234");
+        when(passwordHasher.hash(anyString())).thenReturn(Mono.just("$2a$hash"));
+        when(mapper.toEntity(any(UserRequest.class))).thenReturn(User.builder().build());
+        when(repository.update(anyString(), any(User.class), anyList()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Version mismatch")));
+
+        StepVerifier.create(service.update("1234", request, List.of(1L)))
+                .expectError(OptimisticLockingFailureException.class)
+                .verify();
+
+        Mockito.verify(repository, times(1)).update(anyString(), any(User.class), anyList());
+    }
+
+    @Test
+    void testVerify(){
+        User user = User.builder().id("1234").email("email@email.com.br").password("$2a$hash").build();
+        when(repository.findByEmail(anyString())).thenReturn(Mono.just(user));
+        when(passwordHasher.matches("1234", "$2a$hash")).thenReturn(Mono.just(true));
+
+        StepVerifier.create(service.verify(new UserCredentialsRequest("email@email.com.br", "1234")))
+                .expectNext(user)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    void testVerifyRehashesLegacyPassword(){
+        User user = User.builder().id("1234").email("email@email.com.br").password("1234").version(3L).build();
+        when(repository.findByEmail(anyString())).thenReturn(Mono.just(user));
+        when(passwordHasher.matches("1234", "1234")).thenReturn(Mono.just(true));
+        when(passwordHasher.needsRehash("1234")).thenReturn(true);
+        when(passwordHasher.hash("1234")).thenReturn(Mono.just("$2a$hash"));
+        when(repository.update(anyString(), any(User.class), anyList()))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("Version mismatch")));
+
+        StepVerifier.create(service.verify(new UserCredentialsRequest("email@email.com.br", "1234")))
+                .expectNext(user)
+                .expectComplete()
+                .verify();
+
+        Mockito.verify(repository, times(1)).update("1234", User.builder().password("$2a$hash").build(), List.of(3L));
+    }
+
+    @Test
+    void testVerifyWithWrongPassword(){
+        when(repository.findByEmail(anyString())).thenReturn(Mono.just(User.builder().password("$2a$hash").build()));
+        when(passwordHasher.matches("4321", "$2a$hash")).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.verify(new UserCredentialsRequest("email@email.com.br", "4321")))
+                .expectError(InvalidCredentialsException.class)
+                .verify();
+    }
+
+    @Test
+    void testVerifyUnknownEmailStillComparesPassword(){
+        when(repository.findByEmail(anyString())).thenReturn(Mono.empty());
+        when(passwordHasher.matches("1234", null)).thenReturn(Mono.just(false));
+
+        StepVerifier.create(service.verify(new UserCredentialsRequest("nobody@email.com.br", "1234")))
+                .expectError(InvalidCredentialsException.class)
+                .verify();
+
+        Mockito.verify(passwordHasher, times(1)).matches("1234", null);
     }
 
     @Test
@@ -0,0 +1,130 @@
+package br.com.jande.webfluxcourse.service.changes;
+
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.UserChange;
+import br.com.jande.webfluxcourse.repository.impl.InMemoryUserRepository;
+import br.com.jande.webfluxcourse.service.exception.ResumeTokenExpiredException;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static br.com.jande.webfluxcourse.config.UserChangesProperties.Overflow.DROP;
+import static br.com.jande.webfluxcourse.repository.UserChange.Operation.*;
+
+class UserChangeFeedTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final InMemoryUserRepository repository = new InMemoryUserRepository();
+    private final UserChangesProperties properties = new UserChangesProperties();
+    private UserChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBufferSize(2);
+        feed = new UserChangeFeed(repository, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.destroy();
+    }
+
+    @Test
+    void testPublishesEveryMutation() {
+        StepVerifier.create(feed.changes(null))
+                .then(() -> {
+                    User user = save("valdir@email.com");
+                    repository.update(user.getId(), User.builder().name("Valdir").build(), null).block();
+                    repository.findAndRemove(user.getId()).block();
+                })
+                .expectNextMatches(change -> change.operation() == INSERT && change.user().getEmail().equals("valdir@email.com"))
+                .expectNextMatches(change -> change.operation() == UPDATE && change.user().getName().equals("Valdir"))
+                .expectNextMatches(change -> change.operation() == DELETE && change.user() == null)
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testResumesAfterTokenWithoutGaps() {
+        List<UserChange> seen = new CopyOnWriteArrayList<>();
+        Disposable live = feed.changes(null).subscribe(seen::add);
+        save("valdir@email.com");
+        save("jande@email.com");
+        save("max@email.com");
+        live.dispose();
+
+        StepVerifier.create(feed.changes(seen.get(0).token()))
+                .expectNextMatches(change -> change.user().getEmail().equals("jande@email.com"))
+                .expectNextMatches(change -> change.user().getEmail().equals("max@email.com"))
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testDisconnectsSlowSubscriber() {
+        StepVerifier.create(feed.changes(null), 0)
+                .then(() -> {
+                    for (int i = 0; i < 5; i++)
+                        save("user" + i + "@email.com");
+                })
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(2)
+                .expectComplete()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testDropsOldestForSlowSubscriber() {
+        properties.setOverflow(DROP);
+
+        StepVerifier.create(feed.changes(null), 0)
+                .then(() -> {
+                    for (int i = 0; i < 5; i++)
+                        save("user" + i + "@email.com");
+                })
+                .thenRequest(2)
+                .expectNextMatches(change -> change.user().getEmail().equals("user3@email.com"))
+                .expectNextMatches(change -> change.user().getEmail().equals("user4@email.com"))
+                .thenCancel()
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testExpiredTokenIsRejected() {
+        StepVerifier.create(feed.changes("not-a-token"))
+                .expectError(ResumeTokenExpiredException.class)
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testSubscribersOnlySeeTheirTenant() {
+        Sinks.Many<UserChange> source = Sinks.many().multicast().directBestEffort();
+        UserChangeFeed tenants = new UserChangeFeed(resumeAfter -> source.asFlux(), properties);
+        User acme = User.builder().id("1").email("acme@email.com").build();
+        User globex = User.builder().id("2").email("globex@email.com").build();
+
+        StepVerifier.create(tenants.changes(null).contextWrite(Tenants.of("acme")))
+                .then(() -> {
+                    source.tryEmitNext(new UserChange("t1", INSERT, "2", globex, "globex"));
+                    source.tryEmitNext(new UserChange("t2", INSERT, "1", acme, "acme"));
+                })
+                .expectNextMatches(change -> change.id().equals("1") && change.tenant().equals("acme"))
+                .thenCancel()
+                .verify(TIMEOUT);
+        tenants.destroy();
+    }
+
+    private User save(final String email) {
+        return repository.save(User.builder().name("User").email(email).password("123456").build()).block();
+    }
+}
@@ -0,0 +1,189 @@
+package br.com.jande.webfluxcourse.service.dump;
+
+import br.com.jande.webfluxcourse.config.UserDumpProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.impl.InMemoryUserRepository;
+import br.com.jande.webfluxcourse.service.email.EmailRegistry;
+import br.com.jande.webfluxcourse.service.exception.InvalidDumpException;
+import br.com.jande.webfluxcourse.tenant.Tenants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class UserDumpTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final int USERS = 2_500;
+
+    @TempDir
+    private Path directory;
+
+    private final UserDumpProperties properties = new UserDumpProperties();
+    private final InMemoryUserRepository source = spy(new InMemoryUserRepository());
+    private final EmailRegistry emails = mock(EmailRegistry.class);
+
+    @BeforeEach
+    void setUp() {
+        properties.setDirectory(directory);
+        properties.setBatchSize(100);
+        properties.setCheckpointInterval(1_000);
+        final Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 0; i < USERS; i++)
+            source.save(User.builder().name("User " + i).searchName("user " + i).email("user" + i + "@email.com")
+                    .password("$2a$10$hash" + i).createdAt(createdAt).build()).block();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"users.ndjson", "users.ndjson.gz", "users.ndjson.zst", "users.bson", "users.bson.gz", "users.bson.zst"})
+    void testExportedUsersImportUnchanged(final String name) {
+        DumpResult exported = new UserDump(source, emails, properties).exportTo(name, false, false).block(TIMEOUT);
+        assertEquals(USERS, exported.documents());
+        assertTrue(exported.bytes() > 0);
+        assertFalse(Files.exists(directory.resolve(name + ".export-checkpoint")));
+
+        InMemoryUserRepository target = new InMemoryUserRepository();
+        DumpResult imported = new UserDump(target, emails, properties).importFrom(name, false).block(TIMEOUT);
+        assertEquals(new DumpResult(name, USERS, 0, 0, 0, exported.bytes()), imported);
+        assertEquals(dump(source), dump(target));
+        verify(emails, times(USERS)).registered(anyString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"users.ndjson.gz", "users.bson.zst", "users.bson"})
+    void testResumedExportContinuesFromCheckpoint(final String name) {
+        List<User> expected = dump(source);
+        doAnswer(invocation -> Flux.concat(((Flux<?>) invocation.callRealMethod()).take(1_500),
+                Flux.error(new IllegalStateException("cursor lost"))))
+                .when(source).dump(isNull(), anyInt());
+        UserDump dump = new UserDump(source, emails, properties);
+
+        StepVerifier.create(dump.exportTo(name, false, false))
+                .expectErrorMessage("cursor lost")
+                .verify(TIMEOUT);
+        assertTrue(Files.exists(directory.resolve(name + ".export-checkpoint")));
+
+        DumpResult resumed = dump.exportTo(name, true, false).block(TIMEOUT);
+        assertEquals(USERS, resumed.documents());
+        assertEquals(1_000, resumed.resumedAfter());
+
+        InMemoryUserRepository target = new InMemoryUserRepository();
+        assertEquals(0, new UserDump(target, emails, properties).importFrom(name, false).block(TIMEOUT).duplicates());
+        assertEquals(expected, dump(target));
+    }
+
+    @Test
+    void testResumedImportSkipsCheckpointedUsers() throws IOException {
+        new UserDump(source, emails, properties).exportTo("users.ndjson.zst", false, false).block(TIMEOUT);
+        new DumpCheckpoint(null, null, 0, 1_000).write(directory.resolve("users.ndjson.zst.import-checkpoint"));
+
+        InMemoryUserRepository target = new InMemoryUserRepository();
+        DumpResult imported = new UserDump(target, emails, properties).importFrom("users.ndjson.zst", true).block(TIMEOUT);
+
+        assertEquals(USERS, imported.documents());
+        assertEquals(1_000, imported.resumedAfter());
+        assertEquals(USERS - 1_000, dump(target).size());
+        assertFalse(Files.exists(directory.resolve("users.ndjson.zst.import-checkpoint")));
+    }
+
+    @Test
+    void testCheckpointOfAnotherTenantIsNotResumed() throws IOException {
+        new UserDump(source, emails, properties).exportTo("users.ndjson.zst", false, false).block(TIMEOUT);
+        new DumpCheckpoint("acme", null, 0, 1_000).write(directory.resolve("users.ndjson.zst.import-checkpoint"));
+
+        InMemoryUserRepository target = new InMemoryUserRepository();
+        UserDump dump = new UserDump(target, emails, properties);
+        StepVerifier.create(dump.importFrom("users.ndjson.zst", true).contextWrite(Tenants.of("globex")))
+                .expectErrorMatches(ex -> ex instanceof InvalidDumpException && ex.getMessage().contains("tenant acme"))
+                .verify(TIMEOUT);
+        StepVerifier.create(dump.importFrom("users.ndjson.zst", true))
+                .expectError(InvalidDumpException.class)
+                .verify(TIMEOUT);
+        assertTrue(dump(target).isEmpty());
+
+        DumpResult imported = dump.importFrom("users.ndjson.zst", true).contextWrite(Tenants.of("acme")).block(TIMEOUT);
+        assertEquals(1_000, imported.resumedAfter());
+    }
+
+    @Test
+    void testExportOnlyReplacesAnExistingDumpWhenAsked() throws IOException {
+        UserDump dump = new UserDump(source, emails, properties);
+        DumpResult exported = dump.exportTo("users.bson.gz", false, false).block(TIMEOUT);
+
+        StepVerifier.create(dump.exportTo("users.bson.gz", false, false))
+                .expectErrorMessage("Dump users.bson.gz already exists, pass overwrite to replace it")
+                .verify(TIMEOUT);
+        assertEquals(exported.bytes(), Files.size(directory.resolve("users.bson.gz")));
+
+        assertEquals(USERS, dump.exportTo("users.bson.gz", false, true).block(TIMEOUT).documents());
+    }
+
+    @Test
+    void testStoredUsersAreCountedAsDuplicates() {
+        UserDump dump = new UserDump(source, emails, properties);
+        dump.exportTo("users.bson.gz", false, false).block(TIMEOUT);
+
+        DumpResult imported = dump.importFrom("users.bson.gz", false).block(TIMEOUT);
+
+        assertEquals(USERS, imported.duplicates());
+        assertEquals(0, imported.failed());
+        assertEquals(USERS, dump(source).size());
+        verify(emails, never()).registered(anyString());
+    }
+
+    @Test
+    void testEmptyCollectionRoundTrips() {
+        InMemoryUserRepository empty = new InMemoryUserRepository();
+        UserDump dump = new UserDump(empty, emails, properties);
+
+        assertEquals(0, dump.exportTo("empty.ndjson.gz", false, false).block(TIMEOUT).documents());
+        assertEquals(0, dump.importFrom("empty.ndjson.gz", false).block(TIMEOUT).documents());
+    }
+
+    @Test
+    void testRejectsNamesOutsideTheDirectoryAndUnknownExtensions() {
+        UserDump dump = new UserDump(source, emails, properties);
+
+        for (String name : List.of("../users.ndjson", "/tmp/users.ndjson", "users.json", ".ndjson", "users.gz"))
+            StepVerifier.create(dump.exportTo(name, false, false))
+                    .expectError(InvalidDumpException.class)
+                    .verify(TIMEOUT);
+        StepVerifier.create(dump.importFrom("missing.ndjson", false))
+                .expectErrorMessage("No dump named missing.ndjson")
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testCorruptDumpIsRejected() throws IOException {
+        Files.write(directory.resolve("users.bson"), new byte[]{1, 0, 0, 0, 0});
+        Files.writeString(directory.resolve("users.ndjson.gz"), "plain text");
+
+        UserDump dump = new UserDump(new InMemoryUserRepository(), emails, properties);
+        StepVerifier.create(dump.importFrom("users.bson", false))
+                .expectErrorMatches(ex -> ex instanceof InvalidDumpException && ex.getMessage().contains("invalid document length"))
+                .verify(TIMEOUT);
+        StepVerifier.create(dump.importFrom("users.ndjson.gz", false))
+                .expectError(InvalidDumpException.class)
+                .verify(TIMEOUT);
+    }
+
+    private static List<User> dump(final InMemoryUserRepository repository) {
+        return repository.dump(null, 100).collectList().block(TIMEOUT);
+    }
+}
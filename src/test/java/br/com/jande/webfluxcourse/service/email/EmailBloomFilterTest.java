@@ -0,0 +1,50 @@
+package br.com.jande.webfluxcourse.service.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailBloomFilterTest {
+
+    private static final int EMAILS = 100_000;
+
+    @Test
+    void testNoFalseNegatives() {
+        EmailBloomFilter filter = new EmailBloomFilter(EMAILS, 0.01);
+        for (int i = 0; i < EMAILS; i++)
+            filter.put("user" + i + "@teste.com.br");
+
+        for (int i = 0; i < EMAILS; i++)
+            assertTrue(filter.mightContain("user" + i + "@teste.com.br"));
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearTheConfiguredOne() {
+        EmailBloomFilter filter = new EmailBloomFilter(EMAILS, 0.01);
+        for (int i = 0; i < EMAILS; i++)
+            filter.put("user" + i + "@teste.com.br");
+
+        int falsePositives = 0;
+        for (int i = 0; i < EMAILS; i++)
+            if (filter.mightContain("other" + i + "@teste.com.br"))
+                falsePositives++;
+
+        assertTrue(falsePositives < EMAILS * 0.015, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void testPutReportsNewEmails() {
+        EmailBloomFilter filter = new EmailBloomFilter(1000, 0.01);
+
+        assertTrue(filter.put("valdir@email.com"));
+        assertFalse(filter.put("valdir@email.com"));
+        assertEquals(1, filter.approximateElementCount());
+    }
+
+    @Test
+    void testRejectsInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new EmailBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new EmailBloomFilter(1000, 1));
+    }
+}
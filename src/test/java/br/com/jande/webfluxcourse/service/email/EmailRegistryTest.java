@@ -0,0 +1,130 @@
+package br.com.jande.webfluxcourse.service.email;
+
+import br.com.jande.webfluxcourse.config.EmailFilterProperties;
+import br.com.jande.webfluxcourse.config.UserChangesProperties;
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.impl.InMemoryUserRepository;
+import br.com.jande.webfluxcourse.service.changes.UserChangeFeed;
+import br.com.jande.webfluxcourse.service.writebehind.UserWriteBehind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EmailRegistryTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final InMemoryUserRepository repository = spy(new InMemoryUserRepository());
+    private final EmailFilterProperties properties = new EmailFilterProperties();
+    private UserChangeFeed changeFeed;
+    private EmailRegistry emails;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 100; i++)
+            save("user" + i + "@teste.com.br");
+        properties.setExpectedEmails(1000);
+        properties.setFollowChanges(false);
+        changeFeed = new UserChangeFeed(repository, new UserChangesProperties());
+        emails = new EmailRegistry(repository, changeFeed,
+                new UserWriteBehind(repository, new UserWriteBehindProperties()), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        emails.destroy();
+        changeFeed.destroy();
+    }
+
+    @Test
+    void testFreeEmailIsAnsweredWithoutLookup() {
+        emails.afterPropertiesSet();
+        clearInvocations(repository);
+
+        assertFalse(emails.isRegistered("valdir@email.com").block(TIMEOUT));
+        verify(repository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void testRegisteredEmailIsConfirmedByLookup() {
+        emails.afterPropertiesSet();
+
+        assertTrue(emails.isRegistered("user42@teste.com.br").block(TIMEOUT));
+        verify(repository).existsByEmail("user42@teste.com.br");
+    }
+
+    @Test
+    void testNewEmailIsSeenAfterRegistered() {
+        emails.afterPropertiesSet();
+        save("valdir@email.com");
+        emails.registered("valdir@email.com");
+
+        assertTrue(emails.isRegistered("valdir@email.com").block(TIMEOUT));
+    }
+
+    @Test
+    void testChecksGoToTheIndexWhenDisabled() {
+        properties.setEnabled(false);
+        emails.afterPropertiesSet();
+
+        assertTrue(emails.isRegistered("user42@teste.com.br").block(TIMEOUT));
+        assertFalse(emails.isRegistered("valdir@email.com").block(TIMEOUT));
+        verify(repository, times(2)).existsByEmail(anyString());
+    }
+
+    @Test
+    void testRebuildsOnceEnoughEmailsWereReleased() {
+        properties.setRebuildStaleRatio(0.1);
+        emails.afterPropertiesSet();
+        for (int i = 0; i < 11; i++) {
+            repository.findByEmail("user" + i + "@teste.com.br")
+                    .flatMap(user -> repository.findAndRemove(user.getId()))
+                    .block(TIMEOUT);
+            emails.released();
+        }
+
+        verify(repository, times(2)).emails(anyInt());
+        assertEquals(89L, meter("users.email.filter.emails"));
+        assertEquals(0L, meter("users.email.filter.stale"));
+    }
+
+    @Test
+    void testFollowsTheChangeFeed() {
+        properties.setFollowChanges(true);
+        emails.afterPropertiesSet();
+        clearInvocations(repository);
+
+        save("valdir@email.com");
+
+        assertTrue(emails.isRegistered("valdir@email.com").block(TIMEOUT));
+        verify(repository).existsByEmail("valdir@email.com");
+    }
+
+    @Test
+    void testRebuildsAfterLosingTheChangeFeed() throws InterruptedException {
+        properties.setFollowChanges(true);
+        emails.afterPropertiesSet();
+        changeFeed.destroy();
+
+        verify(repository, timeout(TIMEOUT.toMillis()).times(2)).emails(anyInt());
+        Thread.sleep(200);
+        verify(repository, times(2)).emails(anyInt());
+    }
+
+    private long meter(final String name){
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        emails.bindTo(registry);
+        return (long) registry.get(name).gauge().value();
+    }
+
+    private void save(final String email){
+        repository.save(User.builder().name("Valdir").email(email).password("123456").build()).block(TIMEOUT);
+    }
+}
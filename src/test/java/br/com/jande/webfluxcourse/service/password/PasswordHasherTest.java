@@ -0,0 +1,48 @@
+package br.com.jande.webfluxcourse.service.password;
+
+import br.com.jande.webfluxcourse.config.PasswordHashingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+
+    private final PasswordHasher hasher = new PasswordHasher(properties());
+
+    @AfterEach
+    void tearDown() {
+        hasher.destroy();
+    }
+
+    @Test
+    void testMatchesHashedPassword() {
+        final String hash = hasher.hash("secret").block();
+
+        assertTrue(hasher.matches("secret", hash).block());
+        assertFalse(hasher.matches("other", hash).block());
+        assertFalse(hasher.needsRehash(hash));
+    }
+
+    @Test
+    void testMatchesLegacyPlainTextPassword() {
+        assertTrue(hasher.matches("secret", "secret").block());
+        assertFalse(hasher.matches("other", "secret").block());
+        assertTrue(hasher.needsRehash("secret"));
+    }
+
+    @Test
+    void testWeakerHashNeedsRehash() {
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(hasher.needsRehash(null));
+        assertFalse(hasher.matches("secret", null).block());
+    }
+
+    private static PasswordHashingProperties properties(){
+        final PasswordHashingProperties properties = new PasswordHashingProperties();
+        properties.setStrength(5);
+        properties.setThreads(1);
+        return properties;
+    }
+}
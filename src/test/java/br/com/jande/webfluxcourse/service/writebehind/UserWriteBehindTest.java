@@ -0,0 +1,145 @@
+package br.com.jande.webfluxcourse.service.writebehind;
+
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import br.com.jande.webfluxcourse.entity.User;
+import br.com.jande.webfluxcourse.repository.impl.InMemoryUserRepository;
+import br.com.jande.webfluxcourse.service.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserWriteBehindTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    private Path journalDirectory;
+
+    private final InMemoryUserRepository repository = new InMemoryUserRepository();
+    private final UserWriteBehindProperties properties = new UserWriteBehindProperties();
+    private UserWriteBehind writeBehind;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties.setEnabled(true);
+        properties.setJournalDirectory(journalDirectory);
+        properties.setForceOnAppend(false);
+        // flushes only when a test drains explicitly
+        properties.setFlushInterval(Duration.ofHours(1));
+        writeBehind = start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        writeBehind.destroy();
+    }
+
+    @Test
+    void testPendingUserIsReadableBeforeFlush() {
+        User user = submit("valdir@email.com");
+
+        assertTrue(writeBehind.isPending(user.getId()));
+        assertEquals("valdir@email.com", writeBehind.find(user.getId()).orElseThrow().getEmail());
+        assertNull(repository.findById(user.getId()).block());
+
+        assertEquals(1L, writeBehind.drain().block(TIMEOUT));
+        assertFalse(writeBehind.isPending(user.getId()));
+        assertEquals("valdir@email.com", repository.findById(user.getId()).block().getEmail());
+    }
+
+    @Test
+    void testReplaysUnflushedUsersAfterRestart() throws IOException {
+        User flushed = submit("valdir@email.com");
+        writeBehind.drain().block(TIMEOUT);
+        User unflushed = submit("jande@email.com");
+        // a crash: the journal is closed without the final flush
+        writeBehind.close();
+
+        writeBehind = start();
+
+        assertFalse(writeBehind.isPending(flushed.getId()));
+        assertTrue(writeBehind.isPending(unflushed.getId()));
+        assertEquals(1L, writeBehind.drain().block(TIMEOUT));
+        assertEquals(unflushed.getCreatedAt(), repository.findById(unflushed.getId()).block().getCreatedAt());
+    }
+
+    @Test
+    void testRecordAlreadyInDatabaseCountsAsFlushed() {
+        User user = submit("valdir@email.com");
+        repository.insertAll(List.of(writeBehind.find(user.getId()).orElseThrow())).blockLast();
+
+        assertEquals(1L, writeBehind.drain().block(TIMEOUT));
+        assertFalse(writeBehind.isPending(user.getId()));
+        assertEquals(1, repository.findAllById(List.of(user.getId())).count().block());
+    }
+
+    @Test
+    void testDuplicateEmailAmongPendingUsersIsRejected() {
+        submit("valdir@email.com");
+
+        StepVerifier.create(writeBehind.submit(User.builder().email("valdir@email.com").build()))
+                .expectError(DuplicateKeyException.class)
+                .verify(TIMEOUT);
+    }
+
+    @Test
+    void testEmailTakenInDatabaseIsDroppedAtFlush() {
+        repository.save(User.builder().email("valdir@email.com").build()).block();
+        User user = submit("valdir@email.com");
+
+        StepVerifier.create(writeBehind.whenFlushed(user.getId()))
+                .then(() -> writeBehind.drain().block(TIMEOUT))
+                .verifyComplete();
+        assertNull(repository.findById(user.getId()).block());
+    }
+
+    @Test
+    void testRollsSegmentsAndRejectsWhenFull() throws IOException {
+        writeBehind.destroy();
+        // existing segments keep their size, start from a fresh directory
+        properties.setJournalDirectory(journalDirectory.resolve("small"));
+        properties.setSegmentSize(1024);
+        properties.setMaxSegments(2);
+        writeBehind = start();
+
+        StepVerifier.create(Flux.range(0, 100)
+                        .concatMap(i -> writeBehind.submit(User.builder().email(i + "@email.com").password("$2a$hash").build())))
+                .thenConsumeWhile(user -> true)
+                .expectError(ServiceOverloadedException.class)
+                .verify(TIMEOUT);
+        assertEquals(2, segments());
+
+        writeBehind.drain().block(TIMEOUT);
+        assertEquals(1, segments());
+        assertNotNull(submit("valdir@email.com"));
+    }
+
+    private UserWriteBehind start() throws IOException {
+        UserWriteBehind started = new UserWriteBehind(repository, properties);
+        started.afterPropertiesSet();
+        return started;
+    }
+
+    private User submit(final String email){
+        return writeBehind.submit(User.builder().name("Valdir").email(email).password("$2a$hash").build()).block(TIMEOUT);
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(properties.getJournalDirectory())){
+            return files.count();
+        }
+    }
+}
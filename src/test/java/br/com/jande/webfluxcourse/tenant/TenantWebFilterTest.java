@@ -0,0 +1,121 @@
+package br.com.jande.webfluxcourse.tenant;
+
+import br.com.jande.webfluxcourse.config.EmailFilterProperties;
+import br.com.jande.webfluxcourse.config.UserTenancyProperties;
+import br.com.jande.webfluxcourse.config.UserWriteBehindProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantWebFilterTest {
+
+    private final UserTenancyProperties properties = new UserTenancyProperties();
+    private final UserWriteBehindProperties writeBehindProperties = new UserWriteBehindProperties();
+    private final EmailFilterProperties emailFilterProperties = new EmailFilterProperties();
+    private final MockEnvironment environment = new MockEnvironment();
+    private final AtomicReference<String> tenant = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setTenants(Set.of("acme", "shared"));
+        emailFilterProperties.setEnabled(false);
+    }
+
+    @Test
+    void testHeaderTenantReachesTheContext() {
+        assertNull(run(MockServerHttpRequest.get("/users").header("X-Tenant-Id", "acme")));
+        assertEquals("acme", tenant.get());
+    }
+
+    @Test
+    void testMissingHeaderIsRejectedWithoutDefault() {
+        assertEquals(HttpStatus.BAD_REQUEST, run(MockServerHttpRequest.get("/users")));
+        assertNull(tenant.get());
+    }
+
+    @Test
+    void testMissingHeaderFallsBackToDefaultTenant() {
+        properties.setDefaultTenant("shared");
+
+        assertNull(run(MockServerHttpRequest.get("/users")));
+        assertEquals("shared", tenant.get());
+    }
+
+    @Test
+    void testInvalidTenantIsRejected() {
+        assertEquals(HttpStatus.BAD_REQUEST, run(MockServerHttpRequest.get("/users").header("X-Tenant-Id", "Acme")));
+        assertEquals(HttpStatus.BAD_REQUEST, run(MockServerHttpRequest.get("/users").header("X-Tenant-Id", "a.b")));
+        assertEquals(HttpStatus.BAD_REQUEST, run(MockServerHttpRequest.get("/users").header("X-Tenant-Id", "")));
+        assertNull(tenant.get());
+    }
+
+    @Test
+    void testUnknownTenantIsForbidden() {
+        assertEquals(HttpStatus.FORBIDDEN, run(MockServerHttpRequest.get("/users").header("X-Tenant-Id", "globex")));
+        assertNull(tenant.get());
+    }
+
+    @Test
+    void testExcludedPathsAndDisabledTenancyNeedNoTenant() {
+        assertNull(run(MockServerHttpRequest.get("/actuator/health")));
+        assertNull(tenant.get());
+
+        properties.setEnabled(false);
+        assertNull(run(MockServerHttpRequest.get("/users")));
+        assertNull(tenant.get());
+    }
+
+    @Test
+    void testRejectsSettingsThatMixTenants() {
+        filter().afterPropertiesSet();
+
+        writeBehindProperties.setEnabled(true);
+        emailFilterProperties.setEnabled(true);
+        environment.setActiveProfiles("in-memory");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> filter().afterPropertiesSet());
+        assertTrue(ex.getMessage().contains("users.write-behind.enabled=false"));
+        assertTrue(ex.getMessage().contains("users.email-filter.enabled=false"));
+        assertTrue(ex.getMessage().contains("in-memory"));
+    }
+
+    @Test
+    void testRejectsDefaultTenantOutsideTheTenants() {
+        properties.setDefaultTenant("globex");
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () -> filter().afterPropertiesSet());
+        assertTrue(ex.getMessage().contains("default-tenant is not one of the tenants"));
+
+        properties.setDefaultTenant(null);
+        properties.setTenants(Set.of());
+        ex = assertThrows(IllegalStateException.class, () -> filter().afterPropertiesSet());
+        assertTrue(ex.getMessage().contains("needs at least one tenant"));
+    }
+
+    private TenantWebFilter filter() {
+        return new TenantWebFilter(properties, writeBehindProperties, emailFilterProperties, environment, new ObjectMapper());
+    }
+
+    private HttpStatus run(final MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        filter().filter(exchange, capturing()).block();
+        return exchange.getResponse().getStatusCode() == null ? null : HttpStatus.valueOf(exchange.getResponse().getStatusCode().value());
+    }
+
+    private WebFilterChain capturing() {
+        return exchange -> Mono.deferContextual(context -> {
+            tenant.set(Tenants.current(context));
+            return Mono.empty();
+        });
+    }
+}
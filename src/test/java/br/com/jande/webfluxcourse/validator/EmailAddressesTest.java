@@ -0,0 +1,72 @@
+package br.com.jande.webfluxcourse.validator;
+
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Email;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EmailAddressesTest {
+
+    private static ValidatorFactory factory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        factory.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "", "jande@teste.com.br", "JANDE@TESTE.COM.BR", "jande.max@teste.com.br", "jande+tag@localhost",
+            "j@b", "a!#$%&'*+/=?^_`{|}~-z@teste.com", "jandé@téste.com", "jande@xn--tste-bpa.com",
+            "\"jande max\"@teste.com", "\"ja\\\"nde\"@teste.com", "\"ja\\\\nde\"@teste.com", "jande.\"max\"@teste.com",
+            "jande@te!ste.com", "jande@te--ste.com", "jande@[127.0.0.1]", "jande@[999.1.1.1]", "jande@[IPv6:::1]",
+            "jande@[IPv6:2001:db8::1]", "jande@[::1]",
+            "jande", "@teste.com", "jande@", "jande@@teste.com", "jan@de@teste.com", ".jande@teste.com",
+            "jande.@teste.com", "jan..de@teste.com", "jande@teste..com", "jande@teste.com.", "jande@.teste.com",
+            "jande@-teste.com", "jande@teste-.com", "jande max@teste.com", "jande@teste com", "\"\"@teste.com",
+            "\"jande@teste.com", "\"ja\\nde\"@teste.com", "jande\"max\"@teste.com", "jande@teste_com",
+            "jande@[127.0.0.1", "jande@teste.com ", " jande@teste.com", "jande\t@teste.com",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa@teste.com",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa@teste.com",
+            "jande@aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.com",
+            "jande@aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa.com",
+            "jande@ééééééééééééééééééééééééééééééééééééééééééééééééééééé.com"
+    })
+    void testAgreesWithBeanValidation(final String email) {
+        final boolean expected = isValid(email);
+
+        assertEquals(expected, EmailAddresses.isValid(email), email);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {63, 64, 200, 240, 250, 254, 255, 256, 260, 300})
+    void testDomainLengthAgreesWithBeanValidation(final int length) {
+        final StringBuilder domain = new StringBuilder("a".repeat(length % 61));
+        while (domain.length() < length)
+            domain.append(domain.isEmpty() ? "" : ".").append("a".repeat(60));
+        final String email = "jande@" + domain;
+        final boolean expected = isValid(email);
+
+        assertEquals(expected, EmailAddresses.isValid(email), email);
+    }
+
+    private static boolean isValid(final String email){
+        return validator.validateValue(Address.class, "email", email).isEmpty();
+    }
+
+    public record Address(@Email String email) {
+    }
+}
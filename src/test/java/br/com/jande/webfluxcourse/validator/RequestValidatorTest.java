@@ -0,0 +1,122 @@
+package br.com.jande.webfluxcourse.validator;
+
+import br.com.jande.webfluxcourse.config.UserWebProperties;
+import br.com.jande.webfluxcourse.model.request.UserBatchGetRequest;
+import br.com.jande.webfluxcourse.model.request.UserCredentialsRequest;
+import br.com.jande.webfluxcourse.model.request.UserRequest;
+import br.com.jande.webfluxcourse.model.request.UserSearchRequest;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Pattern;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestValidatorTest {
+
+    private static ValidatorFactory factory;
+    private static SpringValidatorAdapter beanValidation;
+    private static RequestValidator validator;
+
+    @BeforeAll
+    static void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        beanValidation = new SpringValidatorAdapter(factory.getValidator());
+        validator = new RequestValidator(factory.getValidator(), new UserWebProperties());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        factory.close();
+    }
+
+    static Stream<Object> requests() {
+        return Stream.of(
+                new UserRequest("Jande", "jande@teste.com.br", "123456"),
+                new UserRequest(" Jande", "jande.max", "1"),
+                new UserRequest(null, null, null),
+                new UserRequest("", "", ""),
+                new UserRequest("   ", " jande@teste.com.br", "123456 "),
+                new UserRequest("J".repeat(51), "jande@teste", "1".repeat(50)),
+                new UserCredentialsRequest("jande@teste.com.br", "123456"),
+                new UserCredentialsRequest("jande", " "),
+                new UserSearchRequest(null, null, null, null),
+                new UserSearchRequest("jande@", "Ja", null, null),
+                new UserBatchGetRequest(List.of("63b8d2f4e4b0a1a2b3c4d5e6")),
+                new UserBatchGetRequest(List.of()),
+                new UserBatchGetRequest(null),
+                new UserBatchGetRequest(Arrays.asList("1", "", null, " ")),
+                new UserBatchGetRequest(Collections.nCopies(UserBatchGetRequest.MAX_IDS + 1, "1")));
+    }
+
+    @ParameterizedTest
+    @MethodSource("requests")
+    void testReportsWhatBeanValidationReports(final Object request) {
+        BindingResult expected = new BeanPropertyBindingResult(request, "request");
+        beanValidation.validate(request, expected);
+        BindingResult actual = new BeanPropertyBindingResult(request, "request");
+        validator.validate(request, actual);
+
+        assertEquals(errors(expected), errors(actual));
+    }
+
+    @Test
+    void testErrorsCarryCodesAndRejectedValue() {
+        BindingResult result = new BeanPropertyBindingResult(new UserRequest(" Jande", "jande@teste.com.br", "123456"), "request");
+        validator.validate(result.getTarget(), result);
+
+        FieldError error = result.getFieldError("name");
+        assertEquals(" Jande", error.getRejectedValue());
+        assertEquals("TrimString", error.getCode());
+        assertTrue(Arrays.asList(error.getCodes()).contains("TrimString.request.name"));
+        assertFalse(error.isBindingFailure());
+    }
+
+    @Test
+    void testUnsupportedConstraintsAreLeftToBeanValidation() {
+        BindingResult result = new BeanPropertyBindingResult(new Coded("abc"), "coded");
+        validator.validate(result.getTarget(), result);
+
+        assertEquals("must be digits", result.getFieldError("code").getDefaultMessage());
+        assertNull(RecordConstraints.compile(Coded.class));
+        assertNotNull(RecordConstraints.compile(UserRequest.class));
+    }
+
+    @Test
+    void testDisabledUsesBeanValidation() {
+        UserWebProperties properties = new UserWebProperties();
+        properties.setPrecompiledValidation(false);
+        RequestValidator disabled = new RequestValidator(factory.getValidator(), properties);
+        UserRequest request = new UserRequest(" Jande", "jande.max", "1");
+
+        BindingResult result = new BeanPropertyBindingResult(request, "request");
+        disabled.validate(request, result);
+
+        assertEquals(3, result.getErrorCount());
+    }
+
+    private static Set<String> errors(final BindingResult result) {
+        return result.getFieldErrors().stream()
+                .map(error -> error.getField() + "=" + error.getRejectedValue() + ": " + error.getDefaultMessage()
+                        + " " + error.getCode())
+                .collect(Collectors.toSet());
+    }
+
+    public record Coded(@Pattern(regexp = "\\d+", message = "must be digits") String code) {
+    }
+}